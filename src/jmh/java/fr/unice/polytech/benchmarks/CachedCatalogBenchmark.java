@@ -0,0 +1,68 @@
+package fr.unice.polytech.benchmarks;
+
+import fr.unice.polytech.services.catalog.handlers.RestaurantHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/restaurants through RestaurantHandler while the catalog does not change: after the first
+ * request every response comes from the ResponseCache. CatalogBenchmark measures the cache misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CachedCatalogBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int restaurantCount;
+
+    @Param({"5", "20"})
+    public int dishesPerRestaurant;
+
+    private RestaurantHandler handler;
+
+    @State(Scope.Thread)
+    public static class ResponseBuffer {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Setup
+    public void setUp() {
+        handler = new RestaurantHandler(Fixtures.catalog(restaurantCount, dishesPerRestaurant));
+    }
+
+    @Benchmark
+    public int listAll(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants", buffer);
+    }
+
+    @Benchmark
+    public int filterByCuisine(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants?cuisineType=ITALIAN", buffer);
+    }
+
+    @Benchmark
+    public int filterByVegetarian(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants?hasVegetarian=true", buffer);
+    }
+
+    @Benchmark
+    public int filterByCuisineAndVegetarian(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants?cuisineType=JAPANESE&hasVegetarian=true", buffer);
+    }
+
+    private int get(String uri, ResponseBuffer buffer) throws IOException {
+        handler.handle(BenchmarkExchange.get(uri, buffer.body));
+        return buffer.body.size();
+    }
+}
@@ -0,0 +1,90 @@
+package fr.unice.polytech.benchmarks;
+
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.services.catalog.handlers.RestaurantHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/restaurants through RestaurantHandler, from query parsing to the JSON body.
+ *
+ * Each request first bumps the catalog version, so it misses the ResponseCache and goes through the
+ * search and the DTO mapping; invalidateOnly measures that bump alone. Each thread has its own
+ * catalog, so that with -t N no thread can hit an entry cached by another or slow it down.
+ * CachedCatalogBenchmark measures the cache hits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CatalogBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int restaurantCount;
+
+    @Param({"5", "20"})
+    public int dishesPerRestaurant;
+
+    private RestaurantHandler handler;
+    private Restaurant touched;
+
+    @State(Scope.Thread)
+    public static class ResponseBuffer {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+    }
+
+    @Setup
+    public void setUp() {
+        RestaurantManager manager = Fixtures.catalog(restaurantCount, dishesPerRestaurant);
+        handler = new RestaurantHandler(manager);
+        touched = manager.getAllRestaurants().get(0);
+    }
+
+    // Baseline of the other benchmarks, which all pay for it
+    @Benchmark
+    public long invalidateOnly() {
+        return invalidateCache();
+    }
+
+    @Benchmark
+    public int listAll(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants", buffer);
+    }
+
+    @Benchmark
+    public int filterByCuisine(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants?cuisineType=ITALIAN", buffer);
+    }
+
+    @Benchmark
+    public int filterByVegetarian(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants?hasVegetarian=true", buffer);
+    }
+
+    @Benchmark
+    public int filterByCuisineAndVegetarian(ResponseBuffer buffer) throws IOException {
+        return get("/api/restaurants?cuisineType=JAPANESE&hasVegetarian=true", buffer);
+    }
+
+    // Renaming a restaurant to its own name is a catalog change for the cache
+    private long invalidateCache() {
+        touched.setRestaurantName(touched.getRestaurantName());
+        return touched.getCatalogVersion();
+    }
+
+    private int get(String uri, ResponseBuffer buffer) throws IOException {
+        invalidateCache();
+        handler.handle(BenchmarkExchange.get(uri, buffer.body));
+        return buffer.body.size();
+    }
+}
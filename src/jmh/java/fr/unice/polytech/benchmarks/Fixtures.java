@@ -0,0 +1,74 @@
+package fr.unice.polytech.benchmarks;
+
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.suggestion.DishInfo;
+import fr.unice.polytech.users.DeliveryLocation;
+import fr.unice.polytech.users.StudentAccount;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic catalog and users shared by the benchmarks.
+ */
+final class Fixtures {
+
+    static final DeliveryLocation CAMPUS = new DeliveryLocation("Campus Sophia", "930 Route des Colles", "Biot", "06410");
+
+    private static final DishType[] CUISINES = DishType.values();
+    private static final DishCategory[] CATEGORIES = DishCategory.values();
+    private static final String[] DISH_WORDS = {
+        "Pizza", "Burger", "Sushi", "Salad", "Ramen", "Tacos", "Curry", "Risotto", "Kebab", "Lasagna",
+        "Poulet", "Boeuf", "Saumon", "Tofu", "Chèvre", "Épinards", "Truffe", "Basilic", "Piment", "Miel"
+    };
+
+    private Fixtures() {
+    }
+
+    static RestaurantManager catalog(int restaurantCount, int dishesPerRestaurant) {
+        RestaurantManager manager = new RestaurantManager();
+        for (int i = 0; i < restaurantCount; i++) {
+            manager.addRestaurant(restaurant(i, dishesPerRestaurant));
+        }
+        return manager;
+    }
+
+    static Restaurant restaurant(int index, int dishCount) {
+        Restaurant restaurant = new Restaurant.Builder("Restaurant " + index)
+                .withCuisineType(CUISINES[index % CUISINES.length])
+                .build();
+        for (int d = 0; d < dishCount; d++) {
+            restaurant.addDish("Dish " + index + "-" + d, "Description of dish " + d, 5.0 + d % 15);
+            if (d % 4 == 0) {
+                restaurant.updateDish(restaurant.findDishByName("Dish " + index + "-" + d), DishType.VEGETARIAN);
+            }
+        }
+        return restaurant;
+    }
+
+    //Dish names made of two words and a number, so the words repeat like in a real catalog
+    static List<DishInfo> dishInfos(int count) {
+        List<DishInfo> dishes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String first = DISH_WORDS[i % DISH_WORDS.length];
+            String second = DISH_WORDS[(i / DISH_WORDS.length + 7) % DISH_WORDS.length];
+            dishes.add(new DishInfo(first + " " + second + " " + i, "Description of dish " + i,
+                    CUISINES[i % CUISINES.length], CATEGORIES[i % CATEGORIES.length]));
+        }
+        return dishes;
+    }
+
+    //Balance large enough that internal payments never fail during a run
+    static StudentAccount student() {
+        return new StudentAccount.Builder("John", "Doe")
+                .email("john.doe@etu.unice.fr")
+                .studentId("S12345")
+                .balance(Double.MAX_VALUE / 2)
+                .addDeliveryLocation(CAMPUS)
+                .bankInfo("1234567890123456", 123, 12, 2099)
+                .build();
+    }
+}
@@ -0,0 +1,80 @@
+package fr.unice.polytech.benchmarks;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderManager;
+import fr.unice.polytech.orderManagement.OrderStatus;
+import fr.unice.polytech.paymentProcessing.PaymentMethod;
+import fr.unice.polytech.paymentProcessing.PaymentProcessorFactory;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.users.StudentAccount;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order creation and payment through OrderManager.
+ *
+ * The OrderManager is shared by all benchmark threads (run with -t N to measure contention).
+ * It keeps every order it creates, so it is replaced at each iteration and iterations are short.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(time = 1)
+@Measurement(time = 1)
+@Fork(jvmArgsAppend = "-Xmx2g")
+public class OrderBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int dishesPerOrder;
+
+    private OrderManager orderManager;
+    private StudentAccount student;
+    private Restaurant restaurant;
+    private List<Dish> dishes;
+
+    @Setup(Level.Trial)
+    public void setUpCatalog() {
+        restaurant = Fixtures.restaurant(0, dishesPerOrder);
+        dishes = restaurant.getDishes();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpOrders() {
+        student = Fixtures.student();
+        // The external provider always accepts, so the benchmark measures our code and not the mock's randomness
+        orderManager = new OrderManager(new PaymentProcessorFactory(order -> true));
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderManager.createOrder(dishes, student, Fixtures.CAMPUS, restaurant);
+    }
+
+    @Benchmark
+    public OrderStatus createAndPayInternal() {
+        Order order = orderManager.createOrder(dishes, student, Fixtures.CAMPUS, restaurant);
+        orderManager.initiatePayment(order, PaymentMethod.INTERNAL);
+        return order.getOrderStatus();
+    }
+
+    @Benchmark
+    public OrderStatus createAndPayExternal() {
+        Order order = orderManager.createOrder(dishes, student, Fixtures.CAMPUS, restaurant);
+        orderManager.initiatePayment(order, PaymentMethod.EXTERNAL);
+        return order.getOrderStatus();
+    }
+}
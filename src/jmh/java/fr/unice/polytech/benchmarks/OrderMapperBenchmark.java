@@ -0,0 +1,50 @@
+package fr.unice.polytech.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.unice.polytech.api.OrderDTO;
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderManager;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.services.order.mappers.OrderMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderMapper.toDTO and the JSON encoding of the resulting DTO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderMapperBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int dishesPerOrder;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        Restaurant restaurant = Fixtures.restaurant(0, dishesPerOrder);
+        order = new OrderManager().createOrder(restaurant.getDishes(), Fixtures.student(), Fixtures.CAMPUS, restaurant);
+    }
+
+    @Benchmark
+    public OrderDTO toDTO() {
+        return OrderMapper.toDTO(order);
+    }
+
+    @Benchmark
+    public String toJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(OrderMapper.toDTO(order));
+    }
+}
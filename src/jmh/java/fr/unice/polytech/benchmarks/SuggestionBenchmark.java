@@ -0,0 +1,63 @@
+package fr.unice.polytech.benchmarks;
+
+import fr.unice.polytech.suggestion.DishInfo;
+import fr.unice.polytech.suggestion.FuzzySuggestionProvider;
+import fr.unice.polytech.suggestion.KeywordSuggestionProvider;
+import fr.unice.polytech.suggestion.TrieSuggestionProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One suggestion query per provider: the keyword map (4 entries, substring match) against the
+ * prefix and fuzzy indexes over a generated catalog. Typos only match in the fuzzy index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SuggestionBenchmark {
+
+    @Param({"1000", "100000"})
+    public int dishCount;
+
+    @Param({"piza", "sushis", "salad", "risot"})
+    public String query;
+
+    private KeywordSuggestionProvider keywordProvider;
+    private TrieSuggestionProvider prefixProvider;
+    private FuzzySuggestionProvider fuzzyProvider;
+
+    @Setup
+    public void setUp() {
+        List<DishInfo> dishes = Fixtures.dishInfos(dishCount);
+        keywordProvider = new KeywordSuggestionProvider();
+        prefixProvider = new TrieSuggestionProvider();
+        fuzzyProvider = new FuzzySuggestionProvider(dishes);
+        for (DishInfo dish : dishes) {
+            prefixProvider.add(dish);
+        }
+    }
+
+    @Benchmark
+    public List<DishInfo> keyword() {
+        return keywordProvider.getSuggestions(query);
+    }
+
+    @Benchmark
+    public List<DishInfo> prefix() {
+        return prefixProvider.getSuggestions(query);
+    }
+
+    @Benchmark
+    public List<DishInfo> fuzzy() {
+        return fuzzyProvider.getSuggestions(query);
+    }
+}
@@ -1,5 +1,6 @@
 package fr.unice.polytech.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
@@ -8,7 +9,9 @@ import java.util.List;
  * DTO for transferring restaurant data via REST APIs
  * Used by Catalog Service to send restaurant information to frontend 
  * Corresponds to TD requirement: "consulter les restaurants et leurs menus"
+ * Fields left out of a projection (fields=...) stay null and are not serialized
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RestaurantDTO {
     
     @JsonProperty("id")
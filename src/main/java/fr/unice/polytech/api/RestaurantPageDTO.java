@@ -0,0 +1,47 @@
+package fr.unice.polytech.api;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * DTO for one page of restaurants
+ * Returned by the Catalog Service when the client asks for a page size (limit)
+ */
+public class RestaurantPageDTO {
+    
+    @JsonProperty("restaurants")
+    private List<RestaurantDTO> restaurants;
+    
+    @JsonProperty("nextCursor")
+    private String nextCursor; // null on the last page
+    
+    // ========== Constructors ==========
+    
+    public RestaurantPageDTO() {
+        // Required by Jackson
+    }
+    
+    public RestaurantPageDTO(List<RestaurantDTO> restaurants, String nextCursor) {
+        this.restaurants = restaurants;
+        this.nextCursor = nextCursor;
+    }
+    
+    // ========== Getters/Setters ==========
+    
+    public List<RestaurantDTO> getRestaurants() {
+        return restaurants;
+    }
+    
+    public void setRestaurants(List<RestaurantDTO> restaurants) {
+        this.restaurants = restaurants;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
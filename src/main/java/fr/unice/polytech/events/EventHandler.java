@@ -0,0 +1,15 @@
+package fr.unice.polytech.events;
+
+import java.util.List;
+
+/**
+ * Subscriber of a RingBufferEventBus, called on the thread of its subscription.
+ *
+ * Events are handed over in batches: everything published since the previous call, in publication
+ * order. The list is reused for the next batch, so it must not be kept after the call.
+ */
+@FunctionalInterface
+public interface EventHandler<E> {
+
+    void onEvents(List<? extends E> batch) throws Exception;
+}
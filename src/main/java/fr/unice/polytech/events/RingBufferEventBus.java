@@ -0,0 +1,298 @@
+package fr.unice.polytech.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process event bus over a fixed ring of slots, with one consumer thread per subscription.
+ *
+ * Publishing writes the event in the next slot and moves the published sequence: no allocation, no
+ * queue node, and publishers take turns on a short lock so the ring has a single writer. Each
+ * subscription follows the published sequence at its own pace and takes every event it has not
+ * seen yet as one batch. A slot is only reused once every subscription has read it: when the
+ * slowest one is a full ring behind, publish() waits for it (backpressure) and tryPublish() fails.
+ *
+ * Once every subscription has handled an event, its slot is cleared, so the ring does not keep
+ * the events (and what they refer to) alive until it wraps around.
+ *
+ * A subscription only sees the events published after it was made. A handler that throws does
+ * not stop its subscription: the failure is counted (getHandlerFailures) and the next batch goes on.
+ */
+public class RingBufferEventBus<E> implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Object[] ring;
+    private final AtomicIntegerArray readers; // subscriptions that have not handled the event of each slot yet
+    private final int mask;
+    private final ReentrantLock publishLock = new ReentrantLock();
+    private final AtomicLong published = new AtomicLong(-1); // sequence of the last published event
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder backpressureWaits = new LongAdder();
+    private final LongAdder handlerFailures = new LongAdder(); // of every subscription, even canceled ones
+    private volatile boolean closed;
+
+    public RingBufferEventBus() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    //The capacity is rounded up to a power of two.
+    public RingBufferEventBus(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new Object[size];
+        this.readers = new AtomicIntegerArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Starts a thread handing the events published from now on to the handler.
+     * A handler that throws is reported and keeps receiving the next batches.
+     */
+    public Subscription subscribe(String name, EventHandler<? super E> handler) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Subscription name cannot be null or empty");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+        Subscription subscription;
+        publishLock.lock();
+        try {
+            // Under the lock, so no event is published between reading the sequence and registering
+            subscription = new Subscription(name, handler, published.get());
+            subscriptions.add(subscription);
+        } finally {
+            publishLock.unlock();
+        }
+        subscription.thread.start();
+        return subscription;
+    }
+
+    //Publishes the event, waiting while the slowest subscription is a full ring behind.
+    public void publish(E event) {
+        publish(event, true);
+    }
+
+    //Publishes the event unless the slowest subscription is a full ring behind. Returns false if not published.
+    public boolean tryPublish(E event) {
+        return publish(event, false);
+    }
+
+    private boolean publish(E event, boolean wait) {
+        if (event == null) {
+            throw new IllegalArgumentException("Event cannot be null");
+        }
+        if (closed) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+        publishLock.lock();
+        try {
+            long next = published.get() + 1;
+            long wrapPoint = next - ring.length;
+            if (minimumSequence(next - 1) < wrapPoint) {
+                if (!wait) {
+                    return false;
+                }
+                backpressureWaits.increment();
+                long parkNanos = 1_000;
+                while (minimumSequence(next - 1) < wrapPoint) {
+                    if (closed) {
+                        throw new IllegalStateException("Event bus is closed");
+                    }
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+                }
+            }
+            int readerCount = activeSubscriptions();
+            readers.set((int) next & mask, readerCount);
+            ring[(int) next & mask] = readerCount > 0 ? event : null; // nobody to hand it to
+            published.set(next); // volatile write: the slot is visible to whoever reads the sequence
+        } finally {
+            publishLock.unlock();
+        }
+        for (Subscription subscription : subscriptions) {
+            if (subscription.parked) {
+                LockSupport.unpark(subscription.thread);
+            }
+        }
+        return true;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    //Number of events published so far.
+    public long getPublishedCount() {
+        return published.get() + 1;
+    }
+
+    //Number of times a publisher had to wait for a slow subscription.
+    public long getBackpressureWaits() {
+        return backpressureWaits.sum();
+    }
+
+    //Batches whose handler threw, over every subscription made so far.
+    public long getHandlerFailures() {
+        return handlerFailures.sum();
+    }
+
+    //Events still held by the ring, for tests.
+    int getRetainedEvents() {
+        int count = 0;
+        for (Object event : ring) {
+            if (event != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    //Stops every subscription once it has handled the events already published.
+    @Override
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            LockSupport.unpark(subscription.thread);
+        }
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private int activeSubscriptions() {
+        int count = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.active) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Sequence of the last event read by every subscription
+    private long minimumSequence(long upTo) {
+        long minimum = upTo;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.active) {
+                minimum = Math.min(minimum, subscription.sequence.get());
+            }
+        }
+        return minimum;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E entry(long sequence) {
+        return (E) ring[(int) sequence & mask];
+    }
+
+    public final class Subscription {
+        private final String name;
+        private final EventHandler<? super E> handler;
+        private final AtomicLong sequence; // last event handed to the handler
+        private final LongAdder failures = new LongAdder();
+        private final Thread thread;
+        private volatile boolean parked;
+        private volatile boolean active = true;
+
+        private Subscription(String name, EventHandler<? super E> handler, long start) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = new AtomicLong(start);
+            this.thread = new Thread(this::consume, "event-bus-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        //Events published but not handled yet.
+        public long getLag() {
+            return published.get() - sequence.get();
+        }
+
+        //Batches whose handler threw.
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        //Stops this subscription at once, without the events it has not handled yet: publishers no longer wait for it.
+        public void cancel() {
+            active = false;
+            LockSupport.unpark(thread);
+        }
+
+        private void consume() {
+            List<E> batch = new ArrayList<>(Math.min(ring.length, 256));
+            long next = sequence.get() + 1;
+            while (active) {
+                long available = published.get();
+                if (available < next) {
+                    if (closed) {
+                        break;
+                    }
+                    parked = true;
+                    // Checked again once parked is visible, so a publish cannot be missed
+                    if (published.get() < next && !closed && active) {
+                        LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                    }
+                    parked = false;
+                    continue;
+                }
+                for (long s = next; s <= available; s++) {
+                    E event = entry(s);
+                    if (event != null) {
+                        batch.add(event);
+                    }
+                }
+                try {
+                    if (!batch.isEmpty()) {
+                        handler.onEvents(batch);
+                    }
+                } catch (Exception e) {
+                    failures.increment();
+                    handlerFailures.increment();
+                }
+                batch.clear();
+                for (long s = next; s <= available; s++) {
+                    if (readers.decrementAndGet((int) s & mask) == 0) {
+                        ring[(int) s & mask] = null; // handled by every subscription
+                    }
+                }
+                // Only now may the publisher reuse the slots
+                sequence.set(available);
+                next = available + 1;
+            }
+            active = false;
+            subscriptions.remove(this);
+        }
+    }
+}
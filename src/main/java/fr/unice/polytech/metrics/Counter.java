@@ -0,0 +1,30 @@
+package fr.unice.polytech.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic count. Increments from many threads go to separate cells (LongAdder), so a busy
+ * counter is not a point of contention; reading it sums the cells.
+ */
+public final class Counter {
+
+    private final LongAdder count = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("A counter cannot decrease");
+        }
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+}
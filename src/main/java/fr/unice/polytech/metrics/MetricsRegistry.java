@@ -0,0 +1,223 @@
+package fr.unice.polytech.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Metrics of a server, exported in the Prometheus text format (version 0.0.4).
+ *
+ * A metric is a name plus label pairs: counter("http_requests_total", help, "route", "/api/orders",
+ * "status", "200") returns the same Counter for the same name and labels, so callers on a hot path
+ * should keep it rather than look it up each time. Values owned by other components are read at
+ * scrape time instead: gauge(...) and counter(..., LongSupplier, ...) for one value, collector(...)
+ * for a set of labeled values that changes over time (one per time slot, for example).
+ *
+ * Histograms are exported as summaries: their quantiles, sum and count, in seconds.
+ */
+public class MetricsRegistry {
+
+    public enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String text;
+
+        Type(String text) {
+            this.text = text;
+        }
+    }
+
+    //Receives the samples of a collector, each with its label pairs.
+    public interface Samples {
+        void add(double value, String... labels);
+    }
+
+    //Values computed at scrape time, e.g. one per restaurant.
+    @FunctionalInterface
+    public interface Collector {
+        void collect(Samples samples);
+    }
+
+    private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // A metric name with its help, type and every labeled value
+    private static final class Family {
+        final String name;
+        final String help;
+        final Type type;
+        final Map<String, Object> children = new ConcurrentSkipListMap<>(); // by rendered labels
+        final List<Collector> collectors = new CopyOnWriteArrayList<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, Type.COUNTER).children.computeIfAbsent(labels(labels), key -> new Counter());
+    }
+
+    //Counter kept by another component, read at scrape time. The supplier must never decrease.
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Type.COUNTER, value, labels);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) family(name, help, Type.SUMMARY).children.computeIfAbsent(labels(labels), key -> new Histogram());
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(name, help, Type.GAUGE, value, labels);
+    }
+
+    public void collector(String name, String help, Type type, Collector collector) {
+        if (type == Type.SUMMARY) {
+            throw new IllegalArgumentException("Collectors only export counters and gauges");
+        }
+        if (collector == null) {
+            throw new IllegalArgumentException("Collector cannot be null");
+        }
+        family(name, help, type).collectors.add(collector);
+    }
+
+    //Every metric in the Prometheus text format, ordered by name.
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        writeTo(out);
+        return out.toString();
+    }
+
+    public void writeTo(Appendable out) {
+        try {
+            for (Family family : families.values()) {
+                write(out, family);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void register(String name, String help, Type type, Object supplier, String[] labels) {
+        if (supplier == null) {
+            throw new IllegalArgumentException("Value supplier cannot be null");
+        }
+        Object previous = family(name, help, type).children.putIfAbsent(labels(labels), supplier);
+        if (previous != null) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered with these labels");
+        }
+    }
+
+    private Family family(String name, String help, Type type) {
+        if (name == null || !METRIC_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help == null ? "" : help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already a " + family.type.text);
+        }
+        return family;
+    }
+
+    // {name="value",...} with the values escaped, empty without labels
+    private static String labels(String... pairs) {
+        if (pairs.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        if (pairs.length == 0) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder("{");
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (pairs[i] == null || !LABEL_NAME.matcher(pairs[i]).matches()) {
+                throw new IllegalArgumentException("Invalid label name: " + pairs[i]);
+            }
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(pairs[i]).append("=\"");
+            String value = pairs[i + 1] == null ? "" : pairs[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                if (ch == '\\' || ch == '"') {
+                    text.append('\\').append(ch);
+                } else if (ch == '\n') {
+                    text.append("\\n");
+                } else {
+                    text.append(ch);
+                }
+            }
+            text.append('"');
+        }
+        return text.append('}').toString();
+    }
+
+    // Labels plus one more pair, e.g. the quantile of a summary
+    private static String withLabel(String labels, String name, String value) {
+        String pair = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + pair + "}" : labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+
+    private static void write(Appendable out, Family family) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Object> child : family.children.entrySet()) {
+            String labels = child.getKey();
+            Object metric = child.getValue();
+            if (metric instanceof Counter) {
+                lines.add(family.name + labels + " " + ((Counter) metric).get());
+            } else if (metric instanceof LongSupplier) {
+                lines.add(family.name + labels + " " + ((LongSupplier) metric).getAsLong());
+            } else if (metric instanceof DoubleSupplier) {
+                lines.add(family.name + labels + " " + format(((DoubleSupplier) metric).getAsDouble()));
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+                for (double quantile : QUANTILES) {
+                    lines.add(family.name + withLabel(labels, "quantile", String.valueOf(quantile)) + " "
+                            + format(histogram.getQuantileNanos(quantile) / NANOS_PER_SECOND));
+                }
+                lines.add(family.name + "_sum" + labels + " " + format(histogram.getSumNanos() / NANOS_PER_SECOND));
+                lines.add(family.name + "_count" + labels + " " + histogram.getCount());
+            }
+        }
+        for (Collector collector : family.collectors) {
+            collector.collect((value, pairs) -> lines.add(family.name + labels(pairs) + " " + format(value)));
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+        out.append("# HELP ").append(family.name).append(' ')
+                .append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(family.name).append(' ').append(family.type.text).append('\n');
+        for (String line : lines) {
+            out.append(line).append('\n');
+        }
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Objects;
 
 public class Order {
+    private long id;
     private StudentAccount studentAccount;
     private Restaurant restaurant;
     private double amount;
@@ -28,6 +29,16 @@ public class Order {
         this.deliveryLocation = builder.deliveryLocation;
         this.orderStatus = builder.orderStatus != null ? builder.orderStatus : OrderStatus.PENDING;
         this.restaurant = builder.restaurant;
+        this.paymentMethod = builder.paymentMethod;
+    }
+
+    //Assigned by the OrderRepository when the order is stored, 0 before that.
+    public long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
     }
 
     public Restaurant getRestaurant() {
@@ -77,6 +88,11 @@ public class Order {
         this.paymentMethod = paymentMethod;
     }
 
+    //Payment method without the ownership check, for the persistence of the order.
+    PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
     public static class Builder {
         private StudentAccount studentAccount;
         private double amount;
@@ -84,6 +100,7 @@ public class Order {
         private List<Dish> dishes;
         private DeliveryLocation deliveryLocation;
         private OrderStatus orderStatus;
+        private PaymentMethod paymentMethod;
 
         public Builder(StudentAccount studentAccount) {
             this.studentAccount = studentAccount;
@@ -112,6 +129,11 @@ public class Order {
             return this;
         }
 
+        public Builder paymentMethod(PaymentMethod paymentMethod) {
+            this.paymentMethod = paymentMethod;
+            return this;
+        }
+
 
         public Order build() {
             return new Order(this);
@@ -0,0 +1,98 @@
+package fr.unice.polytech.orderManagement;
+
+import fr.unice.polytech.paymentProcessing.PaymentMethod;
+
+/**
+ * Change of an order, published by the OrderManager on its event bus.
+ *
+ * The fields are the state of the order when the change happened; the order itself is given too,
+ * but may have changed again by the time a subscriber reads it.
+ */
+public final class OrderEvent {
+
+    public enum Type {
+        CREATED,
+        PAYMENT_STARTED,
+        VALIDATED,
+        CANCELED
+    }
+
+    private final Type type;
+    private final Order order;
+    private final long orderId;
+    private final long restaurantId;
+    private final OrderStatus status;
+    private final PaymentMethod paymentMethod;
+    private final double amount;
+    private final long timestamp;
+
+    private OrderEvent(Type type, Order order) {
+        this.type = type;
+        this.order = order;
+        this.orderId = order.getId();
+        this.restaurantId = order.getRestaurant() == null ? 0 : order.getRestaurant().getId();
+        this.status = order.getOrderStatus();
+        this.paymentMethod = order.getPaymentMethod();
+        this.amount = order.getAmount();
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public static OrderEvent of(Type type, Order order) {
+        if (type == null) {
+            throw new IllegalArgumentException("Event type cannot be null");
+        }
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+        return new OrderEvent(type, order);
+    }
+
+    //VALIDATED or CANCELED event of an order whose payment completed.
+    static OrderEvent statusOf(Order order) {
+        return of(order.getOrderStatus() == OrderStatus.VALIDATED ? Type.VALIDATED : Type.CANCELED, order);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    //0 if the order has no restaurant.
+    public long getRestaurantId() {
+        return restaurantId;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    //Null before the payment started.
+    public PaymentMethod getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    //Epoch milliseconds.
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "OrderEvent{" +
+                "type=" + type +
+                ", orderId=" + orderId +
+                ", status=" + status +
+                '}';
+    }
+}
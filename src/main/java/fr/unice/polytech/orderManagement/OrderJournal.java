@@ -0,0 +1,28 @@
+package fr.unice.polytech.orderManagement;
+
+/**
+ * Receives the changes of the orders of an OrderManager, after they are made, to persist them.
+ * The default journal keeps nothing.
+ */
+public interface OrderJournal {
+
+    OrderJournal NONE = new OrderJournal() {
+    };
+
+    //The order was stored as pending and has its ID.
+    default void orderCreated(Order order) {
+    }
+
+    //A payment of the order was started with its payment method.
+    default void paymentStarted(Order order) {
+    }
+
+    //The order moved to its current status.
+    default void statusChanged(Order order) {
+    }
+
+    //Puts the orders known to the journal back in the repository, returns how many.
+    default int recover(OrderRepository repository) {
+        return 0;
+    }
+}
@@ -1,33 +1,64 @@
 package fr.unice.polytech.orderManagement;
 
 import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.events.RingBufferEventBus;
 import fr.unice.polytech.paymentProcessing.*;
 import fr.unice.polytech.restaurants.Restaurant;
 import fr.unice.polytech.users.DeliveryLocation;
 import fr.unice.polytech.users.StudentAccount;
 
-import java.util.HashMap;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 public class OrderManager {
 
 
-    private List<Order> registeredOrders;
-    private List<Order> pendingOrders;
+    private final OrderRepository orders;
     private final PaymentProcessorFactory paymentProcessorFactory;
+    private final OrderJournal journal;
+    // Every change of an order, for subscribers that react to it on their own thread
+    private final RingBufferEventBus<OrderEvent> events;
+    // Payments started with initiatePaymentAsync and not completed yet, by order ID
+    private final Map<Long, CompletableFuture<OrderStatus>> paymentsInProgress = new ConcurrentHashMap<>();
+    // Adds the validated orders to their restaurant off the payment and request threads; started with the first one
+    private volatile RingBufferEventBus<OrderEvent>.Subscription restaurantRegistration;
+    private final LongAdder droppedEvents = new LongAdder();
 
     public OrderManager(){
         this(new PaymentProcessorFactory());
 
     }
     public OrderManager(PaymentProcessorFactory paymentProcessorFactory) {
+        this(paymentProcessorFactory, OrderJournal.NONE);
+    }
+
+    public OrderManager(PaymentProcessorFactory paymentProcessorFactory, OrderJournal journal) {
+        this(paymentProcessorFactory, journal, new RingBufferEventBus<>());
+    }
+
+    public OrderManager(PaymentProcessorFactory paymentProcessorFactory, OrderJournal journal, RingBufferEventBus<OrderEvent> events) {
+        if (events == null) {
+            throw new IllegalArgumentException("Event bus cannot be null");
+        }
         this.paymentProcessorFactory = paymentProcessorFactory;
-        registeredOrders = new java.util.ArrayList<>();
-        pendingOrders = new java.util.ArrayList<>();
+        this.journal = journal;
+        this.events = events;
+        this.orders = new OrderRepository();
+    }
+
+    //Reloads the orders persisted by the journal, before any new order. Returns how many.
+    public int recover() {
+        return journal.recover(orders);
     }
 
-    public void createOrder(List<Dish> dishes, StudentAccount studentAccount, DeliveryLocation deliveryLocation, Restaurant restaurant) {
+    public Order createOrder(List<Dish> dishes, StudentAccount studentAccount, DeliveryLocation deliveryLocation, Restaurant restaurant) {
         if (dishes == null || dishes.isEmpty()) {
             throw new IllegalArgumentException("Empty cart");
         }
@@ -45,8 +76,10 @@ public class OrderManager {
                 .orderStatus(OrderStatus.PENDING)
                 .build();
 
-        pendingOrders.add(order);
-
+        orders.save(order);
+        journal.orderCreated(order);
+        publish(OrderEvent.of(OrderEvent.Type.CREATED, order));
+        return order;
     }
 
 
@@ -60,22 +93,92 @@ public class OrderManager {
         IPaymentProcessor processor = paymentProcessorFactory.createProcessor(order, paymentMethod);
 
         order.setPaymentMethod(paymentMethod);
+        journal.paymentStarted(order);
+        publish(OrderEvent.of(OrderEvent.Type.PAYMENT_STARTED, order));
         OrderStatus status = processor.processPayment(order);
         order.setOrderStatus(status);
 
     }
 
+    /**
+     * Starts the payment without waiting for it. When it completes, the order is validated or
+     * canceled and registered, so its final status can be polled with findOrderById.
+     * If a payment of this order is already in progress, returns it instead of paying twice.
+     *
+     * If the outcome is unknown (the provider did not answer in time), the order stays pending
+     * until reconcilePayment is called, and is not paid again meanwhile.
+     */
+    public CompletableFuture<OrderStatus> initiatePaymentAsync(Order order, PaymentMethod paymentMethod) {
+        if (paymentMethod == null) {
+            throw new IllegalArgumentException("Payment method must be provided");
+        }
+        if (orders.isAwaitingReconciliation(order.getId())) {
+            return CompletableFuture.completedFuture(OrderStatus.PENDING);
+        }
+        CompletableFuture<OrderStatus> payment = new CompletableFuture<>();
+        CompletableFuture<OrderStatus> inProgress = paymentsInProgress.putIfAbsent(order.getId(), payment);
+        if (inProgress != null) {
+            return inProgress;
+        }
+
+        order.setPaymentMethod(paymentMethod);
+        journal.paymentStarted(order);
+        publish(OrderEvent.of(OrderEvent.Type.PAYMENT_STARTED, order));
+        CompletableFuture<OrderStatus> processing;
+        try {
+            processing = paymentProcessorFactory.createAsyncProcessor(order, paymentMethod).processPaymentAsync(order);
+        } catch (RuntimeException e) {
+            processing = CompletableFuture.failedFuture(e);
+        }
+        processing.whenComplete((status, failure) -> {
+            try {
+                order.setOrderStatus(failure == null ? status : OrderStatus.CANCELED);
+                if (order.getOrderStatus() == OrderStatus.PENDING) {
+                    orders.markForReconciliation(order);
+                } else {
+                    registerOrder(order, order.getRestaurant());
+                }
+            } finally {
+                paymentsInProgress.remove(order.getId());
+                payment.complete(order.getOrderStatus());
+            }
+        });
+        return payment;
+    }
+
+    //Settles a payment whose outcome was unknown, once the provider has told whether the student was charged.
+    public boolean reconcilePayment(Order order, boolean paid) {
+        if (!orders.isAwaitingReconciliation(order.getId())) {
+            throw new IllegalArgumentException("Order " + order.getId() + " is not awaiting reconciliation");
+        }
+        order.setOrderStatus(paid ? OrderStatus.VALIDATED : OrderStatus.CANCELED);
+        return registerOrder(order, order.getRestaurant());
+    }
+
     private void dropOrder(Order order) {
-        pendingOrders.remove(order);
+        orders.moveTo(order, OrderStatus.CANCELED);
+        journal.statusChanged(order);
+        publish(OrderEvent.statusOf(order));
     }
 
 
 
+    /**
+     * Registers an order whose payment completed. A validated order is added to its own restaurant
+     * by a subscriber of the event bus, off the calling thread; a different restaurant given here
+     * gets it at once.
+     */
     public boolean registerOrder(Order order, Restaurant restaurant) {
         if (order.getOrderStatus() == OrderStatus.VALIDATED) {
-            registeredOrders.add(order);
-            pendingOrders.remove(order);
-            restaurant.addOrder(order);
+            orders.moveTo(order, OrderStatus.VALIDATED);
+            journal.statusChanged(order);
+            if (order.getRestaurant() != null) {
+                startRestaurantRegistration();
+            }
+            publish(OrderEvent.statusOf(order));
+            if (restaurant != null && restaurant != order.getRestaurant()) {
+                restaurant.addOrder(order);
+            }
             return true;
         } else if (order.getOrderStatus() == OrderStatus.CANCELED) {
             dropOrder(order);
@@ -84,15 +187,106 @@ public class OrderManager {
     }
 
 
+    // Never waits for a slow subscriber: an event that finds the ring full (or the bus closed) is
+    // dropped and counted, and the restaurant registration it carried is done here instead
+    private void publish(OrderEvent event) {
+        boolean published;
+        try {
+            published = events.tryPublish(event);
+        } catch (IllegalStateException e) {
+            published = false; // closed
+        }
+        if (!published) {
+            droppedEvents.increment();
+            if (event.getType() == OrderEvent.Type.VALIDATED && event.getOrder().getRestaurant() != null) {
+                event.getOrder().getRestaurant().addOrder(event.getOrder());
+            }
+        }
+    }
+
+    // Subscribed before the first validated order is published, so it sees every one of them
+    private void startRestaurantRegistration() {
+        if (restaurantRegistration != null) {
+            return;
+        }
+        synchronized (this) {
+            if (restaurantRegistration == null) {
+                try {
+                    restaurantRegistration = events.subscribe("restaurant-orders", this::addToRestaurants);
+                } catch (IllegalStateException e) {
+                    // Closed: publish registers the orders itself
+                }
+            }
+        }
+    }
+
+    private void addToRestaurants(List<? extends OrderEvent> batch) {
+        for (OrderEvent event : batch) {
+            Restaurant restaurant = event.getOrder().getRestaurant();
+            if (event.getType() == OrderEvent.Type.VALIDATED && restaurant != null) {
+                restaurant.addOrder(event.getOrder());
+            }
+        }
+    }
+
+    /**
+     * Waits up to the timeout for the payments in progress, then closes the event bus once its
+     * subscribers have handled every event, so no validated order is left out of its restaurant.
+     */
+    public void close(Duration timeout) {
+        CompletableFuture<?>[] inProgress = paymentsInProgress.values().toArray(new CompletableFuture<?>[0]);
+        try {
+            CompletableFuture.allOf(inProgress).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Payments completing later still register their orders, without the bus
+        }
+        events.close();
+    }
+
     private double calculateTotalAmount(List<Dish> dishes) {
         return dishes.stream().mapToDouble(Dish::getPrice).sum();
     }
 
+    public Order findOrderById(long id) {
+        return orders.findById(id);
+    }
+
+    //Gets an order by its ID only if it is still waiting for its payment to be registered.
+    public Order findPendingOrderById(long id) {
+        return orders.findById(id, OrderStatus.PENDING);
+    }
+
+    //Snapshots of the validated and pending orders, oldest first.
     public List<Order> getRegisteredOrders() {
-        return registeredOrders;
+        return orders.findByStatus(OrderStatus.VALIDATED);
     }
     public List<Order> getPendingOrders() {
-        return pendingOrders;
+        return orders.findByStatus(OrderStatus.PENDING);
+    }
+
+    //Pending orders whose payment outcome is unknown, to check with the provider before reconcilePayment.
+    public List<Order> getOrdersToReconcile() {
+        return orders.findOrdersToReconcile();
+    }
+
+    public OrderRepository getOrderRepository() {
+        return orders;
+    }
+
+    public PaymentProcessorFactory getPaymentProcessorFactory() {
+        return paymentProcessorFactory;
+    }
+
+    //Events not published because the ring was full: OrderManager never waits for a subscriber.
+    public long getDroppedEvents() {
+        return droppedEvents.sum();
+    }
+
+    //Subscribe to it to follow the orders without polling (creation, payment, validation, cancellation).
+    public RingBufferEventBus<OrderEvent> getEventBus() {
+        return events;
     }
 
 
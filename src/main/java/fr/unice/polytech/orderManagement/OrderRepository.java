@@ -0,0 +1,133 @@
+package fr.unice.polytech.orderManagement;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory store of the orders handled by an OrderManager.
+ *
+ * Every saved order gets a monotonic ID. Orders are indexed by ID and by the stage of their
+ * lifecycle (PENDING until the payment outcome is registered, then VALIDATED or CANCELED),
+ * so lookups and stage transitions are O(1). Each stage keeps its orders in insertion order.
+ *
+ * Canceled orders are only kept so that clients polling them see the outcome: past
+ * maxCanceledOrders, the oldest ones are forgotten (findById returns null), which bounds the
+ * memory of a long-running server and the snapshots of the WAL compaction.
+ *
+ * A pending order whose payment outcome is unknown (the provider did not answer in time, so the
+ * student may have been charged) is also kept aside until it is reconciled: it must neither be
+ * paid again nor canceled blindly.
+ */
+public class OrderRepository {
+
+    public static final int DEFAULT_MAX_CANCELED_ORDERS = 1000;
+
+    private final int maxCanceledOrders;
+    private long lastId;
+    private final Map<Long, Order> ordersById = new HashMap<>();
+    private final Map<OrderStatus, LinkedHashMap<Long, Order>> ordersByStatus = new EnumMap<>(OrderStatus.class);
+    private final LinkedHashMap<Long, Order> ordersToReconcile = new LinkedHashMap<>();
+
+    public OrderRepository() {
+        this(DEFAULT_MAX_CANCELED_ORDERS);
+    }
+
+    public OrderRepository(int maxCanceledOrders) {
+        if (maxCanceledOrders < 0) {
+            throw new IllegalArgumentException("Canceled orders limit cannot be negative");
+        }
+        this.maxCanceledOrders = maxCanceledOrders;
+        for (OrderStatus status : OrderStatus.values()) {
+            ordersByStatus.put(status, new LinkedHashMap<>());
+        }
+    }
+
+    //Stores a new order as pending and assigns its ID.
+    public synchronized Order save(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+        moveTo(order, OrderStatus.PENDING);
+        return order;
+    }
+
+    //Moves an order to the given stage, storing it first if it is not known yet.
+    public synchronized void moveTo(Order order, OrderStatus status) {
+        if (order.getId() == 0) {
+            order.setId(++lastId);
+            ordersById.put(order.getId(), order);
+        }
+        for (LinkedHashMap<Long, Order> orders : ordersByStatus.values()) {
+            orders.remove(order.getId());
+        }
+        ordersByStatus.get(status).put(order.getId(), order);
+        if (status != OrderStatus.PENDING) {
+            ordersToReconcile.remove(order.getId()); // the outcome is known now
+        }
+        if (status == OrderStatus.CANCELED) {
+            evictCanceledOrders();
+        }
+    }
+
+    // Forgets the oldest canceled orders past the limit
+    private void evictCanceledOrders() {
+        LinkedHashMap<Long, Order> canceled = ordersByStatus.get(OrderStatus.CANCELED);
+        Iterator<Long> oldest = canceled.keySet().iterator();
+        while (canceled.size() > maxCanceledOrders) {
+            ordersById.remove(oldest.next());
+            oldest.remove();
+        }
+    }
+
+    //Stores an order recovered with its ID at the given stage; new orders get IDs after it.
+    public synchronized void restore(Order order, OrderStatus status) {
+        if (order.getId() <= 0) {
+            throw new IllegalArgumentException("A restored order must have an ID");
+        }
+        lastId = Math.max(lastId, order.getId());
+        ordersById.put(order.getId(), order);
+        moveTo(order, status);
+    }
+
+    //Keeps a pending order aside until its payment outcome is known. Returns false if it is not pending.
+    public synchronized boolean markForReconciliation(Order order) {
+        if (ordersByStatus.get(OrderStatus.PENDING).get(order.getId()) != order) {
+            return false;
+        }
+        ordersToReconcile.put(order.getId(), order);
+        return true;
+    }
+
+    public synchronized boolean isAwaitingReconciliation(long id) {
+        return ordersToReconcile.containsKey(id);
+    }
+
+    //Returns a snapshot of the pending orders whose payment outcome is unknown, oldest first.
+    public synchronized List<Order> findOrdersToReconcile() {
+        return new ArrayList<>(ordersToReconcile.values());
+    }
+
+    //Gets an order by its ID whatever its stage, or null if no order has this ID.
+    public synchronized Order findById(long id) {
+        return ordersById.get(id);
+    }
+
+    //Gets an order by its ID only if it currently is at the given stage.
+    public synchronized Order findById(long id, OrderStatus status) {
+        return ordersByStatus.get(status).get(id);
+    }
+
+    //Returns a snapshot of the orders at the given stage, oldest first.
+    public synchronized List<Order> findByStatus(OrderStatus status) {
+        return new ArrayList<>(ordersByStatus.get(status).values());
+    }
+
+    public synchronized int count(OrderStatus status) {
+        return ordersByStatus.get(status).size();
+    }
+}
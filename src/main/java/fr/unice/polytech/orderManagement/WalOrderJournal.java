@@ -0,0 +1,330 @@
+package fr.unice.polytech.orderManagement;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.paymentProcessing.PaymentMethod;
+import fr.unice.polytech.persistence.WriteAheadLog;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.users.DeliveryLocation;
+import fr.unice.polytech.users.StudentAccount;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * Journal of the orders in a write-ahead log, so that a restarted OrderServer gets them back.
+ *
+ * An order is logged whole when it is created, then its payment method and status changes.
+ * Every record sets a state, so replaying a record twice is harmless, which compaction relies
+ * on: past maxSegments segments, the sealed ones are replaced by the current state of every order.
+ *
+ * The restaurant of an order is logged by ID and its dishes by name, and both are looked up again
+ * on recovery. Student wallets are not journaled: a recovered student starts with the default balance.
+ *
+ * An order still pending with a payment method had its payment in progress when the server
+ * stopped: the student may have been charged, so it is recovered as awaiting reconciliation
+ * rather than paid again.
+ */
+public class WalOrderJournal implements OrderJournal, AutoCloseable {
+
+    public static final int DEFAULT_MAX_SEGMENTS = 4;
+
+    private static final byte ORDER = 1;
+    private static final byte PAYMENT = 2;
+    private static final byte STATUS = 3;
+
+    // State of an order read from the log, turned into an Order once the restaurants exist
+    private static final class Recovered {
+        long id;
+        OrderStatus status;
+        PaymentMethod paymentMethod;
+        double amount;
+        long restaurantId;
+        String name;
+        String surname;
+        String email;
+        String studentId;
+        DeliveryLocation deliveryLocation;
+        final List<String> dishNames = new ArrayList<>();
+        final List<String> dishDescriptions = new ArrayList<>();
+        final List<Double> dishPrices = new ArrayList<>();
+    }
+
+    private final WriteAheadLog log;
+    private final LongFunction<Restaurant> restaurants;
+    private final int maxSegments;
+    private final Map<Long, Recovered> recovered = new LinkedHashMap<>();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "wal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder compactionFailures = new LongAdder();
+    private volatile OrderRepository repository;
+
+    private WalOrderJournal(WriteAheadLog.Builder log, LongFunction<Restaurant> restaurants, int maxSegments) throws IOException {
+        this.restaurants = restaurants;
+        this.maxSegments = maxSegments;
+        this.log = log.open(this::read);
+    }
+
+    //Opens the log and reads the orders it holds; they are restored by recover().
+    public static WalOrderJournal open(WriteAheadLog.Builder log, LongFunction<Restaurant> restaurants) throws IOException {
+        return open(log, restaurants, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public static WalOrderJournal open(WriteAheadLog.Builder log, LongFunction<Restaurant> restaurants, int maxSegments) throws IOException {
+        if (maxSegments < 2) {
+            throw new IllegalArgumentException("At least 2 segments are needed to compact");
+        }
+        return new WalOrderJournal(log, restaurants, maxSegments);
+    }
+
+    @Override
+    public void orderCreated(Order order) {
+        append(encodeOrder(order));
+    }
+
+    @Override
+    public void paymentStarted(Order order) {
+        PaymentMethod method = order.getPaymentMethod();
+        append(encode(PAYMENT, order.getId(), method == null ? -1 : method.ordinal()));
+    }
+
+    @Override
+    public void statusChanged(Order order) {
+        append(encode(STATUS, order.getId(), order.getOrderStatus().ordinal()));
+    }
+
+    @Override
+    public int recover(OrderRepository repository) {
+        Map<String, StudentAccount> students = new HashMap<>();
+        for (Recovered state : recovered.values()) {
+            Restaurant restaurant = state.restaurantId > 0 ? restaurants.apply(state.restaurantId) : null;
+            StudentAccount student = students.computeIfAbsent(state.studentId + "|" + state.email, key ->
+                    new StudentAccount.Builder(state.name, state.surname)
+                            .email(state.email)
+                            .studentId(state.studentId)
+                            .addDeliveryLocation(state.deliveryLocation)
+                            .build());
+            List<Dish> dishes = new ArrayList<>();
+            for (int i = 0; i < state.dishNames.size(); i++) {
+                Dish dish = restaurant != null ? restaurant.findDishByName(state.dishNames.get(i)) : null;
+                dishes.add(dish != null ? dish
+                        : new Dish(state.dishNames.get(i), state.dishDescriptions.get(i), state.dishPrices.get(i)));
+            }
+            Order order = new Order.Builder(student)
+                    .dishes(dishes)
+                    .amount(state.amount)
+                    .deliveryLocation(state.deliveryLocation)
+                    .restaurant(restaurant)
+                    .orderStatus(state.status)
+                    .paymentMethod(state.paymentMethod)
+                    .build();
+            order.setId(state.id);
+            repository.restore(order, state.status);
+            if (state.status == OrderStatus.PENDING && state.paymentMethod != null) {
+                repository.markForReconciliation(order);
+            }
+            if (state.status == OrderStatus.VALIDATED && restaurant != null) {
+                restaurant.addOrder(order);
+            }
+        }
+        int count = recovered.size();
+        recovered.clear();
+        this.repository = repository;
+        return count;
+    }
+
+    //Replaces the sealed segments by the current state of the orders (done automatically past maxSegments).
+    public void compact() throws IOException {
+        OrderRepository orders = repository;
+        if (orders == null) {
+            return; // nothing to take the state from before recover()
+        }
+        log.flush();
+        log.compact(() -> {
+            List<byte[]> snapshot = new ArrayList<>();
+            for (OrderStatus status : OrderStatus.values()) {
+                for (Order order : orders.findByStatus(status)) {
+                    snapshot.add(encodeOrder(order));
+                }
+            }
+            return snapshot;
+        });
+    }
+
+    //Changes that could not be written to the log (only counted without the ALWAYS policy, otherwise thrown).
+    public long getWriteFailures() {
+        return writeFailures.sum();
+    }
+
+    //Automatic compactions that failed.
+    public long getCompactionFailures() {
+        return compactionFailures.sum();
+    }
+
+    public WriteAheadLog getLog() {
+        return log;
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        log.close();
+    }
+
+    // ========== WRITING ==========
+
+    private void append(byte[] record) {
+        CompletableFuture<Void> written = log.append(record);
+        if (log.getFsyncPolicy() == WriteAheadLog.FsyncPolicy.ALWAYS) {
+            // The change is only acknowledged once on disk
+            try {
+                written.join();
+            } catch (CompletionException e) {
+                throw new IllegalStateException("Order journal unavailable", e.getCause());
+            }
+        } else {
+            written.whenComplete((ignored, failure) -> {
+                if (failure != null) {
+                    writeFailures.increment();
+                }
+            });
+        }
+        if (log.getSegmentCount() > maxSegments && repository != null && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException | RuntimeException e) {
+                    compactionFailures.increment(); // the segments are kept, compaction is tried again later
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private static byte[] encode(byte type, long id, int ordinal) {
+        return ByteBuffer.allocate(13).put(type).putLong(id).putInt(ordinal).array();
+    }
+
+    private static byte[] encodeOrder(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ORDER);
+            out.writeLong(order.getId());
+            out.writeInt(order.getOrderStatus().ordinal());
+            PaymentMethod method = order.getPaymentMethod();
+            out.writeInt(method == null ? -1 : method.ordinal());
+            out.writeDouble(order.getAmount());
+            out.writeLong(order.getRestaurant() == null ? 0 : order.getRestaurant().getId());
+            StudentAccount student = order.getStudentAccount();
+            writeString(out, student.getName());
+            writeString(out, student.getSurname());
+            writeString(out, student.getEmail());
+            writeString(out, student.getStudentID());
+            DeliveryLocation location = order.getDeliveryLocation();
+            out.writeBoolean(location != null);
+            if (location != null) {
+                writeString(out, location.getName());
+                writeString(out, location.getAddress());
+                writeString(out, location.getCity());
+                writeString(out, location.getZipCode());
+            }
+            List<Dish> dishes = order.getDishes() == null ? List.of() : order.getDishes();
+            out.writeInt(dishes.size());
+            for (Dish dish : dishes) {
+                writeString(out, dish.getName());
+                writeString(out, dish.getDescription());
+                out.writeDouble(dish.getPrice());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in memory, cannot happen
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    // ========== READING ==========
+
+    private void read(ByteBuffer record) {
+        byte type = record.get();
+        long id = record.getLong();
+        if (type == ORDER) {
+            recovered.put(id, decodeOrder(id, record));
+            return;
+        }
+        Recovered state = recovered.get(id);
+        if (state == null) {
+            return; // created before a compaction that already dropped it
+        }
+        int ordinal = record.getInt();
+        if (type == PAYMENT) {
+            state.paymentMethod = ordinal < 0 ? null : PaymentMethod.values()[ordinal];
+        } else if (type == STATUS) {
+            state.status = OrderStatus.values()[ordinal];
+        }
+    }
+
+    private static Recovered decodeOrder(long id, ByteBuffer record) {
+        Recovered state = new Recovered();
+        state.id = id;
+        state.status = OrderStatus.values()[record.getInt()];
+        int method = record.getInt();
+        state.paymentMethod = method < 0 ? null : PaymentMethod.values()[method];
+        state.amount = record.getDouble();
+        state.restaurantId = record.getLong();
+        state.name = readString(record);
+        state.surname = readString(record);
+        state.email = readString(record);
+        state.studentId = readString(record);
+        if (record.get() != 0) {
+            state.deliveryLocation = new DeliveryLocation(readString(record), readString(record),
+                    readString(record), readString(record));
+        }
+        int dishCount = record.getInt();
+        for (int i = 0; i < dishCount; i++) {
+            state.dishNames.add(readString(record));
+            state.dishDescriptions.add(readString(record));
+            state.dishPrices.add(record.getDouble());
+        }
+        return state;
+    }
+
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        record.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,87 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking version of PaymentProcessor: each attempt is bounded by the timeout of the retry
+ * policy and retries are scheduled after a backoff instead of looping on the calling thread.
+ * A refused or failed attempt is retried, except when the circuit breaker of the external system
+ * is open: the order is then canceled without further attempts.
+ *
+ * A timed-out attempt is not retried: the provider may still charge the student, so a new attempt
+ * could charge twice. Its outcome is unknown and the payment completes with PENDING, for the order
+ * to be reconciled with the provider rather than validated or canceled.
+ */
+public class AsyncPaymentProcessor implements IAsyncPaymentProcessor {
+
+    private final IAsyncPaymentService paymentService;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService scheduler;
+
+    public AsyncPaymentProcessor(IAsyncPaymentService paymentService, RetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        this.paymentService = paymentService;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public CompletableFuture<OrderStatus> processPaymentAsync(Order order) {
+        CompletableFuture<OrderStatus> result = new CompletableFuture<>();
+        attempt(order, 1, result);
+        return result;
+    }
+
+    private void attempt(Order order, int attempt, CompletableFuture<OrderStatus> result) {
+        CompletableFuture<Boolean> call;
+        try {
+            call = paymentService.processExternalPaymentAsync(order);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.orTimeout(retryPolicy.getAttemptTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((paid, failure) -> {
+                    if (failure == null && Boolean.TRUE.equals(paid)) {
+                        result.complete(OrderStatus.VALIDATED);
+                    } else if (isTimeout(failure)) {
+                        result.complete(OrderStatus.PENDING);
+                    } else if (attempt >= retryPolicy.getMaxAttempts() || isCircuitOpen(failure)) {
+                        result.complete(OrderStatus.CANCELED);
+                    } else {
+                        scheduleRetry(order, attempt + 1, result);
+                    }
+                });
+    }
+
+    // The call was made but not answered: it may still go through
+    private static boolean isTimeout(Throwable failure) {
+        return unwrap(failure) instanceof TimeoutException;
+    }
+
+    // Fast fail: the circuit will not close during the backoff, so the retries would be refused too
+    private static boolean isCircuitOpen(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        return cause instanceof PaymentUnavailableException && ((PaymentUnavailableException) cause).isCircuitOpen();
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException ? failure.getCause() : failure;
+    }
+
+    private void scheduleRetry(Order order, int attempt, CompletableFuture<OrderStatus> result) {
+        try {
+            scheduler.schedule(() -> attempt(order, attempt, result),
+                    retryPolicy.delayMillis(attempt - 1), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: no more retries
+            result.complete(OrderStatus.CANCELED);
+        }
+    }
+}
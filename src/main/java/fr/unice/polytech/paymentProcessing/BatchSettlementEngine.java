@@ -0,0 +1,159 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Groups external payments into batches settled by one provider call.
+ *
+ * A batch is sent when it reaches maxBatchSize orders, or when the window has elapsed since its
+ * first order, whichever comes first. Each order gets its own result back through the future
+ * returned by processExternalPaymentAsync; if the batch call fails, every order of the batch fails.
+ *
+ * Given a ResilientPaymentService, each batch call goes through its circuit breaker and bulkhead,
+ * which thus count provider calls: a failed batch is one failure, however many orders it holds.
+ */
+public class BatchSettlementEngine implements IAsyncPaymentService {
+
+    // An order waiting for its batch
+    private static class Pending {
+        final Order order;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Pending(Order order) {
+            this.order = order;
+        }
+    }
+
+    private final IBatchPaymentService batchPaymentService;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callExecutor;
+    private final ResilientPaymentService guard;
+
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> windowTimer;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong settledOrders = new AtomicLong();
+
+    public BatchSettlementEngine(IBatchPaymentService batchPaymentService, Duration window, int maxBatchSize,
+                                 ScheduledExecutorService scheduler, Executor callExecutor) {
+        this(batchPaymentService, window, maxBatchSize, scheduler, callExecutor, null);
+    }
+
+    public BatchSettlementEngine(IBatchPaymentService batchPaymentService, Duration window, int maxBatchSize,
+                                 ScheduledExecutorService scheduler, Executor callExecutor, ResilientPaymentService guard) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Batch window must be positive");
+        }
+        this.batchPaymentService = batchPaymentService;
+        this.windowMillis = window.toMillis();
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.callExecutor = callExecutor;
+        this.guard = guard;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> processExternalPaymentAsync(Order order) {
+        Pending payment = new Pending(order);
+        List<Pending> fullBatch = null;
+        synchronized (this) {
+            pending.add(payment);
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = drain();
+            } else if (pending.size() == 1) {
+                windowTimer = scheduler.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            submit(fullBatch);
+        }
+        return payment.result;
+    }
+
+    //Sends the orders waiting for their batch right away.
+    public void flush() {
+        List<Pending> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) {
+            submit(batch);
+        }
+    }
+
+    private List<Pending> drain() {
+        if (windowTimer != null) {
+            windowTimer.cancel(false);
+            windowTimer = null;
+        }
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private void submit(List<Pending> batch) {
+        List<Order> orders = new ArrayList<>(batch.size());
+        for (Pending payment : batch) {
+            orders.add(payment.order);
+        }
+        CompletableFuture<List<Boolean>> call;
+        if (guard != null) {
+            call = guard.call(() -> settleAsync(orders));
+        } else {
+            try {
+                call = settleAsync(orders);
+            } catch (RejectedExecutionException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+        }
+        call.whenComplete((results, failure) -> {
+            for (int i = 0; i < batch.size(); i++) {
+                if (failure == null) {
+                    batch.get(i).result.complete(Boolean.TRUE.equals(results.get(i)));
+                } else {
+                    batch.get(i).result.completeExceptionally(failure);
+                }
+            }
+        });
+    }
+
+    private CompletableFuture<List<Boolean>> settleAsync(List<Order> orders) {
+        return CompletableFuture.supplyAsync(() -> settle(orders), callExecutor);
+    }
+
+    private List<Boolean> settle(List<Order> orders) {
+        List<Boolean> results = batchPaymentService.processExternalPayments(orders);
+        if (results == null || results.size() != orders.size()) {
+            throw new IllegalStateException("Expected " + orders.size() + " payment results");
+        }
+        batches.incrementAndGet();
+        settledOrders.addAndGet(orders.size());
+        return results;
+    }
+
+    //Provider calls made so far.
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getSettledOrderCount() {
+        return settledOrders.get();
+    }
+}
@@ -0,0 +1,210 @@
+package fr.unice.polytech.paymentProcessing;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker driven by the failure rate of the last calls (count-based sliding window).
+ *
+ * CLOSED: calls go through; once the window holds at least minimumCalls outcomes and the failure
+ * rate reaches the threshold, the circuit opens.
+ * OPEN: calls are refused until openDuration has elapsed, then the circuit is half-open.
+ * HALF_OPEN: a few trial calls go through; if they all succeed the circuit closes with an empty
+ * window, and the first failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    // Ring buffer of the last outcomes, true for a failure
+    private final boolean[] window;
+    private int windowIndex;
+    private int bufferedCalls;
+    private int failedCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private long notPermittedCalls;
+
+    private CircuitBreaker(Builder builder) {
+        this.window = new boolean[builder.windowSize];
+        this.minimumCalls = builder.minimumCalls;
+        this.failureRateThreshold = builder.failureRateThreshold;
+        this.openDurationNanos = builder.openDuration.toNanos();
+        this.halfOpenCalls = builder.halfOpenCalls;
+        this.clock = builder.clock;
+    }
+
+    //Returns false if the call must not be made; otherwise its outcome must be reported with onSuccess or onFailure.
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openDurationNanos) {
+                notPermittedCalls++;
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                notPermittedCalls++;
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    //Gives back a permission whose call was not made after all, so it has no outcome to report.
+    public synchronized void releasePermission() {
+        if (state == State.HALF_OPEN && halfOpenPermits + halfOpenSuccesses < halfOpenCalls) {
+            halfOpenPermits++;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            halfOpenSuccesses++;
+            if (halfOpenSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (bufferedCalls >= minimumCalls && getFailureRate() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+        // Calls allowed before the circuit opened are ignored
+    }
+
+    private void record(boolean failure) {
+        if (bufferedCalls == window.length) {
+            if (window[windowIndex]) {
+                failedCalls--;
+            }
+        } else {
+            bufferedCalls++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            failedCalls++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        switch (newState) {
+            case OPEN:
+                openedAt = clock.getAsLong();
+                break;
+            case HALF_OPEN:
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+                break;
+            case CLOSED:
+                bufferedCalls = 0;
+                failedCalls = 0;
+                windowIndex = 0;
+                break;
+        }
+    }
+
+    // ========== Metrics ==========
+
+    public synchronized State getState() {
+        // An open circuit whose delay has elapsed lets the next call through
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    //Failure rate of the calls in the window, between 0 and 1.
+    public synchronized double getFailureRate() {
+        return bufferedCalls == 0 ? 0 : (double) failedCalls / bufferedCalls;
+    }
+
+    public synchronized int getBufferedCalls() {
+        return bufferedCalls;
+    }
+
+    public synchronized int getFailedCalls() {
+        return failedCalls;
+    }
+
+    public synchronized long getNotPermittedCalls() {
+        return notPermittedCalls;
+    }
+
+    public static class Builder {
+        private int windowSize = 20;
+        private int minimumCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private Duration openDuration = Duration.ofSeconds(10);
+        private int halfOpenCalls = 3;
+        private LongSupplier clock = System::nanoTime;
+
+        public Builder slidingWindow(int windowSize, int minimumCalls) {
+            if (windowSize <= 0 || minimumCalls <= 0 || minimumCalls > windowSize) {
+                throw new IllegalArgumentException("Invalid sliding window: " + minimumCalls + " calls out of " + windowSize);
+            }
+            this.windowSize = windowSize;
+            this.minimumCalls = minimumCalls;
+            return this;
+        }
+
+        public Builder failureRateThreshold(double failureRateThreshold) {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 1) {
+                throw new IllegalArgumentException("Failure rate threshold must be in ]0, 1]");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public Builder openDuration(Duration openDuration) {
+            if (openDuration.isNegative()) {
+                throw new IllegalArgumentException("Open duration cannot be negative");
+            }
+            this.openDuration = openDuration;
+            return this;
+        }
+
+        public Builder halfOpenCalls(int halfOpenCalls) {
+            if (halfOpenCalls <= 0) {
+                throw new IllegalArgumentException("At least one trial call is required");
+            }
+            this.halfOpenCalls = halfOpenCalls;
+            return this;
+        }
+
+        //Time source in nanoseconds, for tests.
+        Builder clock(LongSupplier clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(this);
+        }
+    }
+}
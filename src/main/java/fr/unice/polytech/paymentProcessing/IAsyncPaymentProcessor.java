@@ -0,0 +1,11 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderStatus;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface IAsyncPaymentProcessor {
+    //Completes with VALIDATED or CANCELED, or PENDING if the outcome is unknown and must be reconciled.
+    public CompletableFuture<OrderStatus> processPaymentAsync(Order order);
+}
@@ -0,0 +1,15 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+public interface IAsyncPaymentService {
+    public CompletableFuture<Boolean> processExternalPaymentAsync(Order order);
+
+    //Runs a blocking payment service on the given executor.
+    public static IAsyncPaymentService fromBlocking(IPaymentService paymentService, Executor executor) {
+        return order -> CompletableFuture.supplyAsync(() -> paymentService.processExternalPayment(order), executor);
+    }
+}
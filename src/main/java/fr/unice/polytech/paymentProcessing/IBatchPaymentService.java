@@ -0,0 +1,10 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+
+import java.util.List;
+
+public interface IBatchPaymentService extends IPaymentService {
+    //Settles several orders in one provider call; the results are in the order of the given orders.
+    public List<Boolean> processExternalPayments(List<Order> orders);
+}
@@ -15,7 +15,7 @@ public class InternalPaymentProcessor implements IPaymentProcessor {
     public OrderStatus processPayment(Order order) {
         StudentAccount client = order.getStudentAccount();
         double orderTotal = order.getAmount();
-        boolean ok = client.debit(orderTotal);
+        boolean ok = client.debit(order.getId(), orderTotal);
         OrderStatus status = ok ? OrderStatus.VALIDATED : OrderStatus.CANCELED;
         order.setOrderStatus(status);
         return status;
@@ -2,16 +2,78 @@ package fr.unice.polytech.paymentProcessing;
 
 import fr.unice.polytech.orderManagement.Order;
 
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class PaymentProcessorFactory {
 
+    // Asynchronous external payments in progress at the same time, beyond which they are refused
+    public static final int DEFAULT_MAX_CONCURRENT_CALLS = 16;
+
     private final IPaymentService externalPaymentService;
+    private final IAsyncPaymentService asyncExternalPaymentService;
+    // Circuit breaker and bulkhead of the calls made by asyncExternalPaymentService
+    private final ResilientPaymentService guard;
+    private final RetryPolicy retryPolicy;
+    private final ScheduledExecutorService scheduler;
 
     public PaymentProcessorFactory() {
         this(new PaymentService());
     }
 
     public PaymentProcessorFactory(IPaymentService externalPaymentService) {
+        this(externalPaymentService,
+                IAsyncPaymentService.fromBlocking(externalPaymentService, DefaultExecutors.CALLS),
+                RetryPolicy.defaultPolicy(),
+                DefaultExecutors.SCHEDULER);
+    }
+
+    public PaymentProcessorFactory(IPaymentService externalPaymentService, IAsyncPaymentService asyncExternalPaymentService,
+                                   RetryPolicy retryPolicy, ScheduledExecutorService scheduler) {
+        this(externalPaymentService, asyncExternalPaymentService, retryPolicy, scheduler,
+                new CircuitBreaker.Builder().build(), new Bulkhead(DEFAULT_MAX_CONCURRENT_CALLS));
+    }
+
+    public PaymentProcessorFactory(IPaymentService externalPaymentService, IAsyncPaymentService asyncExternalPaymentService,
+                                   RetryPolicy retryPolicy, ScheduledExecutorService scheduler,
+                                   CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this(externalPaymentService, null, retryPolicy, scheduler, new ResilientPaymentService(
+                asyncExternalPaymentService, circuitBreaker, bulkhead, retryPolicy.getAttemptTimeout()));
+    }
+
+    // Without asyncExternalPaymentService, the guard makes the calls itself
+    private PaymentProcessorFactory(IPaymentService externalPaymentService, IAsyncPaymentService asyncExternalPaymentService,
+                                    RetryPolicy retryPolicy, ScheduledExecutorService scheduler, ResilientPaymentService guard) {
         this.externalPaymentService = externalPaymentService;
+        this.asyncExternalPaymentService = asyncExternalPaymentService != null ? asyncExternalPaymentService : guard;
+        this.guard = guard;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Factory whose asynchronous external payments are settled in batches: up to maxBatchSize
+     * orders, or whatever arrived within the window, in one call to the batch service.
+     * The circuit breaker and the bulkhead see each batch call once, not each of its orders.
+     */
+    public static PaymentProcessorFactory withBatchSettlement(IBatchPaymentService batchPaymentService,
+                                                              Duration window, int maxBatchSize) {
+        RetryPolicy retryPolicy = RetryPolicy.defaultPolicy();
+        ResilientPaymentService guard = new ResilientPaymentService(
+                IAsyncPaymentService.fromBlocking(batchPaymentService, DefaultExecutors.CALLS),
+                new CircuitBreaker.Builder().build(), new Bulkhead(DEFAULT_MAX_CONCURRENT_CALLS), retryPolicy.getAttemptTimeout());
+        BatchSettlementEngine engine = new BatchSettlementEngine(batchPaymentService, window, maxBatchSize,
+                DefaultExecutors.SCHEDULER, DefaultExecutors.CALLS, guard);
+        return new PaymentProcessorFactory(batchPaymentService, engine, retryPolicy, DefaultExecutors.SCHEDULER, guard);
     }
 
     public IPaymentProcessor createProcessor(Order order, PaymentMethod paymentMethod) {
@@ -20,11 +82,74 @@ public class PaymentProcessorFactory {
         }
         switch (paymentMethod) {
             case EXTERNAL:
-                return new PaymentProcessor(order, externalPaymentService);
+                return new PaymentProcessor(order, guarded(externalPaymentService));
             case INTERNAL:
                 return new InternalPaymentProcessor(order);
             default:
                 throw new IllegalArgumentException("Unsupported payment method: " + paymentMethod);
         }
     }
-}
\ No newline at end of file
+
+    public IAsyncPaymentProcessor createAsyncProcessor(Order order, PaymentMethod paymentMethod) {
+        if (paymentMethod == null) {
+            throw new IllegalArgumentException("Unsupported payment method: null");
+        }
+        switch (paymentMethod) {
+            case EXTERNAL:
+                return new AsyncPaymentProcessor(asyncExternalPaymentService, retryPolicy, scheduler);
+            case INTERNAL:
+                // Debiting the student account does not wait on anything
+                InternalPaymentProcessor internal = new InternalPaymentProcessor(order);
+                return o -> CompletableFuture.completedFuture(internal.processPayment(o));
+            default:
+                throw new IllegalArgumentException("Unsupported payment method: " + paymentMethod);
+        }
+    }
+
+    // Blocking payments go through the same breaker and bulkhead as the asynchronous ones.
+    // A call that is not made counts as a refused payment; provider errors are rethrown as before
+    private IPaymentService guarded(IPaymentService paymentService) {
+        return order -> {
+            try {
+                return guard.call(() -> CompletableFuture.completedFuture(paymentService.processExternalPayment(order))).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof PaymentUnavailableException) {
+                    return false;
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        };
+    }
+
+    //Breaker and bulkhead guarding the external payments, for their metrics.
+    public CircuitBreaker getCircuitBreaker() {
+        return guard.getCircuitBreaker();
+    }
+
+    public Bulkhead getBulkhead() {
+        return guard.getBulkhead();
+    }
+
+    // Shared by the factories that are not given executors: daemon threads, so they never keep the JVM alive.
+    // The calls block on the provider, so their threads are bounded like the bulkhead; past the queue they are refused
+    private static class DefaultExecutors {
+        static final ExecutorService CALLS = boundedPool(DEFAULT_MAX_CONCURRENT_CALLS, DEFAULT_MAX_CONCURRENT_CALLS * 4);
+        static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(daemonThreads("payment-retry-"));
+
+        private static ExecutorService boundedPool(int threads, int queueCapacity) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), daemonThreads("payment-call-"));
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+
+        private static ThreadFactory daemonThreads(String prefix) {
+            AtomicInteger count = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+}
@@ -2,7 +2,10 @@ package fr.unice.polytech.paymentProcessing;
 
 import fr.unice.polytech.orderManagement.Order;
 
-public class PaymentService implements IPaymentService{
+import java.util.ArrayList;
+import java.util.List;
+
+public class PaymentService implements IBatchPaymentService {
     MockedExternalPaymentSystem externalPaymentSystem;
 
     public PaymentService(MockedExternalPaymentSystem externalPaymentSystem, Order order){
@@ -25,6 +28,16 @@ public class PaymentService implements IPaymentService{
         return externalPaymentSystem.mockedCheckingInformation(order);
     }
 
+    @Override
+    public List<Boolean> processExternalPayments(List<Order> orders) {
+        // The mocked provider checks the orders of a batch one by one
+        List<Boolean> results = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            results.add(externalPaymentSystem.mockedCheckingInformation(order));
+        }
+        return results;
+    }
+
 
 
 }
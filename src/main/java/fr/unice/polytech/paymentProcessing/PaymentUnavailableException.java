@@ -0,0 +1,22 @@
+package fr.unice.polytech.paymentProcessing;
+
+/**
+ * The external payment system was not called: its circuit breaker is open, or too many calls are
+ * already in progress (bulkhead full).
+ */
+public class PaymentUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean circuitOpen;
+
+    public PaymentUnavailableException(String message, boolean circuitOpen) {
+        super(message);
+        this.circuitOpen = circuitOpen;
+    }
+
+    //An open circuit stays open for a while: retrying right away is pointless.
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+}
@@ -0,0 +1,91 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Guards the external payment system with a circuit breaker and a bulkhead.
+ *
+ * A refused payment (false) is an answer of a healthy provider; only errors and calls longer
+ * than callTimeout count as failures for the breaker. When the call is not made, the future
+ * fails with a PaymentUnavailableException.
+ *
+ * A bulkhead slot is freed when the call returns, not when it times out: a timed-out call keeps
+ * its thread busy, so the bulkhead bounds the calls actually in progress.
+ */
+public class ResilientPaymentService implements IAsyncPaymentService {
+
+    private final IAsyncPaymentService delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration callTimeout;
+
+    public ResilientPaymentService(IAsyncPaymentService delegate, CircuitBreaker circuitBreaker, Bulkhead bulkhead, Duration callTimeout) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.callTimeout = callTimeout;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> processExternalPaymentAsync(Order order) {
+        return call(() -> delegate.processExternalPaymentAsync(order));
+    }
+
+    //Makes one provider call under the breaker and the bulkhead, e.g. the settlement of a whole batch.
+    public <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> providerCall) {
+        if (!bulkhead.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new PaymentUnavailableException("Too many payments in progress", false));
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(
+                    new PaymentUnavailableException("External payment system unavailable", true));
+        }
+
+        CompletableFuture<T> call;
+        try {
+            call = providerCall.get();
+        } catch (RejectedExecutionException e) {
+            // No thread left to make the call: the provider was not reached
+            bulkhead.release();
+            circuitBreaker.releasePermission();
+            return CompletableFuture.failedFuture(new PaymentUnavailableException("Too many payments in progress", false));
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        // The slot is held until the provider answers, even past the timeout: the call still runs until then
+        CompletableFuture<T> result = new CompletableFuture<>();
+        call.whenComplete((value, failure) -> {
+            bulkhead.release();
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        });
+        // The timeout applies to the call itself, so that a hung call is seen by the breaker
+        return result.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((value, failure) -> {
+                    if (failure == null) {
+                        circuitBreaker.onSuccess();
+                    } else {
+                        circuitBreaker.onFailure();
+                    }
+                });
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+}
@@ -0,0 +1,96 @@
+package fr.unice.polytech.paymentProcessing;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * How the external payment is retried: number of attempts, exponential backoff between them
+ * (initialDelay * multiplier^n, capped at maxDelay) and the timeout of each attempt.
+ * With jitter, each delay is drawn uniformly in [0, delay] ("full jitter") so that payments
+ * that failed together do not all retry at the same instant.
+ */
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final Duration initialDelay;
+    private final double multiplier;
+    private final Duration maxDelay;
+    private final boolean jitter;
+    private final Duration attemptTimeout;
+
+    private RetryPolicy(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialDelay = builder.initialDelay;
+        this.multiplier = builder.multiplier;
+        this.maxDelay = builder.maxDelay;
+        this.jitter = builder.jitter;
+        this.attemptTimeout = builder.attemptTimeout;
+    }
+
+    //Same number of attempts as the synchronous PaymentProcessor.
+    public static RetryPolicy defaultPolicy() {
+        return new Builder().build();
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getAttemptTimeout() {
+        return attemptTimeout;
+    }
+
+    //Delay before the given retry (1 for the first retry).
+    public long delayMillis(int retry) {
+        double delay = initialDelay.toMillis() * Math.pow(multiplier, retry - 1);
+        long capped = (long) Math.min(delay, maxDelay.toMillis());
+        if (!jitter || capped == 0) {
+            return capped;
+        }
+        return ThreadLocalRandom.current().nextLong(capped + 1);
+    }
+
+    public static class Builder {
+        private int maxAttempts = 3;
+        private Duration initialDelay = Duration.ofMillis(100);
+        private double multiplier = 2.0;
+        private Duration maxDelay = Duration.ofSeconds(2);
+        private boolean jitter = true;
+        private Duration attemptTimeout = Duration.ofSeconds(2);
+
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts <= 0) {
+                throw new IllegalArgumentException("At least one attempt is required");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        public Builder backoff(Duration initialDelay, double multiplier, Duration maxDelay) {
+            if (initialDelay.isNegative() || multiplier < 1 || maxDelay.compareTo(initialDelay) < 0) {
+                throw new IllegalArgumentException("Invalid backoff: " + initialDelay + " x" + multiplier + " up to " + maxDelay);
+            }
+            this.initialDelay = initialDelay;
+            this.multiplier = multiplier;
+            this.maxDelay = maxDelay;
+            return this;
+        }
+
+        public Builder jitter(boolean jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        public Builder attemptTimeout(Duration attemptTimeout) {
+            if (attemptTimeout.isNegative() || attemptTimeout.isZero()) {
+                throw new IllegalArgumentException("Attempt timeout must be positive");
+            }
+            this.attemptTimeout = attemptTimeout;
+            return this;
+        }
+
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+}
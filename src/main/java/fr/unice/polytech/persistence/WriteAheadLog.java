@@ -0,0 +1,459 @@
+package fr.unice.polytech.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of opaque records, split into numbered segment files (segment-0000000001.wal, ...).
+ *
+ * Each record is framed as [length][CRC32][payload]. Appends are queued and written by a single
+ * thread, which writes everything queued at once and then syncs to disk according to the fsync
+ * policy (group commit): the caller only pays for the enqueue. When the active segment is full,
+ * the next one is started. On opening, the records are replayed in order; a torn record at the end
+ * of the last segment (crash in the middle of a write) is cut off. A file system may leave zeros
+ * after the last write instead: records are never empty, so a zero length is a torn tail too.
+ *
+ * compact() replaces every sealed segment by a snapshot of the current state, provided by the owner
+ * of the log: the log only grows with the activity since the last compaction.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+    public enum FsyncPolicy {
+        NEVER,    // the OS writes the pages when it wants: fastest, a power loss can lose recent records
+        INTERVAL, // at most fsyncInterval of records can be lost
+        ALWAYS    // an append completes once on disk
+    }
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.wal");
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 1024;
+
+    // A record waiting for the writer, or a marker (no payload) asking it to sync or to stop
+    private static final class Pending {
+        final byte[] payload;
+        final boolean last;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(byte[] payload, boolean last) {
+            this.payload = payload;
+            this.last = last;
+        }
+    }
+
+    private final Path directory;
+    private final long segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ReentrantLock channelLock = new ReentrantLock();
+    private final Thread writer;
+
+    // Guarded by channelLock
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+    private FileChannel active;
+    private long activeIndex;
+    private long activeSize;
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(64 * 1024);
+    private boolean dirty;
+    private long lastFsync = System.nanoTime();
+
+    private volatile int segmentCount;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private WriteAheadLog(Builder builder) {
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.fsyncPolicy = builder.fsyncPolicy;
+        this.fsyncIntervalNanos = builder.fsyncInterval.toNanos();
+        this.writer = new Thread(this::writeLoop, "wal-writer-" + directory.getFileName());
+        this.writer.setDaemon(true);
+    }
+
+    //Queues a non-empty record. The future completes when it is written (on disk with the ALWAYS policy).
+    public CompletableFuture<Void> append(byte[] payload) {
+        requireRecord(payload);
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        IOException error = failure;
+        if (error != null) {
+            return CompletableFuture.failedFuture(error);
+        }
+        Pending pending = new Pending(payload, false);
+        queue.offer(pending);
+        return pending.done;
+    }
+
+    //Waits until every record appended before is written and synced to disk, whatever the policy.
+    public void flush() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        Pending marker = new Pending(null, false);
+        queue.offer(marker);
+        try {
+            marker.done.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Seals the active segment, then replaces all the sealed segments by one holding the records of
+     * the snapshot. The snapshot is taken after the seal, so every record it replaces is reflected
+     * in it; records appended meanwhile go to the new segment and are replayed after it, which
+     * requires records that set a state rather than change it.
+     */
+    public synchronized void compact(Supplier<? extends Iterable<byte[]>> snapshot) throws IOException {
+        long sealed;
+        channelLock.lock();
+        try {
+            roll();
+            sealed = activeIndex - 1;
+        } finally {
+            channelLock.unlock();
+        }
+
+        Path target = segmentPath(sealed);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (byte[] record : snapshot.get()) {
+                requireRecord(record);
+                writeFully(channel, frame(record));
+            }
+            channel.force(true);
+        }
+        // Crash before the move: the old segments are still there. After it: older segments are
+        // replayed before the snapshot, which overrides them.
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        List<Path> obsolete = new ArrayList<>();
+        channelLock.lock();
+        try {
+            segments.put(sealed, target);
+            while (segments.firstKey() < sealed) {
+                obsolete.add(segments.pollFirstEntry().getValue());
+            }
+            segmentCount = segments.size();
+        } finally {
+            channelLock.unlock();
+        }
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    //Writes what is queued, syncs it and stops the writer.
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Not interrupted: an interrupt during a write would close the channel
+        queue.offer(new Pending(null, true));
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Appended while closing, after the writer stopped
+        for (Pending pending = queue.poll(); pending != null; pending = queue.poll()) {
+            pending.done.completeExceptionally(new IllegalStateException("Write-ahead log is closed"));
+        }
+        channelLock.lock();
+        try {
+            if (active != null) {
+                active.force(true);
+                active.close();
+            }
+        } finally {
+            channelLock.unlock();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // ========== WRITER ==========
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Pending first = queue.poll(pollTimeoutNanos(), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopping = true;
+            }
+            for (Pending pending : batch) {
+                stopping |= pending.last;
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private long pollTimeoutNanos() {
+        return fsyncPolicy == FsyncPolicy.INTERVAL ? fsyncIntervalNanos : TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        channelLock.lock();
+        try {
+            if (failure == null) {
+                boolean syncRequested = false;
+                for (Pending pending : batch) {
+                    if (pending.payload == null) {
+                        syncRequested = true;
+                        continue;
+                    }
+                    if (activeSize > 0 && activeSize + HEADER_BYTES + pending.payload.length > segmentSize) {
+                        flushBuffer();
+                        roll();
+                    }
+                    bufferRecord(pending.payload);
+                }
+                flushBuffer();
+                if (syncRequested && dirty) {
+                    active.force(false);
+                    dirty = false;
+                    lastFsync = System.nanoTime();
+                }
+                syncIfDue(!batch.isEmpty() && fsyncPolicy == FsyncPolicy.ALWAYS);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            channelLock.unlock();
+        }
+        for (Pending pending : batch) {
+            if (failure != null) {
+                pending.done.completeExceptionally(failure);
+            } else {
+                pending.done.complete(null);
+            }
+        }
+    }
+
+    private void bufferRecord(byte[] payload) throws IOException {
+        int needed = HEADER_BYTES + payload.length;
+        if (batchBuffer.remaining() < needed) {
+            flushBuffer();
+            if (batchBuffer.capacity() < needed) {
+                batchBuffer = ByteBuffer.allocateDirect(needed);
+            }
+        }
+        putRecord(batchBuffer, payload);
+        activeSize += needed;
+    }
+
+    private void flushBuffer() throws IOException {
+        batchBuffer.flip();
+        if (batchBuffer.hasRemaining()) {
+            writeFully(active, batchBuffer);
+            dirty = true;
+        }
+        batchBuffer.clear();
+    }
+
+    private void syncIfDue(boolean force) throws IOException {
+        if (!dirty || fsyncPolicy == FsyncPolicy.NEVER) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (force || now - lastFsync >= fsyncIntervalNanos) {
+            active.force(false);
+            dirty = false;
+            lastFsync = now;
+        }
+    }
+
+    // Seals the active segment (synced whatever the policy) and starts the next one
+    private void roll() throws IOException {
+        if (active != null) {
+            active.force(false);
+            active.close();
+        }
+        dirty = false;
+        openSegment(activeIndex + 1);
+    }
+
+    private void openSegment(long index) throws IOException {
+        Path path = segmentPath(index);
+        active = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        activeSize = active.size();
+        active.position(activeSize);
+        activeIndex = index;
+        segments.put(index, path);
+        segmentCount = segments.size();
+    }
+
+    // ========== RECOVERY ==========
+
+    // Replays every segment, cuts a torn tail off the last one, then opens it for appending
+    private void recover(Consumer<ByteBuffer> replay) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (matcher.matches()) {
+                    segments.put(Long.parseLong(matcher.group(1)), file);
+                } else if (name.endsWith(".wal.tmp")) {
+                    Files.delete(file); // compaction interrupted before its move
+                }
+            }
+        }
+        for (var segment : segments.entrySet()) {
+            boolean last = segment.getKey().equals(segments.lastKey());
+            long valid = replaySegment(segment.getValue(), replay);
+            long size = Files.size(segment.getValue());
+            if (valid < size) {
+                if (!last) {
+                    throw new IOException("Corrupted record in " + segment.getValue() + " at offset " + valid);
+                }
+                try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        }
+        openSegment(segments.isEmpty() ? 1 : segments.lastKey());
+    }
+
+    // Returns the offset after the last valid record
+    private static long replaySegment(Path path, Consumer<ByteBuffer> replay) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            while (content.remaining() >= HEADER_BYTES) {
+                int start = content.position();
+                int length = content.getInt();
+                int checksum = content.getInt();
+                if (length <= 0 || length > content.remaining()) {
+                    return start;
+                }
+                ByteBuffer payload = content.slice(content.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return start;
+                }
+                replay.accept(payload.asReadOnlyBuffer());
+                content.position(content.position() + length);
+            }
+            return content.position();
+        }
+    }
+
+    // ========== FORMAT ==========
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("segment-%010d.wal", index));
+    }
+
+    private static void requireRecord(byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            throw new IllegalArgumentException("Record cannot be empty");
+        }
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        putRecord(buffer, payload);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static class Builder {
+        private final Path directory;
+        private long segmentSize = 16 * 1024 * 1024;
+        private FsyncPolicy fsyncPolicy = FsyncPolicy.INTERVAL;
+        private Duration fsyncInterval = Duration.ofMillis(100);
+
+        public Builder(Path directory) {
+            if (directory == null) {
+                throw new IllegalArgumentException("Directory cannot be null");
+            }
+            this.directory = directory;
+        }
+
+        public Builder segmentSize(long segmentSize) {
+            if (segmentSize <= HEADER_BYTES) {
+                throw new IllegalArgumentException("Segment size too small: " + segmentSize);
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = fsyncPolicy;
+            return this;
+        }
+
+        public Builder fsyncInterval(Duration fsyncInterval) {
+            if (fsyncInterval.isNegative() || fsyncInterval.isZero()) {
+                throw new IllegalArgumentException("Fsync interval must be positive");
+            }
+            this.fsyncInterval = fsyncInterval;
+            return this;
+        }
+
+        //Replays the existing records (each one a read-only buffer), then starts accepting appends.
+        public WriteAheadLog open(Consumer<ByteBuffer> replay) throws IOException {
+            WriteAheadLog log = new WriteAheadLog(this);
+            log.recover(replay);
+            log.writer.start();
+            return log;
+        }
+    }
+}
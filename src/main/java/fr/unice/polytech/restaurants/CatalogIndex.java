@@ -0,0 +1,82 @@
+package fr.unice.polytech.restaurants;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index of the restaurants of a RestaurantManager, used to answer CatalogQuery searches.
+ *
+ * For each cuisine type, dish type and dish category there is a bitset whose bit n is set when the
+ * restaurant with ID n matches. A search is an intersection of a few bitsets instead of a scan of
+ * every dish of every restaurant. When a restaurant changes, only its own bits are recomputed.
+ */
+class CatalogIndex {
+
+    private final Map<DishType, BitSet> restaurantsByCuisine = new EnumMap<>(DishType.class);
+    private final Map<DishType, BitSet> restaurantsByDishType = new EnumMap<>(DishType.class);
+    private final Map<DishCategory, BitSet> restaurantsByDishCategory = new EnumMap<>(DishCategory.class);
+    private final BitSet allRestaurants = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    CatalogIndex() {
+        for (DishType type : DishType.values()) {
+            restaurantsByCuisine.put(type, new BitSet());
+            restaurantsByDishType.put(type, new BitSet());
+        }
+        for (DishCategory category : DishCategory.values()) {
+            restaurantsByDishCategory.put(category, new BitSet());
+        }
+    }
+
+    //Recomputes the bits of one restaurant from its current cuisine type and menu.
+    void update(Restaurant restaurant) {
+        int id = (int) restaurant.getId();
+        Map<DishType, Boolean> dishTypes = new EnumMap<>(DishType.class);
+        Map<DishCategory, Boolean> dishCategories = new EnumMap<>(DishCategory.class);
+        for (Dish dish : restaurant.getDishes()) {
+            if (dish.getCuisineType() != null) {
+                dishTypes.put(dish.getCuisineType(), true);
+            }
+            if (dish.getCategory() != null) {
+                dishCategories.put(dish.getCategory(), true);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            allRestaurants.set(id);
+            restaurantsByCuisine.forEach((type, restaurants) -> restaurants.set(id, type == restaurant.getCuisineType()));
+            restaurantsByDishType.forEach((type, restaurants) -> restaurants.set(id, dishTypes.containsKey(type)));
+            restaurantsByDishCategory.forEach((category, restaurants) -> restaurants.set(id, dishCategories.containsKey(category)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //IDs of the restaurants matching every criterion of the query.
+    BitSet search(CatalogQuery query) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allRestaurants.clone();
+            if (query.getCuisineType() != null) {
+                result.and(restaurantsByCuisine.get(query.getCuisineType()));
+            }
+            for (DishType type : query.getDishTypes()) {
+                result.and(restaurantsByDishType.get(type));
+            }
+            for (DishCategory category : query.getDishCategories()) {
+                result.and(restaurantsByDishCategory.get(category));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
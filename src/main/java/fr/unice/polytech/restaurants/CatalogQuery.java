@@ -0,0 +1,52 @@
+package fr.unice.polytech.restaurants;
+
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Criteria to search restaurants in a RestaurantManager. Every criterion is optional and they are combined with AND:
+ * a restaurant matches if it has the given cuisine type, at least one dish of each given dish type
+ * and at least one dish of each given category.
+ */
+public class CatalogQuery {
+
+    private DishType cuisineType;
+    private final Set<DishType> dishTypes = EnumSet.noneOf(DishType.class);
+    private final Set<DishCategory> dishCategories = EnumSet.noneOf(DishCategory.class);
+
+    public CatalogQuery cuisineType(DishType cuisineType) {
+        this.cuisineType = cuisineType;
+        return this;
+    }
+
+    public CatalogQuery withDishType(DishType dishType) {
+        if (dishType == null) {
+            throw new IllegalArgumentException("Dish type cannot be null");
+        }
+        dishTypes.add(dishType);
+        return this;
+    }
+
+    public CatalogQuery withDishCategory(DishCategory dishCategory) {
+        if (dishCategory == null) {
+            throw new IllegalArgumentException("Dish category cannot be null");
+        }
+        dishCategories.add(dishCategory);
+        return this;
+    }
+
+    public DishType getCuisineType() {
+        return cuisineType;
+    }
+
+    public Set<DishType> getDishTypes() {
+        return dishTypes;
+    }
+
+    public Set<DishCategory> getDishCategories() {
+        return dishCategories;
+    }
+}
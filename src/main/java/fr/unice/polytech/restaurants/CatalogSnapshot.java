@@ -0,0 +1,268 @@
+package fr.unice.polytech.restaurants;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import fr.unice.polytech.dishes.Topping;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the restaurants of a RestaurantManager: menus with their toppings, opening hours
+ * and the configured and remaining capacity of every time slot, each restaurant under its ID.
+ *
+ * Layout: a header [magic][version][restaurant count][body length][CRC32 of the body], then the
+ * restaurants one after the other. Strings are [UTF-8 length][bytes] (-1 for null), enums their ordinal
+ * (-1 for null), times their nanosecond of the day. The file is replaced atomically, so a reader sees
+ * the previous snapshot or the new one, never half of it, and is read back through a memory mapping.
+ */
+public final class CatalogSnapshot {
+
+    private static final int MAGIC = 0x52534E50; // "RSNP"
+    private static final int VERSION = 2; // 2: configured capacity of the slots
+    private static final int HEADER_BYTES = 24;
+
+    private CatalogSnapshot() {
+    }
+
+    //Writes the restaurants of the manager to file. Only copies of their state are read, nothing is locked.
+    public static void write(RestaurantManager manager, Path file) throws IOException {
+        List<Restaurant> restaurants = manager.getAllRestaurants();
+        restaurants.sort(Comparator.comparingLong(Restaurant::getId));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256 * restaurants.size() + 64);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            for (Restaurant restaurant : restaurants) {
+                writeRestaurant(out, restaurant);
+            }
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(restaurants.size())
+                .putLong(bytes.length)
+                .putInt((int) crc.getValue())
+                .flip();
+
+        Path absolute = file.toAbsolutePath();
+        if (absolute.getParent() != null) {
+            Files.createDirectories(absolute.getParent());
+        }
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.wrap(bytes);
+            while (header.hasRemaining() || content.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, content});
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, absolute, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Adds the restaurants of the snapshot to an empty manager, under the IDs they had.
+     * @return the number of restaurants loaded
+     * @throws IOException if the file cannot be read, is not a snapshot or is corrupted
+     */
+    public static int load(Path file, RestaurantManager manager) throws IOException {
+        if (!manager.getAllRestaurants().isEmpty()) {
+            throw new IllegalArgumentException("A snapshot can only be loaded into an empty RestaurantManager");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a catalog snapshot: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a catalog snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported catalog snapshot version " + version + ": " + file);
+            }
+            int count = buffer.getInt();
+            long length = buffer.getLong();
+            int expectedCrc = buffer.getInt();
+            if (length != channel.size() - HEADER_BYTES) {
+                throw new IOException("Truncated catalog snapshot: " + file);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IOException("Corrupted catalog snapshot: " + file);
+            }
+
+            List<Restaurant> restaurants = new ArrayList<>(count);
+            long[] ids = new long[count];
+            try {
+                for (int i = 0; i < count; i++) {
+                    ids[i] = buffer.getLong();
+                    restaurants.add(readRestaurant(buffer));
+                }
+            } catch (RuntimeException e) {
+                // CRC is right but the content is not: written by an incompatible build
+                throw new IOException("Unreadable catalog snapshot: " + file, e);
+            }
+            // Only registered once everything is read, so a bad file leaves the manager empty
+            for (int i = 0; i < count; i++) {
+                manager.restoreRestaurant(restaurants.get(i), ids[i]);
+            }
+            return count;
+        }
+    }
+
+    // ========== WRITING ==========
+
+    private static void writeRestaurant(DataOutputStream out, Restaurant restaurant) throws IOException {
+        out.writeLong(restaurant.getId());
+        writeString(out, restaurant.getRestaurantName());
+        writeEnum(out, restaurant.getCuisineType());
+
+        List<OpeningHours> openingHours = new ArrayList<>(restaurant.getOpeningHours());
+        out.writeInt(openingHours.size());
+        for (OpeningHours hours : openingHours) {
+            writeEnum(out, hours.getDay());
+            writeTime(out, hours.getOpeningTime());
+            writeTime(out, hours.getClosingTime());
+        }
+
+        List<Dish> dishes = restaurant.getDishes();
+        out.writeInt(dishes.size());
+        for (Dish dish : dishes) {
+            writeString(out, dish.getName());
+            writeString(out, dish.getDescription());
+            out.writeDouble(dish.getPrice());
+            writeEnum(out, dish.getCuisineType());
+            writeEnum(out, dish.getCategory());
+            List<Topping> toppings = dish.getToppings();
+            out.writeInt(toppings == null ? -1 : toppings.size());
+            if (toppings != null) {
+                for (Topping topping : toppings) {
+                    writeString(out, topping.getName());
+                    out.writeDouble(topping.getPrice());
+                }
+            }
+        }
+
+        Map<TimeSlot, Integer> capacities = restaurant.getAllCapacities();
+        out.writeInt(capacities.size());
+        for (Map.Entry<TimeSlot, Integer> entry : capacities.entrySet()) {
+            TimeSlot slot = entry.getKey();
+            writeEnum(out, slot.getDayOfWeek());
+            writeTime(out, slot.getStartTime());
+            writeTime(out, slot.getEndTime());
+            // Remaining never above configured, even if an order took a place since getAllCapacities
+            int configured = restaurant.getConfiguredCapacity(slot);
+            out.writeInt(configured);
+            out.writeInt(Math.min(entry.getValue(), configured));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    private static void writeTime(DataOutputStream out, LocalTime time) throws IOException {
+        out.writeLong(time == null ? -1 : time.toNanoOfDay());
+    }
+
+    // ========== READING ==========
+
+    private static Restaurant readRestaurant(ByteBuffer in) {
+        String name = readString(in);
+        DishType cuisineType = readEnum(in, DishType.values());
+
+        int openingHoursCount = in.getInt();
+        List<OpeningHours> openingHours = new ArrayList<>(openingHoursCount);
+        for (int i = 0; i < openingHoursCount; i++) {
+            openingHours.add(new OpeningHours(readEnum(in, DayOfWeek.values()), readTime(in), readTime(in)));
+        }
+
+        int dishCount = in.getInt();
+        List<Dish> dishes = new ArrayList<>(dishCount);
+        for (int i = 0; i < dishCount; i++) {
+            String dishName = readString(in);
+            String description = readString(in);
+            double price = in.getDouble();
+            DishType dishType = readEnum(in, DishType.values());
+            DishCategory category = readEnum(in, DishCategory.values());
+            int toppingCount = in.getInt();
+            // Same constructor as the original dish, which decides whether it has a topping list
+            Dish dish = toppingCount < 0 ? new Dish(dishName, price, description) : new Dish(dishName, description, price);
+            dish.setCuisineType(dishType);
+            dish.setCategory(category);
+            for (int t = 0; t < toppingCount; t++) {
+                dish.addTopping(new Topping(readString(in), in.getDouble()));
+            }
+            dishes.add(dish);
+        }
+
+        Restaurant restaurant = new Restaurant.Builder(name)
+                .withCuisineType(cuisineType)
+                .withDishes(dishes)
+                .withOpeningHours(openingHours)
+                .build();
+
+        int slotCount = in.getInt();
+        for (int i = 0; i < slotCount; i++) {
+            DayOfWeek day = readEnum(in, DayOfWeek.values());
+            LocalTime start = readTime(in);
+            LocalTime end = readTime(in);
+            TimeSlot slot = day == null ? new TimeSlot(start, end) : new TimeSlot(day, start, end);
+            int capacity = in.getInt();
+            restaurant.restoreCapacity(slot, capacity, in.getInt());
+        }
+        return restaurant;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static <E extends Enum<E>> E readEnum(ByteBuffer in, E[] values) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : values[ordinal];
+    }
+
+    private static LocalTime readTime(ByteBuffer in) {
+        long nanos = in.getLong();
+        return nanos < 0 ? null : LocalTime.ofNanoOfDay(nanos);
+    }
+}
@@ -0,0 +1,119 @@
+package fr.unice.polytech.restaurants;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a CatalogSnapshot of a RestaurantManager periodically, on its own thread.
+ *
+ * A snapshot is only written when something changed since the last one: the catalog version of the
+ * manager, or the catalog or capacity version of one of its restaurants (all drawn from one increasing
+ * sequence, so their maximum moves with any change). Requests are never blocked: the snapshot is built
+ * from copies, and a copy that races with a change is simply taken again at the next period.
+ */
+public class CatalogSnapshotter implements AutoCloseable {
+
+    private final RestaurantManager manager;
+    private final Path file;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-snapshotter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Versions of the last snapshot written. Guarded by this
+    private long writtenCatalogVersion = -1;
+    private long writtenRestaurantStamp = -1;
+
+    public CatalogSnapshotter(RestaurantManager manager, Path file) {
+        if (manager == null) {
+            throw new IllegalArgumentException("RestaurantManager cannot be null");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("Snapshot file cannot be null");
+        }
+        this.manager = manager;
+        this.file = file;
+    }
+
+    //Starts writing a snapshot every interval.
+    public void start(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Snapshot interval must be positive");
+        }
+        long period = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads the snapshot file into the (empty) manager, if the file exists.
+     * @return the number of restaurants loaded, 0 without a file
+     */
+    public synchronized int load() throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int count = CatalogSnapshot.load(file, manager);
+        // Nothing to write until something changes
+        writtenCatalogVersion = manager.getCatalogVersion();
+        writtenRestaurantStamp = restaurantStamp();
+        return count;
+    }
+
+    /**
+     * Writes a snapshot now if something changed since the last one.
+     * @return true if a snapshot was written
+     */
+    public synchronized boolean snapshot() throws IOException {
+        // Read before the copy: a change made during the copy leaves the versions stale, so it is written next time
+        long catalogVersion = manager.getCatalogVersion();
+        long stamp = restaurantStamp();
+        if (catalogVersion == writtenCatalogVersion && stamp == writtenRestaurantStamp) {
+            return false;
+        }
+        CatalogSnapshot.write(manager, file);
+        writtenCatalogVersion = catalogVersion;
+        writtenRestaurantStamp = stamp;
+        return true;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    //Stops the periodic snapshots and writes the last changes.
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        snapshot();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (ConcurrentModificationException e) {
+            // A menu changed while it was copied: retried at the next period
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to write the catalog snapshot " + file + ": " + e);
+        }
+    }
+
+    private long restaurantStamp() {
+        long stamp = 0;
+        for (Restaurant restaurant : manager.getAllRestaurants()) {
+            stamp = Math.max(stamp, Math.max(restaurant.getCatalogVersion(), restaurant.getCapacityVersion()));
+        }
+        return stamp;
+    }
+}
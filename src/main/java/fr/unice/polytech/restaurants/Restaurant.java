@@ -9,21 +9,31 @@ import fr.unice.polytech.orderManagement.Order;
 import fr.unice.polytech.users.UserAccount;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 public class Restaurant extends UserAccount {
+    private long id;
     private String restaurantName;
     private List<Dish> dishes;
-    private List<Order> orders;
+    // Registered from the payment threads: guarded by itself, handed out as snapshots
+    private final List<Order> orders;
    //Simple initialisation 
     private List<OpeningHours> openingHours;
-    private Map<TimeSlot, Integer> capacityByTimeSlot;
+    private final SlotCapacities capacityByTimeSlot = new SlotCapacities();
     private EstablishmentType establishmentType;
     private DishType cuisineType;
     private final DishManager dishManager = new DishManager();
+    private final List<RestaurantListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Version stamps are drawn from a single sequence, so two restaurants (or a restaurant and its
+    // replacement) never share one: a stamp identifies one state of one restaurant.
+    private static final AtomicLong VERSION_STAMPS = new AtomicLong();
+    private volatile long catalogVersion = VERSION_STAMPS.incrementAndGet();
+    private volatile long capacityVersion = VERSION_STAMPS.incrementAndGet();
 
 
 
@@ -36,7 +46,6 @@ public class Restaurant extends UserAccount {
         this.restaurantName = restaurantName;
         this.dishes = new ArrayList<>();
         orders = new ArrayList<>();
-        this.capacityByTimeSlot = new HashMap<>();
         this.openingHours = new ArrayList<>();
     }
     
@@ -47,7 +56,6 @@ public class Restaurant extends UserAccount {
         this.restaurantName = builder.restaurantName;
         this.dishes = new ArrayList<>(builder.dishes);
         orders = new ArrayList<>();
-        this.capacityByTimeSlot = new HashMap<>();
         this.cuisineType = builder.cuisineType;
         this.openingHours = new ArrayList<>(builder.openingHours);
     }
@@ -55,6 +63,15 @@ public class Restaurant extends UserAccount {
 
 
     
+    //Generated by the RestaurantManager on registration, 0 while the restaurant is not registered.
+    public long getId() {
+        return id;
+    }
+
+    void setId(long id) {
+        this.id = id;
+    }
+
     public String getRestaurantName() {
         return restaurantName;
     }
@@ -66,14 +83,24 @@ public class Restaurant extends UserAccount {
     }
     
    
-    public List<TimeSlot> getAvailableTimeSlots() {
-        List<TimeSlot> availableSlots = new ArrayList<>();
-        for (Map.Entry<TimeSlot, Integer> entry : capacityByTimeSlot.entrySet()) {
-            if (entry.getValue() > 0) {
-                availableSlots.add(entry.getKey());
+    //Size and cheapest price of the menu, without copying it.
+    public int getDishCount() {
+        return dishes.size();
+    }
+
+    //Returns Double.NaN when the menu is empty.
+    public double getMinDishPrice() {
+        double min = Double.NaN;
+        for (Dish dish : dishes) {
+            if (Double.isNaN(min) || dish.getPrice() < min) {
+                min = dish.getPrice();
             }
         }
-        return availableSlots;
+        return min;
+    }
+   
+    public List<TimeSlot> getAvailableTimeSlots() {
+        return capacityByTimeSlot.availableSlots();
     }
     
    
@@ -83,15 +110,30 @@ public class Restaurant extends UserAccount {
             throw new IllegalArgumentException("Restaurant name cannot be null or empty");
         }
         this.restaurantName = restaurantName;
+        fireCatalogChanged();
     }
 
 
      //======BLOCK A TIME SLOTS MANAGEMENT METHODS===========
-    public void blockTimeSlot(TimeSlot slot){
+    //Returns false when the slot is full or unknown.
+    public boolean blockTimeSlot(TimeSlot slot){
         if(slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
-        decreaseCapacity(slot);
+        return decreaseCapacity(slot);
+    }
+
+    //Gives back a place taken by blockTimeSlot, e.g. when the order is canceled.
+    //Returns false when the slot is unknown or already has all its configured places free.
+    public boolean releaseTimeSlot(TimeSlot slot){
+        if(slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
+        if (!capacityByTimeSlot.release(slot)) {
+            return false;
+        }
+        capacityVersion = VERSION_STAMPS.incrementAndGet();
+        fireCapacityChanged(slot, capacityByTimeSlot.get(slot));
+        return true;
     }
 
+    //Opens one more place in the slot (restaurant manager action), see increaseCapacity.
     public void unblockTimeSlot(TimeSlot slot){
         if(slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
         increaseCapacity(slot);
@@ -103,7 +145,9 @@ public class Restaurant extends UserAccount {
     public void setCapacity(TimeSlot slot, int capacity) {
         if (slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
         if (capacity < 0) throw new IllegalArgumentException("Capacity cannot be negative");
-        capacityByTimeSlot.put(slot, capacity);
+        capacityByTimeSlot.set(slot, capacity);
+        capacityVersion = VERSION_STAMPS.incrementAndGet();
+        fireCapacityChanged(slot, capacity);
     }
 
     public void setOpeningHours(List<OpeningHours> openingHours) {
@@ -111,6 +155,7 @@ public class Restaurant extends UserAccount {
             throw new IllegalArgumentException("Opening hours list cannot be null.");
         }
         this.openingHours = new ArrayList<>(openingHours);
+        fireCatalogChanged();
     }
 
     public void addOpeningHours(OpeningHours newOpeningHours) {
@@ -125,6 +170,7 @@ public class Restaurant extends UserAccount {
             }
         }
         this.openingHours.add(newOpeningHours);
+        fireCatalogChanged();
     }
 
     public void updateOpeningHours(OpeningHours updatedOpeningHours) {
@@ -145,32 +191,60 @@ public class Restaurant extends UserAccount {
 
         this.openingHours.removeIf(oh -> oh.getDay() == updatedOpeningHours.getDay());
         this.openingHours.add(updatedOpeningHours);
+        fireCatalogChanged();
     }
 
 
 
     public int getCapacity(TimeSlot slot) {
-        return capacityByTimeSlot.getOrDefault(slot, 0);
+        return capacityByTimeSlot.get(slot);
+    }
+
+    //Capacity the slot was set to, whatever the places taken since.
+    public int getConfiguredCapacity(TimeSlot slot) {
+        return capacityByTimeSlot.getConfigured(slot);
+    }
+
+    //Sets the capacity of a slot with some places already taken, e.g. when read back from a snapshot.
+    void restoreCapacity(TimeSlot slot, int capacity, int remaining) {
+        if (slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
+        capacityByTimeSlot.restore(slot, capacity, remaining);
+        capacityVersion = VERSION_STAMPS.incrementAndGet();
+        fireCapacityChanged(slot, remaining);
     }
 
     public Map<TimeSlot, Integer> getAllCapacities() {
-        return new HashMap<>(capacityByTimeSlot);
+        return capacityByTimeSlot.snapshot();
     }
 
-    public void decreaseCapacity(TimeSlot slot) {
+    //Atomically takes one place in the slot, never going below zero. Returns false when the slot is full or unknown.
+    public boolean decreaseCapacity(TimeSlot slot) {
         if (slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
-        if (!capacityByTimeSlot.containsKey(slot)) return;
-        int capacity= capacityByTimeSlot.get(slot);
-        if (capacity > 0) { // Prevent negative capacity
-            capacityByTimeSlot.put(slot, capacity - 1);
-        } else {
-            System.out.println(" No capacity left for slot " + slot);
+        if (!capacityByTimeSlot.reserve(slot)) {
+            return false;
         }
+        capacityVersion = VERSION_STAMPS.incrementAndGet();
+        fireCapacityChanged(slot, capacityByTimeSlot.get(slot));
+        return true;
     }
 
+    //Raises the configured capacity of the slot by one place, creating the slot if needed.
+    //To give back a place taken by an order, use releaseTimeSlot, which never exceeds the configured capacity.
     public void increaseCapacity(TimeSlot slot) {
         if (slot == null) throw new IllegalArgumentException("TimeSlot cannot be null");
-        capacityByTimeSlot.put(slot, capacityByTimeSlot.getOrDefault(slot, 0) + 1);
+        int capacity = capacityByTimeSlot.increase(slot);
+        capacityVersion = VERSION_STAMPS.incrementAndGet();
+        fireCapacityChanged(slot, capacity);
+    }
+
+    //Changes whenever the menu, name or opening hours of this restaurant change.
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    //Changes whenever the capacity of one of the time slots of this restaurant changes.
+    public long getCapacityVersion() {
+        return capacityVersion;
     }
 
 
@@ -189,6 +263,7 @@ public class Restaurant extends UserAccount {
         }
         Dish dish = dishManager.createDish(name, description, price);
         dishes.add(dish);
+        fireCatalogChanged();
     }
 
     public void updateDish(Dish oldDish, String description) {
@@ -200,6 +275,7 @@ public class Restaurant extends UserAccount {
         }
 
         dishManager.updateDescription(oldDish,description);
+        fireCatalogChanged();
     }
 
 
@@ -212,6 +288,7 @@ public class Restaurant extends UserAccount {
         }
 
         dishManager.updatePrice(oldDish,price);
+        fireCatalogChanged();
     }
 
 
@@ -224,6 +301,7 @@ public class Restaurant extends UserAccount {
         }
 
         dishManager.updateDishCategory(oldDish,dishCategory);
+        fireCatalogChanged();
     }
 
     public void updateDish(Dish oldDish, DishType dishType) {
@@ -235,13 +313,43 @@ public class Restaurant extends UserAccount {
         }
 
         dishManager.updateDishType(oldDish,dishType);
+        fireCatalogChanged();
+    }
+
+
+
+
+    // ========== CHANGE NOTIFICATIONS ==========
+
+    public void addListener(RestaurantListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    public void removeListener(RestaurantListener listener) {
+        listeners.remove(listener);
     }
 
+    private void fireCatalogChanged() {
+        catalogVersion = VERSION_STAMPS.incrementAndGet();
+        for (RestaurantListener listener : listeners) {
+            listener.catalogChanged(this);
+        }
+    }
 
+    private void fireCapacityChanged(TimeSlot slot, int capacity) {
+        for (RestaurantListener listener : listeners) {
+            listener.capacityChanged(this, slot, capacity);
+        }
+    }
 
 
     public void addOrder(Order order) {
-        orders.add(order);
+        synchronized (orders) {
+            orders.add(order);
+        }
     }
     
     
@@ -288,7 +396,9 @@ public class Restaurant extends UserAccount {
         if (dishName == null || dishName.isEmpty()) {
             throw new IllegalArgumentException("Dish name cannot be null or empty");
         }
-        dishes.removeIf(dish -> dish.getName().equals(dishName));
+        if (dishes.removeIf(dish -> dish.getName().equals(dishName))) {
+            fireCatalogChanged();
+        }
     }
 
     /**
@@ -307,8 +417,11 @@ public class Restaurant extends UserAccount {
                 .orElse(null);
     }
 
+    //Snapshot of the orders registered so far.
     public List<Order> getOrders() {
-        return orders;
+        synchronized (orders) {
+            return new ArrayList<>(orders);
+        }
     }
 
     // ========== BUILDER PATTERN ==========
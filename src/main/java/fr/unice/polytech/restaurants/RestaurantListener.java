@@ -0,0 +1,15 @@
+package fr.unice.polytech.restaurants;
+
+/**
+ * Notified synchronously, on the modifying thread, when a restaurant changes.
+ * Implementations must be fast and must not modify the restaurant.
+ */
+public interface RestaurantListener {
+
+    //Menu, name or opening hours changed.
+    void catalogChanged(Restaurant restaurant);
+
+    //The capacity of a time slot changed, capacity is its new value (it may change again before this returns).
+    default void capacityChanged(Restaurant restaurant, TimeSlot slot, int capacity) {
+    }
+}
@@ -2,22 +2,42 @@ package  fr.unice.polytech.restaurants;
 
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 // RestaurantManager: Manages restaurants and their time slots.
 
 public class RestaurantManager {
 
     // Storage for all restaurants (simple in-memory storage)
-    private Map<String, Restaurant> restaurants;
+    private final Map<String, Restaurant> restaurants;
 
+    // Restaurants indexed by their generated ID: the restaurant with ID n lives in slot n.
+    // IDs are dense and never reused, so a lookup is a bounds check plus an array read.
+    // Registrations are serialized by register(); lookups run without lock and see the array
+    // through the volatile field, which register() writes again after each change.
+    private volatile Restaurant[] restaurantsById;
+    private long lastId; // guarded by this
 
+    private static final int INITIAL_ID_CAPACITY = 16;
+
+    // Bumped on every change visible in the catalog (restaurant added or replaced, menu, opening hours)
+    // so that cached catalog responses can tell whether they are still up to date.
+    private final AtomicLong catalogVersion = new AtomicLong();
+    private final CatalogIndex catalogIndex = new CatalogIndex();
+    private final RestaurantListener catalogListener = restaurant -> {
+        catalogIndex.update(restaurant);
+        catalogVersion.incrementAndGet();
+    };
 
-    public RestaurantManager() {
-        this.restaurants = new HashMap<>();
 
+    public RestaurantManager() {
+        this.restaurants = new ConcurrentHashMap<>();
+        this.restaurantsById = new Restaurant[INITIAL_ID_CAPACITY];
     }
 
 
@@ -30,12 +50,23 @@ public class RestaurantManager {
     }
 
 
+    //Gets a restaurant by its generated ID, or null if no restaurant has this ID.
+    public Restaurant getRestaurantById(long id) {
+        Restaurant[] table = restaurantsById;
+        if (id <= 0 || id >= table.length) {
+            return null;
+        }
+        return table[(int) id];
+    }
+
+
     //Blocks a time slot for a specific restaurant so it prevents the time slot from being available for orders.
-    public void blockTimeSlot(TimeSlot slot, Restaurant restaurant) {
+    //Returns false when the slot has no capacity left.
+    public boolean blockTimeSlot(TimeSlot slot, Restaurant restaurant) {
         if (restaurant == null) {
             throw new IllegalArgumentException("Restaurant cannot be null");
         }
-       restaurant.blockTimeSlot(slot);
+        return restaurant.blockTimeSlot(slot);
 
     }
 
@@ -53,12 +84,76 @@ public class RestaurantManager {
     // ========== UTILITY METHODS for managing the restaurant collection ==========
 
 
-    //Adds a restaurant to the manager
+    //Adds a restaurant to the manager and assigns its ID.
+    //A restaurant replacing another one with the same name keeps the ID of the replaced one.
     public void addRestaurant(Restaurant restaurant) {
+        register(restaurant, 0);
+    }
+
+
+    //Adds a restaurant read from a snapshot, under the ID it had when the snapshot was taken.
+    void restoreRestaurant(Restaurant restaurant, long id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Restaurant ID must be positive");
+        }
+        register(restaurant, id);
+    }
+
+
+    // A restaurant with the name of another one takes its ID, otherwise it gets restoredId or the next ID.
+    // Synchronized: handlers and the snapshot loader may register restaurants concurrently.
+    private synchronized void register(Restaurant restaurant, long restoredId) {
         if (restaurant == null) {
             throw new IllegalArgumentException("Restaurant cannot be null");
         }
-        restaurants.put(restaurant.getRestaurantName(), restaurant);
+        Restaurant replaced = restaurants.put(restaurant.getRestaurantName(), restaurant);
+        if (replaced != null && replaced != restaurant) {
+            replaced.removeListener(catalogListener);
+        }
+        long id;
+        if (replaced != null) {
+            id = replaced.getId();
+        } else if (restoredId > 0) {
+            id = restoredId;
+            lastId = Math.max(lastId, restoredId);
+        } else {
+            id = ++lastId;
+        }
+        Restaurant[] table = restaurantsById;
+        if (id >= table.length) {
+            table = Arrays.copyOf(table, Math.max((int) id + 1, table.length * 2));
+        }
+        restaurant.setId(id);
+        table[(int) id] = restaurant;
+        restaurantsById = table; // publishes the slot, and the copy when the table grew
+        if (replaced != restaurant) {
+            restaurant.addListener(catalogListener);
+        }
+        catalogIndex.update(restaurant);
+        catalogVersion.incrementAndGet();
+    }
+
+
+    //Finds the restaurants matching the query, ordered by ID.
+    public List<Restaurant> findRestaurants(CatalogQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        BitSet ids = catalogIndex.search(query);
+        List<Restaurant> found = new ArrayList<>(ids.cardinality());
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            Restaurant restaurant = getRestaurantById(id);
+            if (restaurant != null) {
+                found.add(restaurant);
+            }
+        }
+        return found;
+    }
+
+
+    //Changes whenever a restaurant is added or the menu or opening hours of a managed restaurant change.
+    public long getCatalogVersion() {
+        return catalogVersion.get();
     }
 
 
@@ -70,6 +165,15 @@ public class RestaurantManager {
 
 
 
+    //Gives back a place taken by blockTimeSlot. Returns false when all the configured places of the slot are already free.
+    public boolean releaseTimeSlot(TimeSlot slot, Restaurant restaurant) {
+        if (restaurant == null) {
+            throw new IllegalArgumentException("Restaurant cannot be null");
+        }
+        return restaurant.releaseTimeSlot(slot);
+    }
+
+
     //Unblock a time slot for a restaurant
     public void unblockTimeSlot(TimeSlot slot, Restaurant restaurant) {
         if ( restaurant == null) {
@@ -81,7 +185,7 @@ public class RestaurantManager {
 
      //Checks if a restaurant exists.
     public boolean hasRestaurant(String restaurantName) {
-        return restaurants.containsKey(restaurantName);
+        return restaurantName != null && restaurants.containsKey(restaurantName);
 
     }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package fr.unice.polytech.restaurants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Remaining order capacity of each time slot of a restaurant, safe to use from concurrent requests.
+ *
+ * Each slot has its own atomic counter: a reservation is a compare-and-set that only succeeds while
+ * the counter is positive, so two orders can never take the last place of a slot at the same time
+ * and a counter never goes negative. A release is the opposite compare-and-set, bounded by the
+ * configured capacity of the slot, so releasing a place twice cannot open more places than set.
+ */
+public class SlotCapacities {
+
+    // Configured capacity of a slot and the places still free in it
+    private static final class Slot {
+        volatile int configured;
+        final AtomicInteger remaining;
+
+        Slot(int capacity, int remaining) {
+            this.configured = capacity;
+            this.remaining = new AtomicInteger(remaining);
+        }
+    }
+
+    private final ConcurrentHashMap<TimeSlot, Slot> capacityByTimeSlot = new ConcurrentHashMap<>();
+
+    //Configures the slot with every place free.
+    public void set(TimeSlot slot, int capacity) {
+        restore(slot, capacity, capacity);
+    }
+
+    //Configures the slot with some places already taken, e.g. when read back from a snapshot.
+    public void restore(TimeSlot slot, int capacity, int remaining) {
+        if (capacity < 0) throw new IllegalArgumentException("Capacity cannot be negative");
+        if (remaining < 0 || remaining > capacity) {
+            throw new IllegalArgumentException("Remaining capacity must be between 0 and the capacity");
+        }
+        Slot counters = capacityByTimeSlot.putIfAbsent(slot, new Slot(capacity, remaining));
+        if (counters != null) {
+            synchronized (counters) {
+                counters.configured = capacity;
+                counters.remaining.set(remaining);
+            }
+        }
+    }
+
+    public int get(TimeSlot slot) {
+        Slot counters = capacityByTimeSlot.get(slot);
+        return counters == null ? 0 : counters.remaining.get();
+    }
+
+    //Capacity the slot was configured with, 0 if it is unknown.
+    public int getConfigured(TimeSlot slot) {
+        Slot counters = capacityByTimeSlot.get(slot);
+        return counters == null ? 0 : counters.configured;
+    }
+
+    /**
+     * Takes one place in the slot.
+     * @return false if the slot is unknown or has no capacity left, in which case nothing changes
+     */
+    public boolean reserve(TimeSlot slot) {
+        Slot counters = capacityByTimeSlot.get(slot);
+        if (counters == null) {
+            return false;
+        }
+        AtomicInteger counter = counters.remaining;
+        int capacity;
+        do {
+            capacity = counter.get();
+            if (capacity <= 0) {
+                return false;
+            }
+        } while (!counter.compareAndSet(capacity, capacity - 1));
+        return true;
+    }
+
+    /**
+     * Gives back one place taken by reserve.
+     * @return false if the slot is unknown or already has all its configured places free, in which case nothing changes
+     */
+    public boolean release(TimeSlot slot) {
+        Slot counters = capacityByTimeSlot.get(slot);
+        if (counters == null) {
+            return false;
+        }
+        AtomicInteger counter = counters.remaining;
+        int capacity;
+        do {
+            capacity = counter.get();
+            if (capacity >= counters.configured) {
+                return false;
+            }
+        } while (!counter.compareAndSet(capacity, capacity + 1));
+        return true;
+    }
+
+    /**
+     * Adds one place to the slot, raising its configured capacity, and opens the slot with a
+     * capacity of 1 if it was unknown.
+     * @return the remaining capacity of the slot after the increase
+     */
+    public int increase(TimeSlot slot) {
+        Slot counters = capacityByTimeSlot.computeIfAbsent(slot, s -> new Slot(0, 0));
+        synchronized (counters) {
+            counters.configured++;
+            return counters.remaining.incrementAndGet();
+        }
+    }
+
+    public List<TimeSlot> availableSlots() {
+        List<TimeSlot> availableSlots = new ArrayList<>();
+        capacityByTimeSlot.forEach((slot, counters) -> {
+            if (counters.remaining.get() > 0) {
+                availableSlots.add(slot);
+            }
+        });
+        return availableSlots;
+    }
+
+    //Point-in-time copy of every counter; concurrent reservations may be reflected or not.
+    public Map<TimeSlot, Integer> snapshot() {
+        Map<TimeSlot, Integer> capacities = new HashMap<>();
+        capacityByTimeSlot.forEach((slot, counters) -> capacities.put(slot, counters.remaining.get()));
+        return capacities;
+    }
+}
@@ -0,0 +1,62 @@
+package fr.unice.polytech.services;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+
+/**
+ * Strong ETags built from version counters, and If-None-Match handling.
+ *
+ * Version counters restart with the process, so every ETag also carries the start time of the
+ * server: a client can never get a 304 for a representation produced by a previous run.
+ */
+public final class ETags {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+
+    private ETags() {
+    }
+
+    public static String of(long... versions) {
+        StringBuilder etag = new StringBuilder(32).append('"').append(EPOCH);
+        for (long version : versions) {
+            etag.append('-').append(Long.toString(version, 36));
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * If the request already has this representation (If-None-Match), answers 304 Not Modified
+     * and returns true. Otherwise sets the ETag and Cache-Control headers of the response to come.
+     */
+    public static boolean notModified(HttpExchange exchange, String etag, String cacheControl) throws IOException {
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", cacheControl);
+        if (!matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+            return false;
+        }
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return true;
+    }
+
+    //If-None-Match uses the weak comparison: W/"x" matches "x".
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
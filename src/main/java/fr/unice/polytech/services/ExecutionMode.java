@@ -0,0 +1,13 @@
+package fr.unice.polytech.services;
+
+/**
+ * How an HTTP server runs its handlers.
+ */
+public enum ExecutionMode {
+    // Every exchange runs on the single HttpServer dispatcher thread (JDK default)
+    DISPATCHER,
+    // One virtual thread per exchange; on runtimes without virtual threads (before Java 21), same as POOL
+    VIRTUAL,
+    // Bounded pool of platform threads with a bounded waiting queue
+    POOL
+}
@@ -0,0 +1,182 @@
+package fr.unice.polytech.services;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Makes POST requests sent with an Idempotency-Key header safe to retry.
+ *
+ * The first request with a key is executed and its response recorded; later requests with the
+ * same key on the same path get the recorded response (with Idempotent-Replayed: true) without
+ * reaching the handler, and those arriving while it runs wait for it. Reusing a key with a
+ * different body is refused (422). Server errors (5xx) are not kept, so they can be retried.
+ */
+public class IdempotencyFilter extends Filter {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    // Headers computed again by the server for each response
+    private static final Set<String> TRANSPORT_HEADERS = Set.of("content-length", "transfer-encoding", "date");
+
+    private final IdempotencyStore store;
+    private final long waitTimeoutMillis;
+
+    public IdempotencyFilter(IdempotencyStore store) {
+        this(store, 30_000);
+    }
+
+    public IdempotencyFilter(IdempotencyStore store, long waitTimeoutMillis) {
+        this.store = store;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        String key = exchange.getRequestHeaders().getFirst(HEADER);
+        if (key == null || !"POST".equals(exchange.getRequestMethod())) {
+            chain.doFilter(exchange);
+            return;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            JsonResponses.sendError(exchange, 400, "Invalid " + HEADER);
+            return;
+        }
+
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String scopedKey = exchange.getRequestURI().getPath() + " " + key;
+        String fingerprint = fingerprint(body);
+
+        IdempotencyStore.Entry entry = store.register(scopedKey, fingerprint);
+        if (entry == null) {
+            replay(exchange, scopedKey, fingerprint);
+            return;
+        }
+
+        ByteArrayOutputStream recordedBody = new ByteArrayOutputStream();
+        exchange.setStreams(new ByteArrayInputStream(body), new TeeOutputStream(exchange.getResponseBody(), recordedBody));
+        try {
+            chain.doFilter(exchange);
+        } catch (IOException | RuntimeException e) {
+            store.remove(entry);
+            entry.getResponse().completeExceptionally(e);
+            throw e;
+        }
+
+        int statusCode = exchange.getResponseCode();
+        if (statusCode >= 500) {
+            store.remove(entry);
+        }
+        entry.getResponse().complete(
+                new IdempotencyStore.StoredResponse(statusCode, copyHeaders(exchange), recordedBody.toByteArray()));
+    }
+
+    private void replay(HttpExchange exchange, String scopedKey, String fingerprint) throws IOException {
+        IdempotencyStore.Entry first = store.get(scopedKey);
+        if (first == null) {
+            // Evicted in between: extremely unlikely, let the client retry
+            JsonResponses.sendError(exchange, 409, "Request with this " + HEADER + " is being processed");
+            return;
+        }
+        if (!first.getFingerprint().equals(fingerprint)) {
+            JsonResponses.sendError(exchange, 422, HEADER + " was already used with a different request");
+            return;
+        }
+
+        IdempotencyStore.StoredResponse response;
+        try {
+            response = first.getResponse().get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            JsonResponses.sendError(exchange, 409, "Request with this " + HEADER + " is being processed");
+            return;
+        } catch (ExecutionException e) {
+            JsonResponses.sendError(exchange, 500, "Request with this " + HEADER + " failed");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            JsonResponses.sendError(exchange, 503, "Interrupted");
+            return;
+        }
+
+        response.getHeaders().forEach((name, values) -> exchange.getResponseHeaders().put(name, new ArrayList<>(values)));
+        exchange.getResponseHeaders().set("Idempotent-Replayed", "true");
+        byte[] responseBody = response.getBody();
+        exchange.sendResponseHeaders(response.getStatusCode(), responseBody.length > 0 ? responseBody.length : -1);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(responseBody);
+        }
+    }
+
+    private static Map<String, List<String>> copyHeaders(HttpExchange exchange) {
+        Map<String, List<String>> headers = new HashMap<>();
+        exchange.getResponseHeaders().forEach((name, values) -> {
+            if (!TRANSPORT_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                headers.put(name, List.copyOf(values));
+            }
+        });
+        return headers;
+    }
+
+    private static String fingerprint(byte[] body) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Replays the recorded response of requests with an " + HEADER + " header";
+    }
+
+    // Writes the response to the client and records it
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final ByteArrayOutputStream copy;
+
+        TeeOutputStream(OutputStream out, ByteArrayOutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
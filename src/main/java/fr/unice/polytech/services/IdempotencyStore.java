@@ -0,0 +1,162 @@
+package fr.unice.polytech.services;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Responses of the requests sent with an Idempotency-Key, by key.
+ *
+ * An entry is registered before the request is executed and completed with its response, so a
+ * duplicate arriving meanwhile waits for the first execution instead of running again.
+ * Entries expire after the TTL; beyond maxEntries the oldest completed ones are evicted.
+ */
+public class IdempotencyStore {
+
+    /**
+     * Response recorded for replays: status, headers and body bytes
+     */
+    public static class StoredResponse {
+        private final int statusCode;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        public StoredResponse(int statusCode, Map<String, List<String>> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * One key: the fingerprint of the request that registered it and its (future) response
+     */
+    public static class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(String key, String fingerprint, long createdAt) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public CompletableFuture<StoredResponse> getResponse() {
+            return response;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Entries in registration order, which is also their expiration order
+    private final Queue<Entry> registrationOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger(); // size of registrationOrder, which is not O(1)
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    public IdempotencyStore(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    IdempotencyStore(int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Registers a new entry for the key, unless a live one exists.
+     *
+     * @return the new entry, that the caller must complete, or null if the key is already taken
+     * (use get to wait for its response)
+     */
+    public Entry register(String key, String fingerprint) {
+        long now = clock.getAsLong();
+        Entry candidate = new Entry(key, fingerprint, now);
+        Entry registered = entries.compute(key, (k, current) ->
+                current != null && !isExpired(current, now) ? current : candidate);
+        if (registered != candidate) {
+            return null;
+        }
+        registrationOrder.add(candidate);
+        queued.incrementAndGet();
+        evict(now);
+        return candidate;
+    }
+
+    //The live entry of the key, or null.
+    public Entry get(String key) {
+        Entry entry = entries.get(key);
+        return entry != null && !isExpired(entry, clock.getAsLong()) ? entry : null;
+    }
+
+    //Forgets an entry, e.g. after a server error, so that the request can be retried.
+    public void remove(Entry entry) {
+        entries.remove(entry.key, entry);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    //Entries still in the registration queue, stale ones included, for tests.
+    int getQueuedCount() {
+        return queued.get();
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return entry.response.isDone() && now - entry.createdAt >= ttlNanos;
+    }
+
+    // A request still in progress is never evicted: its duplicates are waiting for it.
+    // Removed or replaced entries stay queued behind live ones: once they are as many as the
+    // entries, the whole queue is swept, which halves it at least (amortized O(1) per register)
+    private synchronized void evict(long now) {
+        boolean sweep = queued.get() > 2 * entries.size();
+        Iterator<Entry> oldestFirst = registrationOrder.iterator();
+        while (oldestFirst.hasNext()) {
+            Entry entry = oldestFirst.next();
+            if (entries.get(entry.key) != entry) {
+                // Removed or replaced since
+                oldestFirst.remove();
+                queued.decrementAndGet();
+            } else if (isExpired(entry, now) || (entries.size() > maxEntries && entry.response.isDone())) {
+                oldestFirst.remove();
+                queued.decrementAndGet();
+                entries.remove(entry.key, entry);
+            } else if (entry.response.isDone() && !sweep) {
+                // Live, and so are the newer entries
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package fr.unice.polytech.services;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * JSON responses shared by the handlers of the services.
+ *
+ * Bodies are encoded once, straight into the response stream. A body that fits in the buffer
+ * (BUFFER_SIZE bytes) is sent with its Content-Length; a larger one switches to chunked transfer
+ * encoding as soon as the buffer is full, so it is never held in memory as a whole.
+ */
+public final class JsonResponses {
+
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    // The stream is closed here, not by Jackson: a failed serialization must not send a truncated 200.
+    // Items of a streamed array are not flushed one by one, which would make each of them a chunk
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+
+    private JsonResponses() {
+    }
+
+    //Sends a body that is already encoded, e.g. taken from a cache.
+    public static void send(HttpExchange exchange, int statusCode, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(statusCode, body.length > 0 ? body.length : -1);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    public static void sendValue(HttpExchange exchange, int statusCode, Object value) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        ResponseStream out = new ResponseStream(exchange, statusCode);
+        try {
+            OBJECT_MAPPER.writeValue(out, value);
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+        out.close();
+    }
+
+    /**
+     * Streams a JSON array, mapping each item only when it is written: the list of DTOs is never built.
+     */
+    public static <T> void sendArray(HttpExchange exchange, int statusCode, Iterable<T> items,
+                                     Function<? super T, ?> mapper) throws IOException {
+        sendArray(exchange, statusCode, items, mapper, 0);
+    }
+
+    /**
+     * Same as sendArray, also keeping a copy of the body for a cache as long as it is at most maxCopy bytes.
+     * @return the encoded body, or null if it was longer than maxCopy and was only streamed
+     */
+    public static <T> byte[] sendArray(HttpExchange exchange, int statusCode, Iterable<T> items,
+                                       Function<? super T, ?> mapper, int maxCopy) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        ResponseStream out = new ResponseStream(exchange, statusCode, maxCopy);
+        try {
+            JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            generator.writeStartArray();
+            for (T item : items) {
+                OBJECT_MAPPER.writeValue(generator, mapper.apply(item));
+            }
+            generator.writeEndArray();
+            generator.close();
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+        out.close();
+        return out.copy();
+    }
+
+    //{"error": "..."} with the message escaped.
+    public static void sendError(HttpExchange exchange, int statusCode, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        ResponseStream out = new ResponseStream(exchange, statusCode);
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("error", message != null ? message : "");
+            generator.writeEndObject();
+        }
+        out.close();
+    }
+
+    /**
+     * Response body that defers the headers: they are sent with the exact length on close if the
+     * whole body fitted in the buffer, or as chunked when the buffer overflows.
+     */
+    static class ResponseStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int statusCode;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count;
+        private OutputStream body; // set once the headers are sent
+        private boolean chunked;
+        private boolean closed;
+        private final int maxCopy;
+        private ByteArrayOutputStream copy; // past the buffer, dropped once longer than maxCopy
+
+        ResponseStream(HttpExchange exchange, int statusCode) {
+            this(exchange, statusCode, 0);
+        }
+
+        ResponseStream(HttpExchange exchange, int statusCode, int maxCopy) {
+            this.exchange = exchange;
+            this.statusCode = statusCode;
+            this.maxCopy = maxCopy;
+        }
+
+        //The whole body if it was at most maxCopy bytes, null otherwise.
+        byte[] copy() {
+            if (!chunked) {
+                return count <= maxCopy ? Arrays.copyOf(buffer, count) : null;
+            }
+            return copy != null ? copy.toByteArray() : null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (body == null && count == buffer.length) {
+                startChunked();
+            }
+            if (body != null) {
+                body.write(b);
+                if (copy != null && copy.size() < maxCopy) {
+                    copy.write(b);
+                } else {
+                    copy = null; // too long to be cached
+                }
+            } else {
+                buffer[count++] = (byte) b;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (body == null && count + len > buffer.length) {
+                startChunked();
+            }
+            if (body != null) {
+                body.write(b, off, len);
+                keep(b, off, len);
+            } else {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+            }
+        }
+
+        private void startChunked() throws IOException {
+            exchange.sendResponseHeaders(statusCode, 0);
+            chunked = true;
+            body = exchange.getResponseBody();
+            body.write(buffer, 0, count);
+            if (count < maxCopy) {
+                copy = new ByteArrayOutputStream(Math.min(maxCopy, 4 * BUFFER_SIZE));
+                copy.write(buffer, 0, count);
+            }
+        }
+
+        private void keep(byte[] b, int off, int len) {
+            if (copy != null) {
+                if (copy.size() + len > maxCopy) {
+                    copy = null; // too long to be cached
+                } else {
+                    copy.write(b, off, len);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // Flushing a buffered body would force chunked mode: only flush once streaming
+            if (body != null) {
+                body.flush();
+            }
+        }
+
+        /**
+         * Gives up after a failed serialization. If nothing was sent yet, the exchange is left
+         * untouched so that the caller can still answer with an error; otherwise the truncated
+         * chunked body is cut off.
+         */
+        void abort() {
+            closed = true;
+            if (body != null) {
+                exchange.close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (body == null) {
+                exchange.sendResponseHeaders(statusCode, count > 0 ? count : -1);
+                body = exchange.getResponseBody();
+                body.write(buffer, 0, count);
+            }
+            body.close();
+        }
+    }
+}
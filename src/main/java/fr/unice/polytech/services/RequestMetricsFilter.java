@@ -0,0 +1,82 @@
+package fr.unice.polytech.services;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import fr.unice.polytech.metrics.Counter;
+import fr.unice.polytech.metrics.Histogram;
+import fr.unice.polytech.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency and status codes of the requests of one context (route), in a MetricsRegistry:
+ * http_request_duration_seconds{route} and http_requests_total{route,status}.
+ *
+ * The route is the path of the context, not of the request, so that the number of series stays
+ * bounded whatever the clients ask for. Installed first in the filter chain, it also counts the
+ * responses of the other filters (replays of the IdempotencyFilter for example).
+ */
+public class RequestMetricsFilter extends Filter {
+
+    private static final String NO_RESPONSE = "none";
+
+    private final MetricsRegistry registry;
+    private final String route;
+    private final Histogram duration;
+    // Counters by status code, looked up in the registry only once
+    private final AtomicReferenceArray<Counter> statusCounters = new AtomicReferenceArray<>(600);
+
+    public RequestMetricsFilter(MetricsRegistry registry, String route) {
+        this.registry = registry;
+        this.route = route;
+        this.duration = registry.histogram("http_request_duration_seconds",
+                "Time to handle a request, until the handler returns", "route", route);
+    }
+
+    //Adds the filter in front of the others of the context.
+    public static HttpContext instrument(HttpContext context, MetricsRegistry registry) {
+        context.getFilters().add(0, new RequestMetricsFilter(registry, context.getPath()));
+        return context;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(exchange);
+        } catch (IOException | RuntimeException e) {
+            record(start, 500);
+            throw e;
+        }
+        record(start, exchange.getResponseCode());
+    }
+
+    private void record(long start, int status) {
+        duration.record(System.nanoTime() - start);
+        statusCounter(status).increment();
+    }
+
+    private Counter statusCounter(int status) {
+        if (status < 0 || status >= statusCounters.length()) {
+            return counter(NO_RESPONSE); // headers never sent
+        }
+        Counter counter = statusCounters.get(status);
+        if (counter == null) {
+            counter = counter(Integer.toString(status));
+            statusCounters.set(status, counter); // the registry returns the same counter to a racing thread
+        }
+        return counter;
+    }
+
+    private Counter counter(String status) {
+        return registry.counter("http_requests_total", "Requests handled, by route and status code",
+                "route", route, "status", status);
+    }
+
+    @Override
+    public String description() {
+        return "Records the latency and status code of the requests";
+    }
+}
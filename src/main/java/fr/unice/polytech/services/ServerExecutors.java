@@ -0,0 +1,84 @@
+package fr.unice.polytech.services;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors given to HttpServer.setExecutor according to the ServerOptions.
+ */
+public final class ServerExecutors {
+
+    private ServerExecutors() {
+    }
+
+    /**
+     * @return the executor to install, or null to keep the HttpServer dispatcher thread
+     * @throws IllegalArgumentException if the pool sizes are not positive
+     */
+    public static ExecutorService create(String serverName, ServerOptions options) {
+        switch (options.getExecutionMode()) {
+            case DISPATCHER:
+                return null;
+            case VIRTUAL:
+                ExecutorService virtualThreads = virtualThreadPerTask();
+                if (virtualThreads != null) {
+                    return virtualThreads;
+                }
+                System.out.println(" Virtual threads are not available on Java " + Runtime.version().feature()
+                        + ", using the POOL executor instead (" + options.getThreads() + " threads, queue "
+                        + options.getQueueCapacity() + ")");
+                return boundedPool(serverName, options.getThreads(), options.getQueueCapacity());
+            case POOL:
+                return boundedPool(serverName, options.getThreads(), options.getQueueCapacity());
+            default:
+                throw new IllegalArgumentException("Unsupported execution mode: " + options.getExecutionMode());
+        }
+    }
+
+    /**
+     * Virtual threads are only available from Java 21 while the project targets Java 17,
+     * so the factory is looked up at runtime.
+     * @return null on older runtimes, where the caller falls back to the bounded pool: one
+     * unbounded platform thread per request would give up the protection the pool is for
+     */
+    static ExecutorService virtualThreadPerTask() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * When every thread is busy and the queue is full, the dispatcher thread runs the exchange
+     * itself, which stops it from accepting new connections until a thread is free again.
+     */
+    static ExecutorService boundedPool(String serverName, int threads, int queueCapacity) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                namedThreads(serverName),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static ThreadFactory namedThreads(String serverName) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, serverName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
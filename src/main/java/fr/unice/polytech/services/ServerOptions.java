@@ -0,0 +1,133 @@
+package fr.unice.polytech.services;
+
+import fr.unice.polytech.persistence.WriteAheadLog;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Path;
+
+/**
+ * Startup options shared by the OrderServer and the CatalogServer.
+ *
+ * Example: --executor=POOL --threads=32 --queue-capacity=500 --payment-batch-size=50 --wal-dir=data/orders --snapshot-file=data/catalog.snap
+ */
+@Command(mixinStandardHelpOptions = true)
+public class ServerOptions {
+
+    @Option(names = "--executor",
+            description = "Handler execution mode: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private ExecutionMode executionMode = ExecutionMode.VIRTUAL;
+
+    @Option(names = "--threads",
+            description = "Number of platform threads in POOL mode (default: ${DEFAULT-VALUE})")
+    private int threads = Runtime.getRuntime().availableProcessors() * 4;
+
+    @Option(names = "--queue-capacity",
+            description = "Exchanges waiting for a thread in POOL mode before the dispatcher runs them itself (default: ${DEFAULT-VALUE})")
+    private int queueCapacity = 1000;
+
+    @Option(names = "--payment-batch-size",
+            description = "Order server: settle external payments in batches of up to this many orders, 0 to pay each order on its own (default: ${DEFAULT-VALUE})")
+    private int paymentBatchSize = 0;
+
+    @Option(names = "--payment-batch-window",
+            description = "Order server: milliseconds a batch of external payments waits for more orders (default: ${DEFAULT-VALUE})")
+    private long paymentBatchWindowMillis = 20;
+
+    @Option(names = "--wal-dir",
+            description = "Order server: directory of the write-ahead log of the orders, which are recovered from it on startup (default: orders are not persisted)")
+    private Path walDirectory;
+
+    @Option(names = "--wal-fsync",
+            description = "Order server: when the log is synced to disk: ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})")
+    private WriteAheadLog.FsyncPolicy walFsyncPolicy = WriteAheadLog.FsyncPolicy.INTERVAL;
+
+    @Option(names = "--snapshot-file",
+            description = "Binary snapshot of the restaurants, loaded on startup instead of the mock data and rewritten when they change (default: none)")
+    private Path snapshotFile;
+
+    @Option(names = "--snapshot-interval",
+            description = "Seconds between two checks for changes to snapshot (default: ${DEFAULT-VALUE})")
+    private long snapshotIntervalSeconds = 30;
+
+    public ServerOptions() {
+        // Defaults
+    }
+
+    public ServerOptions(ExecutionMode executionMode, int threads, int queueCapacity) {
+        this.executionMode = executionMode;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Parses the command line of a server.
+     * @return the options, or null if the server should not start (help requested or invalid arguments)
+     */
+    public static ServerOptions parse(String commandName, String... args) {
+        ServerOptions options = new ServerOptions();
+        CommandLine commandLine = new CommandLine(options).setCommandName(commandName);
+        try {
+            commandLine.parseArgs(args);
+        } catch (CommandLine.ParameterException e) {
+            System.err.println(e.getMessage());
+            commandLine.usage(System.err);
+            return null;
+        }
+        if (commandLine.isUsageHelpRequested()) {
+            commandLine.usage(System.out);
+            return null;
+        }
+        if (commandLine.isVersionHelpRequested()) {
+            commandLine.printVersionHelp(System.out);
+            return null;
+        }
+        return options;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getPaymentBatchSize() {
+        return paymentBatchSize;
+    }
+
+    public long getPaymentBatchWindowMillis() {
+        return paymentBatchWindowMillis;
+    }
+
+    //Null if the orders are not persisted.
+    public Path getWalDirectory() {
+        return walDirectory;
+    }
+
+    public WriteAheadLog.FsyncPolicy getWalFsyncPolicy() {
+        return walFsyncPolicy;
+    }
+
+    //Null if the restaurants are not snapshotted.
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public long getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return executionMode == ExecutionMode.POOL
+                ? executionMode + " (" + threads + " threads, queue " + queueCapacity + ")"
+                : executionMode.toString();
+    }
+}
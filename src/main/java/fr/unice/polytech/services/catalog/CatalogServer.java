@@ -1,11 +1,20 @@
 package fr.unice.polytech.services.catalog;
 
 import com.sun.net.httpserver.HttpServer;
+import fr.unice.polytech.metrics.MetricsRegistry;
+import fr.unice.polytech.restaurants.CatalogSnapshotter;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.services.MetricsHandler;
+import fr.unice.polytech.services.RequestMetricsFilter;
+import fr.unice.polytech.services.ServerExecutors;
+import fr.unice.polytech.services.ServerOptions;
 import fr.unice.polytech.services.catalog.handlers.DishHandler;
 import fr.unice.polytech.services.catalog.handlers.RestaurantHandler;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Catalog Service - REST API for restaurants and dishes
@@ -15,43 +24,97 @@ import java.net.InetSocketAddress;
  * - GET  /api/restaurants?cuisineType=ITALIAN&hasVegetarian=true
  * - GET  /api/restaurants/{id}
  * - POST /api/dishes
+ * - GET  /metrics (Prometheus)
  */
 public class CatalogServer {
     
     private static final int PORT = 8081;
     private final HttpServer server;
+    private final RestaurantManager restaurantManager;
+    private final ServerOptions options;
+    private final CatalogSnapshotter snapshotter; // null if the restaurants are not snapshotted
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private ExecutorService executor;
     
     public CatalogServer() throws IOException {
+        this(new ServerOptions());
+    }
+    
+    public CatalogServer(ServerOptions options) throws IOException {
+        this.options = options;
+        this.restaurantManager = new RestaurantManager();
+        // Restaurants from the snapshot if there is one: the handlers only add mock data to an empty manager
+        this.snapshotter = options.getSnapshotFile() == null ? null
+            : new CatalogSnapshotter(restaurantManager, options.getSnapshotFile());
+        if (snapshotter != null) {
+            int loaded = snapshotter.load();
+            System.out.println(" Loaded " + loaded + " restaurants from " + options.getSnapshotFile());
+        }
+        
         server = HttpServer.create(new InetSocketAddress(PORT), 0);
         registerHandlers();
     }
     
     private void registerHandlers() {
         // Restaurant endpoints
-        server.createContext("/api/restaurants", new RestaurantHandler());
+        RequestMetricsFilter.instrument(server.createContext("/api/restaurants", new RestaurantHandler(restaurantManager)), metrics);
         
         // Dish endpoints
-        server.createContext("/api/dishes", new DishHandler());
+        RequestMetricsFilter.instrument(server.createContext("/api/dishes", new DishHandler()), metrics);
+        
+        // Metrics endpoint
+        RequestMetricsFilter.instrument(server.createContext("/metrics", new MetricsHandler(metrics)), metrics);
+        metrics.gauge("restaurants", "Restaurants in the catalog", () -> restaurantManager.getAllRestaurants().size());
+        metrics.counter("catalog_changes_total", "Changes to the catalog: restaurants added, menus or opening hours edited",
+            restaurantManager::getCatalogVersion);
     }
     
     public void start() {
-        server.setExecutor(null); // creates a default executor
+        executor = ServerExecutors.create("catalog-server", options); // null keeps the default dispatcher thread
+        server.setExecutor(executor);
         server.start();
-        System.out.println("Catalog Service started on port " + PORT);
+        if (snapshotter != null) {
+            snapshotter.start(Duration.ofSeconds(options.getSnapshotIntervalSeconds()));
+        }
+        System.out.println("Catalog Service started on port " + PORT + " with executor " + options);
         System.out.println(" Available endpoints:");
         System.out.println("   GET  http://localhost:" + PORT + "/api/restaurants");
         System.out.println("   GET  http://localhost:" + PORT + "/api/restaurants/{id}");
         System.out.println("   POST http://localhost:" + PORT + "/api/dishes");
+        System.out.println("   GET  http://localhost:" + PORT + "/metrics");
     }
     
     public void stop() {
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (snapshotter != null) {
+            try {
+                snapshotter.close();
+            } catch (IOException e) {
+                System.err.println("Failed to write the catalog snapshot: " + e.getMessage());
+            }
+        }
         System.out.println(" Catalog Service stopped");
     }
     
+    public RestaurantManager getRestaurantManager() {
+        return restaurantManager;
+    }
+    
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
     public static void main(String[] args) {
+        ServerOptions options = ServerOptions.parse("catalog-server", args);
+        if (options == null) {
+            return;
+        }
+        
         try {
-            CatalogServer catalogServer = new CatalogServer();
+            CatalogServer catalogServer = new CatalogServer(options);
             catalogServer.start();
             
             // Keep server running
@@ -0,0 +1,55 @@
+package fr.unice.polytech.services.catalog;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encoded JSON responses of the catalog endpoints, tagged with the catalog version they were built from.
+ *
+ * An entry is only served while the catalog version it was built from is still the current one,
+ * so nothing has to be invalidated explicitly: entries built from an older version are simply
+ * missed and replaced. Callers must read the version before building the response.
+ */
+public class ResponseCache {
+
+    private final int maxEntries;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public ResponseCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    //Returns the cached body for this key if it was built from this version, null otherwise.
+    public byte[] get(String key, long version) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.version == version ? entry.body : null;
+    }
+
+    public void put(String key, long version, byte[] body) {
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            // Full: drop what is stale first, then everything if that was not enough
+            entries.values().removeIf(entry -> entry.version != version);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.merge(key, new Entry(version, body),
+                (current, candidate) -> current.version > candidate.version ? current : candidate);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final byte[] body;
+
+        private Entry(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+    }
+}
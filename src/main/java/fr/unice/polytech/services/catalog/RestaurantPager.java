@@ -0,0 +1,215 @@
+package fr.unice.polytech.services.catalog;
+
+import fr.unice.polytech.restaurants.Restaurant;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination over a list of restaurants.
+ *
+ * The cursor holds the sort key and the sort value + ID of the last restaurant returned, so the
+ * next page starts right after it even if restaurants were added or removed in between.
+ * The ID breaks ties, making the order total. Only the page is kept sorted (bounded heap of
+ * limit + 1 entries), not the whole catalog.
+ */
+public class RestaurantPager {
+
+    public static final int MAX_LIMIT = 500;
+
+    /**
+     * Sort keys accepted by sort=..., optionally prefixed by '-' for a descending order
+     */
+    public enum SortKey {
+        ID("id", r -> r.getId(), Long::parseLong),
+        NAME("name", r -> r.getRestaurantName() != null ? r.getRestaurantName() : "", s -> s),
+        CUISINE("cuisine", r -> r.getCuisineType() != null ? r.getCuisineType().toString() : "GENERAL", s -> s),
+        DISH_COUNT("dishCount", r -> r.getDishCount(), Integer::parseInt),
+        MIN_PRICE("minPrice", r -> r.getMinDishPrice(), Double::parseDouble);
+
+        private final String paramName;
+        private final Function<Restaurant, Comparable<?>> extractor;
+        private final Function<String, Comparable<?>> parser;
+
+        SortKey(String paramName, Function<Restaurant, Comparable<?>> extractor, Function<String, Comparable<?>> parser) {
+            this.paramName = paramName;
+            this.extractor = extractor;
+            this.parser = parser;
+        }
+
+        public String getParamName() {
+            return paramName;
+        }
+
+        public static SortKey fromParam(String paramName) {
+            for (SortKey key : values()) {
+                if (key.paramName.equals(paramName)) {
+                    return key;
+                }
+            }
+            throw new IllegalArgumentException("Unknown sort key: " + paramName);
+        }
+    }
+
+    /**
+     * One page of restaurants and the cursor of the next one (null on the last page)
+     */
+    public static class Page {
+        private final List<Restaurant> restaurants;
+        private final String nextCursor;
+
+        Page(List<Restaurant> restaurants, String nextCursor) {
+            this.restaurants = restaurants;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Restaurant> getRestaurants() {
+            return restaurants;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    // A restaurant with its sort value, extracted once
+    private static class Keyed {
+        final Comparable<?> value;
+        final long id;
+        final Restaurant restaurant;
+
+        Keyed(Comparable<?> value, long id, Restaurant restaurant) {
+            this.value = value;
+            this.id = id;
+            this.restaurant = restaurant;
+        }
+    }
+
+    private final SortKey sortKey;
+    private final boolean descending;
+    private final Comparator<Keyed> order;
+
+    public RestaurantPager(SortKey sortKey, boolean descending) {
+        this.sortKey = sortKey;
+        this.descending = descending;
+        Comparator<Keyed> byValue = RestaurantPager::compareValues;
+        this.order = (descending ? byValue.reversed() : byValue).thenComparingLong(k -> k.id);
+    }
+
+    //Parses a sort=... parameter such as "name" or "-minPrice"; null means by ID.
+    public static RestaurantPager forSort(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return new RestaurantPager(SortKey.ID, false);
+        }
+        boolean descending = sort.startsWith("-");
+        return new RestaurantPager(SortKey.fromParam(descending ? sort.substring(1) : sort), descending);
+    }
+
+    //Normalized form of the sort, used in cache keys and cursors.
+    public String getSort() {
+        return (descending ? "-" : "") + sortKey.getParamName();
+    }
+
+    //Sorts all the restaurants (no limit).
+    public List<Restaurant> sort(List<Restaurant> restaurants) {
+        List<Keyed> keyed = new ArrayList<>(restaurants.size());
+        for (Restaurant restaurant : restaurants) {
+            keyed.add(keyOf(restaurant));
+        }
+        keyed.sort(order);
+        List<Restaurant> sorted = new ArrayList<>(keyed.size());
+        for (Keyed k : keyed) {
+            sorted.add(k.restaurant);
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the page of at most limit restaurants that come after the cursor.
+     *
+     * @param cursor a cursor returned with a previous page of the same sort, or null for the first page
+     * @throws IllegalArgumentException if the limit is out of range or the cursor is invalid
+     */
+    public Page page(List<Restaurant> restaurants, int limit, String cursor) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT);
+        }
+        Keyed after = cursor != null ? decodeCursor(cursor) : null;
+
+        // Max-heap of the limit + 1 first restaurants: the extra one tells whether there is a next page
+        PriorityQueue<Keyed> heap = new PriorityQueue<>(limit + 1, order.reversed());
+        for (Restaurant restaurant : restaurants) {
+            Keyed k = keyOf(restaurant);
+            if (after != null && order.compare(k, after) <= 0) {
+                continue;
+            }
+            if (heap.size() <= limit) {
+                heap.add(k);
+            } else if (order.compare(k, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(k);
+            }
+        }
+
+        boolean hasNext = heap.size() > limit;
+        if (hasNext) {
+            heap.poll();
+        }
+        List<Keyed> page = new ArrayList<>(heap);
+        page.sort(order);
+        List<Restaurant> result = new ArrayList<>(page.size());
+        for (Keyed k : page) {
+            result.add(k.restaurant);
+        }
+        String nextCursor = hasNext ? encodeCursor(page.get(page.size() - 1)) : null;
+        return new Page(Collections.unmodifiableList(result), nextCursor);
+    }
+
+    /**
+     * Checks a cursor without paging, so that a request can be rejected before any other work.
+     *
+     * @throws IllegalArgumentException if the cursor is invalid or was returned with another sort
+     */
+    public void checkCursor(String cursor) {
+        decodeCursor(cursor);
+    }
+
+    private Keyed keyOf(Restaurant restaurant) {
+        return new Keyed(sortKey.extractor.apply(restaurant), restaurant.getId(), restaurant);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Keyed a, Keyed b) {
+        return ((Comparable) a.value).compareTo(b.value);
+    }
+
+    // Cursor: base64url of "<sort>:<id>:<value>" (the value comes last, as a name may contain ':')
+    private String encodeCursor(Keyed last) {
+        String raw = getSort() + ":" + last.id + ":" + last.value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Keyed decodeCursor(String cursor) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String[] parts = raw.split(":", 3);
+        if (parts.length != 3 || !parts[0].equals(getSort())) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            return new Keyed(sortKey.parser.apply(parts[2]), Long.parseLong(parts[1]), null);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -8,10 +8,10 @@ import fr.unice.polytech.api.DishDTO;
 import fr.unice.polytech.dishes.Dish;
 import fr.unice.polytech.dishes.DishCategory;
 import fr.unice.polytech.dishes.DishType;
+import fr.unice.polytech.services.JsonResponses;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -31,11 +31,11 @@ public class DishHandler implements HttpHandler {
             if ("POST".equals(method)) {
                 handleAddDish(exchange);
             } else {
-                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                JsonResponses.sendError(exchange, 405, "Method not allowed");
             }
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 500, e.getMessage());
         }
     }
     
@@ -49,12 +49,12 @@ public class DishHandler implements HttpHandler {
         
         // Validate required fields
         if (dishDTO.getName() == null || dishDTO.getName().isEmpty()) {
-            sendResponse(exchange, 400, "{\"error\": \"Dish name is required\"}");
+            JsonResponses.sendError(exchange, 400, "Dish name is required");
             return;
         }
         
         if (dishDTO.getPrice() <= 0) {
-            sendResponse(exchange, 400, "{\"error\": \"Dish price must be positive\"}");
+            JsonResponses.sendError(exchange, 400, "Dish price must be positive");
             return;
         }
         
@@ -70,7 +70,7 @@ public class DishHandler implements HttpHandler {
             try {
                 dish.setCategory(DishCategory.valueOf(dishDTO.getCategory()));
             } catch (IllegalArgumentException e) {
-                sendResponse(exchange, 400, "{\"error\": \"Invalid category: " + dishDTO.getCategory() + "\"}");
+                JsonResponses.sendError(exchange, 400, "Invalid category: " + dishDTO.getCategory());
                 return;
             }
         }
@@ -79,7 +79,7 @@ public class DishHandler implements HttpHandler {
             try {
                 dish.setCuisineType(DishType.valueOf(dishDTO.getDishType()));
             } catch (IllegalArgumentException e) {
-                sendResponse(exchange, 400, "{\"error\": \"Invalid dish type: " + dishDTO.getDishType() + "\"}");
+                JsonResponses.sendError(exchange, 400, "Invalid dish type: " + dishDTO.getDishType());
                 return;
             }
         }
@@ -89,17 +89,6 @@ public class DishHandler implements HttpHandler {
         
         // Return created dish with ID
         dishDTO.setId((long) dish.hashCode());
-        String jsonResponse = objectMapper.writeValueAsString(dishDTO);
-        
-        sendResponse(exchange, 201, jsonResponse);
-    }
-    
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
+        JsonResponses.sendValue(exchange, 201, dishDTO);
     }
 }
\ No newline at end of file
@@ -5,12 +5,19 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import fr.unice.polytech.api.RestaurantDTO;
+import fr.unice.polytech.api.RestaurantPageDTO;
+import fr.unice.polytech.dishes.DishCategory;
 import fr.unice.polytech.dishes.DishType;
+import fr.unice.polytech.restaurants.CatalogQuery;
 import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.services.ETags;
+import fr.unice.polytech.services.JsonResponses;
+import fr.unice.polytech.services.catalog.ResponseCache;
+import fr.unice.polytech.services.catalog.RestaurantPager;
 import fr.unice.polytech.services.catalog.mappers.RestaurantMapper;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.URI;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -18,17 +25,35 @@ import java.util.stream.Collectors;
 /**
  * Handler for Restaurant endpoints
  * 
- * GET /api/restaurants?cuisineType=ITALIAN&hasVegetarian=true
- * GET /api/restaurants/{id}
+ * GET /api/restaurants?cuisineType=ITALIAN&hasVegetarian=true&dishCategory=DESSERT
+ * GET /api/restaurants?sort=-minPrice&limit=20&cursor=...&fields=id,name
+ * GET /api/restaurants/{id}?fields=id,name,dishes
+ *
+ * With a limit the list is returned as a page: {"restaurants": [...], "nextCursor": "..."}
+ * Without one it stays a plain array of every matching restaurant.
  */
 public class RestaurantHandler implements HttpHandler {
     
+    // The catalog changes rarely: clients may reuse a response for a few seconds, then revalidate it with its ETag
+    private static final String CACHE_CONTROL = "public, max-age=5, must-revalidate";
+    
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final List<Restaurant> mockRestaurants;
+    private final RestaurantManager restaurantManager;
+    // Encoded responses per normalized query, reused until the catalog version changes
+    private final ResponseCache responseCache = new ResponseCache(1024);
+    // Longer lists are streamed on each request rather than held in memory by the cache
+    private static final int MAX_CACHED_LIST_BYTES = 256 * 1024;
     
     public RestaurantHandler() {
-        // Initialize mock data
-        this.mockRestaurants = createMockRestaurants();
+        this(new RestaurantManager());
+    }
+    
+    public RestaurantHandler(RestaurantManager restaurantManager) {
+        this.restaurantManager = restaurantManager;
+        // Initialize mock data, unless the restaurants were loaded from a snapshot
+        if (restaurantManager.getAllRestaurants().isEmpty()) {
+            createMockRestaurants().forEach(restaurantManager::addRestaurant);
+        }
     }
     
     @Override
@@ -46,11 +71,11 @@ public class RestaurantHandler implements HttpHandler {
                     handleGetRestaurants(exchange);
                 }
             } else {
-                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                JsonResponses.sendError(exchange, 405, "Method not allowed");
             }
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 500, e.getMessage());
         }
     }
     
@@ -58,56 +83,150 @@ public class RestaurantHandler implements HttpHandler {
         URI uri = exchange.getRequestURI();
         Map<String, String> queryParams = parseQueryParams(uri.getQuery());
         
-        // Filter restaurants
-        List<Restaurant> filteredRestaurants = mockRestaurants;
+        String cuisineType = queryParams.get("cuisineType");
+        String dishCategory = queryParams.get("dishCategory");
+        boolean hasVegetarian = "true".equalsIgnoreCase(queryParams.get("hasVegetarian"));
+        String limitParam = queryParams.get("limit");
+        String cursor = queryParams.get("cursor");
         
-        // Filter by cuisine type
-        if (queryParams.containsKey("cuisineType")) {
-            String cuisineType = queryParams.get("cuisineType");
-            filteredRestaurants = filteredRestaurants.stream()
-                .filter(r -> r.getCuisineType() != null && 
-                            r.getCuisineType().toString().equalsIgnoreCase(cuisineType))
-                .collect(Collectors.toList());
+        RestaurantPager pager;
+        Set<RestaurantMapper.Field> fields;
+        Integer limit = null;
+        try {
+            pager = RestaurantPager.forSort(queryParams.get("sort"));
+            fields = parseFields(queryParams.get("fields"));
+            if (limitParam != null) {
+                limit = parseLimit(limitParam);
+            } else if (cursor != null) {
+                throw new IllegalArgumentException("A cursor requires a limit");
+            }
+            // Before the conditional GET: a bad cursor must not get a 304 or a cacheable response
+            if (cursor != null) {
+                pager.checkCursor(cursor);
+            }
+        } catch (IllegalArgumentException e) {
+            JsonResponses.sendError(exchange, 400, e.getMessage());
+            return;
         }
         
-        // Filter by vegetarian dishes
-        if (queryParams.containsKey("hasVegetarian") && 
-            "true".equalsIgnoreCase(queryParams.get("hasVegetarian"))) {
-            filteredRestaurants = filteredRestaurants.stream()
-                .filter(r -> r.getDishes().stream()
-                    .anyMatch(d -> d.getCuisineType() == DishType.VEGETARIAN))
-                .collect(Collectors.toList());
+        // Read the version before building the response, so a concurrent change can only make the entry stale
+        long catalogVersion = restaurantManager.getCatalogVersion();
+        if (ETags.notModified(exchange, ETags.of(catalogVersion), CACHE_CONTROL)) {
+            return;
+        }
+        String cacheKey = "list?cuisineType=" + (cuisineType != null ? cuisineType.toUpperCase(Locale.ROOT) : "")
+                + "&dishCategory=" + (dishCategory != null ? dishCategory.toUpperCase(Locale.ROOT) : "")
+                + "&hasVegetarian=" + hasVegetarian
+                + "&sort=" + pager.getSort()
+                + "&fields=" + fields
+                + "&limit=" + (limit != null ? limit : "")
+                + "&cursor=" + (cursor != null ? cursor : "");
+        byte[] cached = responseCache.get(cacheKey, catalogVersion);
+        if (cached != null) {
+            JsonResponses.send(exchange, 200, cached);
+            return;
         }
         
-        // Convert to DTOs
-        List<RestaurantDTO> dtos = filteredRestaurants.stream()
-            .map(RestaurantMapper::toDTO)
-            .collect(Collectors.toList());
+        // Filter restaurants through the catalog index; an unknown cuisine type or category matches nothing
+        List<Restaurant> filteredRestaurants;
+        try {
+            CatalogQuery query = new CatalogQuery();
+            if (cuisineType != null) {
+                query.cuisineType(DishType.valueOf(cuisineType.toUpperCase(Locale.ROOT)));
+            }
+            if (dishCategory != null) {
+                query.withDishCategory(DishCategory.valueOf(dishCategory.toUpperCase(Locale.ROOT)));
+            }
+            if (hasVegetarian) {
+                query.withDishType(DishType.VEGETARIAN);
+            }
+            filteredRestaurants = restaurantManager.findRestaurants(query);
+        } catch (IllegalArgumentException e) {
+            filteredRestaurants = List.of();
+        }
         
-        String jsonResponse = objectMapper.writeValueAsString(dtos);
-        sendResponse(exchange, 200, jsonResponse);
+        if (limit != null) {
+            // A page is at most limit restaurants: encoded whole and cached
+            RestaurantPager.Page page = pager.page(filteredRestaurants, limit, cursor);
+            byte[] jsonResponse = objectMapper.writeValueAsBytes(
+                new RestaurantPageDTO(toDTOs(page.getRestaurants(), fields), page.getNextCursor()));
+            responseCache.put(cacheKey, catalogVersion, jsonResponse);
+            JsonResponses.send(exchange, 200, jsonResponse);
+            return;
+        }
+        // The whole list is streamed, each restaurant mapped only when it is written
+        byte[] jsonResponse = JsonResponses.sendArray(exchange, 200, pager.sort(filteredRestaurants),
+            restaurant -> RestaurantMapper.toDTO(restaurant, fields), MAX_CACHED_LIST_BYTES);
+        if (jsonResponse != null) {
+            responseCache.put(cacheKey, catalogVersion, jsonResponse);
+        }
     }
     
     private void handleGetRestaurantById(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         String idStr = path.substring(path.lastIndexOf('/') + 1);
         
+        Set<RestaurantMapper.Field> fields;
+        try {
+            fields = parseFields(parseQueryParams(exchange.getRequestURI().getQuery()).get("fields"));
+        } catch (IllegalArgumentException e) {
+            JsonResponses.sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        
         try {
             long id = Long.parseLong(idStr);
-            Optional<Restaurant> restaurant = mockRestaurants.stream()
-                .filter(r -> r.hashCode() == id)
-                .findFirst();
             
-            if (restaurant.isPresent()) {
-                RestaurantDTO dto = RestaurantMapper.toDTO(restaurant.get());
-                String jsonResponse = objectMapper.writeValueAsString(dto);
-                sendResponse(exchange, 200, jsonResponse);
-            } else {
-                sendResponse(exchange, 404, "{\"error\": \"Restaurant not found\"}");
+            Restaurant restaurant = restaurantManager.getRestaurantById(id);
+            if (restaurant == null) {
+                JsonResponses.sendError(exchange, 404, "Restaurant not found");
+                return;
+            }
+            
+            long catalogVersion = restaurant.getCatalogVersion();
+            if (ETags.notModified(exchange, ETags.of(catalogVersion), CACHE_CONTROL)) {
+                return;
+            }
+            String cacheKey = "id=" + id + "&fields=" + fields;
+            byte[] cached = responseCache.get(cacheKey, catalogVersion);
+            if (cached != null) {
+                JsonResponses.send(exchange, 200, cached);
+                return;
+            }
+            
+            RestaurantDTO dto = RestaurantMapper.toDTO(restaurant, fields);
+            byte[] jsonResponse = objectMapper.writeValueAsBytes(dto);
+            responseCache.put(cacheKey, catalogVersion, jsonResponse);
+            JsonResponses.send(exchange, 200, jsonResponse);
+        } catch (NumberFormatException e) {
+            JsonResponses.sendError(exchange, 400, "Invalid restaurant ID");
+        }
+    }
+    
+    private int parseLimit(String limitParam) {
+        try {
+            int limit = Integer.parseInt(limitParam);
+            if (limit > 0 && limit <= RestaurantPager.MAX_LIMIT) {
+                return limit;
             }
         } catch (NumberFormatException e) {
-            sendResponse(exchange, 400, "{\"error\": \"Invalid restaurant ID\"}");
+            // Reported below
         }
+        throw new IllegalArgumentException("Limit must be between 1 and " + RestaurantPager.MAX_LIMIT);
+    }
+    
+    // Every field when the parameter is absent
+    private Set<RestaurantMapper.Field> parseFields(String fields) {
+        if (fields == null) {
+            return EnumSet.allOf(RestaurantMapper.Field.class);
+        }
+        return RestaurantMapper.Field.parseList(fields);
+    }
+    
+    private List<RestaurantDTO> toDTOs(List<Restaurant> restaurants, Set<RestaurantMapper.Field> fields) {
+        return restaurants.stream()
+            .map(restaurant -> RestaurantMapper.toDTO(restaurant, fields))
+            .collect(Collectors.toList());
     }
     
     private Map<String, String> parseQueryParams(String query) {
@@ -125,15 +244,6 @@ public class RestaurantHandler implements HttpHandler {
         return params;
     }
     
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
-    }
-    
     // ========== MOCK DATA ==========
     
     private List<Restaurant> createMockRestaurants() {
@@ -7,7 +7,9 @@ import fr.unice.polytech.dishes.Dish;
 import fr.unice.polytech.restaurants.OpeningHours;
 import fr.unice.polytech.restaurants.Restaurant;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -15,24 +17,80 @@ import java.util.stream.Collectors;
  */
 public class RestaurantMapper {
     
+    /**
+     * Fields of a RestaurantDTO that can be requested with fields=...
+     */
+    public enum Field {
+        ID("id"),
+        NAME("name"),
+        CUISINE_TYPE("cuisineType"),
+        DISHES("dishes"),
+        OPENING_HOURS("openingHours");
+        
+        private final String jsonName;
+        
+        Field(String jsonName) {
+            this.jsonName = jsonName;
+        }
+        
+        public String getJsonName() {
+            return jsonName;
+        }
+        
+        //Parses a comma-separated list of JSON field names, e.g. "id,name,dishes".
+        public static Set<Field> parseList(String fields) {
+            Set<Field> parsed = EnumSet.noneOf(Field.class);
+            for (String name : fields.split(",")) {
+                Field field = null;
+                for (Field candidate : values()) {
+                    if (candidate.jsonName.equals(name.trim())) {
+                        field = candidate;
+                    }
+                }
+                if (field == null) {
+                    throw new IllegalArgumentException("Unknown field: " + name);
+                }
+                parsed.add(field);
+            }
+            return parsed;
+        }
+    }
+    
+    private static final Set<Field> ALL_FIELDS = EnumSet.allOf(Field.class);
+    
     public static RestaurantDTO toDTO(Restaurant restaurant) {
+        return toDTO(restaurant, ALL_FIELDS);
+    }
+    
+    //Partial DTO: the fields that are not requested are left null and their lists are never built.
+    public static RestaurantDTO toDTO(Restaurant restaurant, Set<Field> fields) {
         RestaurantDTO dto = new RestaurantDTO();
-        dto.setId((long) restaurant.hashCode()); // Simple ID generation
-        dto.setName(restaurant.getRestaurantName());
-        dto.setCuisineType(restaurant.getCuisineType() != null ? 
-                           restaurant.getCuisineType().toString() : "GENERAL");
+        if (fields.contains(Field.ID)) {
+            dto.setId(restaurant.getId());
+        }
+        if (fields.contains(Field.NAME)) {
+            dto.setName(restaurant.getRestaurantName());
+        }
+        if (fields.contains(Field.CUISINE_TYPE)) {
+            dto.setCuisineType(restaurant.getCuisineType() != null ? 
+                               restaurant.getCuisineType().toString() : "GENERAL");
+        }
         
         // Convert dishes
-        List<DishDTO> dishDTOs = restaurant.getDishes().stream()
-                .map(RestaurantMapper::dishToDTO)
-                .collect(Collectors.toList());
-        dto.setDishes(dishDTOs);
+        if (fields.contains(Field.DISHES)) {
+            List<DishDTO> dishDTOs = restaurant.getDishes().stream()
+                    .map(RestaurantMapper::dishToDTO)
+                    .collect(Collectors.toList());
+            dto.setDishes(dishDTOs);
+        }
         
         // Convert opening hours
-        List<OpeningHoursDTO> hoursDTOs = restaurant.getOpeningHours().stream()
-                .map(RestaurantMapper::openingHoursToDTO)
-                .collect(Collectors.toList());
-        dto.setOpeningHours(hoursDTOs);
+        if (fields.contains(Field.OPENING_HOURS)) {
+            List<OpeningHoursDTO> hoursDTOs = restaurant.getOpeningHours().stream()
+                    .map(RestaurantMapper::openingHoursToDTO)
+                    .collect(Collectors.toList());
+            dto.setOpeningHours(hoursDTOs);
+        }
         
         return dto;
     }
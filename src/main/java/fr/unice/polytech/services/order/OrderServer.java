@@ -2,14 +2,36 @@ package fr.unice.polytech.services.order;
 
 
 import com.sun.net.httpserver.HttpServer;
+import fr.unice.polytech.metrics.MetricsRegistry;
+import fr.unice.polytech.orderManagement.OrderJournal;
 import fr.unice.polytech.orderManagement.OrderManager;
+import fr.unice.polytech.orderManagement.OrderStatus;
+import fr.unice.polytech.orderManagement.WalOrderJournal;
+import fr.unice.polytech.paymentProcessing.Bulkhead;
+import fr.unice.polytech.paymentProcessing.CircuitBreaker;
+import fr.unice.polytech.paymentProcessing.PaymentProcessorFactory;
+import fr.unice.polytech.paymentProcessing.PaymentService;
+import fr.unice.polytech.persistence.WriteAheadLog;
+import fr.unice.polytech.restaurants.CatalogSnapshotter;
+import fr.unice.polytech.restaurants.Restaurant;
 import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.restaurants.TimeSlot;
+import fr.unice.polytech.services.IdempotencyFilter;
+import fr.unice.polytech.services.IdempotencyStore;
+import fr.unice.polytech.services.MetricsHandler;
+import fr.unice.polytech.services.RequestMetricsFilter;
+import fr.unice.polytech.services.ServerExecutors;
+import fr.unice.polytech.services.ServerOptions;
 import fr.unice.polytech.services.order.handlers.OrderHandler;
 import fr.unice.polytech.services.order.handlers.PaymentHandler;
  import fr.unice.polytech.services.order.handlers.TimeSlotHandler;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Order Service - REST API for orders, timeslots, and payments
@@ -19,7 +41,12 @@ import java.net.InetSocketAddress;
  * - POST /api/orders
  * - GET  /api/orders/{id}
  * - GET  /api/timeslots?restaurantId={id}
+ * - GET  /api/timeslots/stream?restaurantId={id} (Server-Sent Events)
  * - POST /api/payment
+ * - GET  /metrics (Prometheus)
+ * 
+ * Both POST endpoints accept an Idempotency-Key header.
+ * With --wal-dir, orders are journaled and recovered on restart.
  */
 public class OrderServer {
     
@@ -27,39 +54,157 @@ public class OrderServer {
     private final HttpServer server;
     private final OrderManager orderManager;
     private final RestaurantManager restaurantManager;
+    private final ServerOptions options;
+    private final IdempotencyStore idempotencyStore = new IdempotencyStore(10_000, Duration.ofHours(24));
+    private final TimeSlotStream timeSlotStream = new TimeSlotStream();
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final WalOrderJournal journal; // null if orders are not persisted
+    private final CatalogSnapshotter snapshotter; // null if the restaurants are not snapshotted
+    private ExecutorService executor;
     
     public OrderServer() throws IOException {
-        this.orderManager = new OrderManager();
+        this(new ServerOptions());
+    }
+    
+    public OrderServer(ServerOptions options) throws IOException {
+        this.options = options;
         this.restaurantManager = new RestaurantManager();
+        // Restaurants from the snapshot if there is one: the handlers only add mock data to an empty manager
+        this.snapshotter = options.getSnapshotFile() == null ? null
+            : new CatalogSnapshotter(restaurantManager, options.getSnapshotFile());
+        if (snapshotter != null) {
+            int loaded = snapshotter.load();
+            System.out.println(" Loaded " + loaded + " restaurants from " + options.getSnapshotFile());
+        }
+        PaymentProcessorFactory paymentProcessorFactory = options.getPaymentBatchSize() > 0
+            ? PaymentProcessorFactory.withBatchSettlement(new PaymentService(),
+                Duration.ofMillis(options.getPaymentBatchWindowMillis()), options.getPaymentBatchSize())
+            : new PaymentProcessorFactory();
+        this.journal = options.getWalDirectory() == null ? null : WalOrderJournal.open(
+            new WriteAheadLog.Builder(options.getWalDirectory()).fsyncPolicy(options.getWalFsyncPolicy()),
+            restaurantManager::getRestaurantById);
+        this.orderManager = new OrderManager(paymentProcessorFactory, journal != null ? journal : OrderJournal.NONE);
         
         server = HttpServer.create(new InetSocketAddress(PORT), 0);
         registerHandlers();
+        registerMetrics();
+        
+        // The handlers create the restaurants the recovered orders refer to
+        if (journal != null) {
+            int recovered = orderManager.recover();
+            System.out.println(" Recovered " + recovered + " orders from " + options.getWalDirectory());
+        }
     }
     
     private void registerHandlers() {
+        // Retried POSTs with the same Idempotency-Key get the first response instead of creating or paying twice
+        IdempotencyFilter idempotencyFilter = new IdempotencyFilter(idempotencyStore);
+        
         // Order endpoints
-        server.createContext("/api/orders", new OrderHandler(orderManager, restaurantManager));
+        RequestMetricsFilter.instrument(server.createContext("/api/orders", new OrderHandler(orderManager, restaurantManager)), metrics)
+            .getFilters().add(idempotencyFilter);
         
         // TimeSlot endpoints
-         server.createContext("/api/timeslots", new TimeSlotHandler(restaurantManager));
+         RequestMetricsFilter.instrument(server.createContext("/api/timeslots", new TimeSlotHandler(restaurantManager, timeSlotStream)), metrics);
         
         // Payment endpoints (proxy)
-         server.createContext("/api/payment", new PaymentHandler(orderManager));
+         RequestMetricsFilter.instrument(server.createContext("/api/payment", new PaymentHandler(orderManager)), metrics)
+            .getFilters().add(idempotencyFilter);
+        
+        // Metrics endpoint
+        RequestMetricsFilter.instrument(server.createContext("/metrics", new MetricsHandler(metrics)), metrics);
+    }
+    
+    // Gauges read the components when /metrics is scraped: nothing is added to the path of an order
+    private void registerMetrics() {
+        for (OrderStatus status : OrderStatus.values()) {
+            metrics.gauge("orders", "Orders by status", () -> orderManager.getOrderRepository().count(status),
+                "status", status.name().toLowerCase(Locale.ROOT));
+        }
+        metrics.collector("timeslot_capacity", "Orders a time slot can still take", MetricsRegistry.Type.GAUGE, samples -> {
+            for (Restaurant restaurant : restaurantManager.getAllRestaurants()) {
+                for (Map.Entry<TimeSlot, Integer> slot : restaurant.getAllCapacities().entrySet()) {
+                    samples.add(slot.getValue(), "restaurant", Long.toString(restaurant.getId()),
+                        "day", slot.getKey().getDayOfWeek().name(), "start", slot.getKey().getStartTime().toString());
+                }
+            }
+        });
+        
+        CircuitBreaker circuitBreaker = orderManager.getPaymentProcessorFactory().getCircuitBreaker();
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            metrics.gauge("payment_circuit_state", "1 for the current state of the payment circuit breaker",
+                () -> circuitBreaker.getState() == state ? 1 : 0, "state", state.name().toLowerCase(Locale.ROOT));
+        }
+        metrics.gauge("payment_circuit_failure_rate", "Failure rate of the payments in the window of the circuit breaker",
+            circuitBreaker::getFailureRate);
+        metrics.counter("payment_circuit_not_permitted_total", "Payments refused by the open circuit breaker",
+            circuitBreaker::getNotPermittedCalls);
+        Bulkhead bulkhead = orderManager.getPaymentProcessorFactory().getBulkhead();
+        metrics.gauge("payment_bulkhead_available", "Payments that can still start concurrently",
+            bulkhead::getAvailableConcurrentCalls);
+        metrics.counter("payment_bulkhead_rejected_total", "Payments refused by the full bulkhead",
+            bulkhead::getRejectedCalls);
+        
+        metrics.gauge("idempotency_keys", "Responses kept for Idempotency-Key replays", idempotencyStore::size);
+        metrics.counter("order_events_published_total", "Order transitions published on the event bus",
+            orderManager.getEventBus()::getPublishedCount);
+        metrics.counter("order_events_dropped_total", "Order transitions not published because the event bus was full",
+            orderManager::getDroppedEvents);
+        metrics.counter("order_event_handler_failures_total", "Batches of order events whose subscriber threw",
+            orderManager.getEventBus()::getHandlerFailures);
+        if (journal != null) {
+            metrics.counter("order_journal_write_failures_total", "Order changes the journal failed to write",
+                journal::getWriteFailures);
+            metrics.counter("order_journal_compaction_failures_total", "Compactions of the order journal that failed",
+                journal::getCompactionFailures);
+        }
+        metrics.gauge("timeslot_stream_subscribers", "Clients connected to the time slot stream",
+            timeSlotStream::getSubscriberCount);
+        metrics.counter("timeslot_stream_dropped_total", "Stream clients disconnected for not keeping up",
+            timeSlotStream::getDroppedSubscribers);
+        metrics.counter("timeslot_stream_events_total", "Events sent to the time slot stream clients",
+            timeSlotStream::getSentEvents);
     }
     
     public void start() {
-        server.setExecutor(null);
+        executor = ServerExecutors.create("order-server", options); // null keeps the default dispatcher thread
+        server.setExecutor(executor);
         server.start();
-        System.out.println(" Order Service started on port " + PORT);
+        if (snapshotter != null) {
+            snapshotter.start(Duration.ofSeconds(options.getSnapshotIntervalSeconds()));
+        }
+        System.out.println(" Order Service started on port " + PORT + " with executor " + options);
         System.out.println(" Available endpoints:");
         System.out.println("   POST http://localhost:" + PORT + "/api/orders");
         System.out.println("   GET  http://localhost:" + PORT + "/api/orders/{id}");
         System.out.println("   GET  http://localhost:" + PORT + "/api/timeslots?restaurantId={id}");
+        System.out.println("   GET  http://localhost:" + PORT + "/api/timeslots/stream?restaurantId={id}");
         System.out.println("   POST http://localhost:" + PORT + "/api/payment");
+        System.out.println("   GET  http://localhost:" + PORT + "/metrics");
     }
     
     public void stop() {
+        timeSlotStream.close();
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (snapshotter != null) {
+            try {
+                snapshotter.close();
+            } catch (IOException e) {
+                System.err.println("Failed to write the catalog snapshot: " + e.getMessage());
+            }
+        }
+        // After the payments in progress, whose orders are still registered and journaled
+        orderManager.close(Duration.ofSeconds(10));
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close the order journal: " + e.getMessage());
+            }
+        }
         System.out.println(" Order Service stopped");
     }
     
@@ -71,10 +216,18 @@ public class OrderServer {
         return restaurantManager;
     }
     
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+    
     public static void main(String[] args) {
+        ServerOptions options = ServerOptions.parse("order-server", args);
+        if (options == null) {
+            return;
+        }
         
         try {
-            OrderServer orderServer = new OrderServer();
+            OrderServer orderServer = new OrderServer(options);
             orderServer.start();
             
             System.out.println("\nPress Enter to stop the server...");
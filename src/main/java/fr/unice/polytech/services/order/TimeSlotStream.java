@@ -0,0 +1,380 @@
+package fr.unice.polytech.services.order;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import fr.unice.polytech.api.TimeSlotDTO;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantListener;
+import fr.unice.polytech.restaurants.TimeSlot;
+import fr.unice.polytech.services.order.mappers.OrderMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-Sent Events of the time slot capacities of restaurants (GET /api/timeslots/stream).
+ *
+ * A subscriber first gets a "snapshot" event with every slot of the restaurant, then "capacity" events
+ * with the slots whose capacity changed, as arrays of TimeSlotDTO. Changes are coalesced: the slots
+ * changed during the coalescing window are sent as one event, with their capacity at the time it is
+ * sent, and the event is encoded once for all the subscribers of the restaurant.
+ *
+ * Each subscriber has a bounded queue of events, written by a small pool of threads. A subscriber
+ * whose queue is full is too slow for the stream: it is disconnected and may reconnect to get a new
+ * snapshot. A comment line is sent regularly so that dead connections are noticed. A client that
+ * stops reading altogether blocks the thread writing to it: past writeTimeout, a watchdog drops it
+ * and interrupts that thread, which closes the connection, so the pool keeps serving the others.
+ *
+ * The listener of a restaurant is removed with its last subscriber.
+ */
+public class TimeSlotStream implements AutoCloseable {
+
+    public static final Duration DEFAULT_COALESCING_WINDOW = Duration.ofMillis(100);
+    public static final int DEFAULT_MAX_QUEUED_EVENTS = 32;
+    public static final Duration DEFAULT_WRITE_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long coalescingNanos;
+    private final int maxQueuedEvents;
+    private final long writeTimeoutNanos;
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    // Subscribers a thread is writing to or closing, watched for the write timeout
+    private final Set<Subscriber> blocking = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writers;
+    private final ExecutorService closers;
+    private final LongAdder droppedSubscribers = new LongAdder();
+    private final LongAdder sentEvents = new LongAdder();
+    private volatile boolean closed;
+
+    public TimeSlotStream() {
+        this(DEFAULT_COALESCING_WINDOW, DEFAULT_MAX_QUEUED_EVENTS);
+    }
+
+    public TimeSlotStream(Duration coalescingWindow, int maxQueuedEvents) {
+        this(coalescingWindow, maxQueuedEvents, DEFAULT_WRITE_TIMEOUT);
+    }
+
+    public TimeSlotStream(Duration coalescingWindow, int maxQueuedEvents, Duration writeTimeout) {
+        if (coalescingWindow == null || coalescingWindow.isNegative()) {
+            throw new IllegalArgumentException("Coalescing window cannot be negative");
+        }
+        if (maxQueuedEvents <= 0) {
+            throw new IllegalArgumentException("Queued events limit must be positive");
+        }
+        if (writeTimeout == null || writeTimeout.isNegative() || writeTimeout.isZero()) {
+            throw new IllegalArgumentException("Write timeout must be positive");
+        }
+        this.coalescingNanos = coalescingWindow.toNanos();
+        this.maxQueuedEvents = maxQueuedEvents;
+        this.writeTimeoutNanos = writeTimeout.toNanos();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("timeslot-stream"));
+        this.writers = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+                daemonThreads("timeslot-stream-writer-"));
+        // Closing is bounded by the write timeout too, so two threads keep up
+        this.closers = Executors.newFixedThreadPool(2, daemonThreads("timeslot-stream-closer-"));
+        long heartbeat = HEARTBEAT_INTERVAL.toMillis();
+        scheduler.scheduleWithFixedDelay(this::sendHeartbeat, heartbeat, heartbeat, TimeUnit.MILLISECONDS);
+        long watchdog = Math.max(1, writeTimeout.toMillis() / 2);
+        scheduler.scheduleWithFixedDelay(this::dropStalledSubscribers, watchdog, watchdog, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts streaming the capacities of the restaurant to the exchange, which stays open until the
+     * client disconnects, falls behind or the stream is closed.
+     */
+    public void subscribe(Restaurant restaurant, HttpExchange exchange) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Time slot stream is closed");
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        Subscriber[] subscriber = new Subscriber[1];
+        // Registered before the snapshot is read: a change made meanwhile is sent again in the next event.
+        // In compute, so that the channel cannot be removed by its last subscriber leaving meanwhile
+        Channel channel = channels.compute(restaurant.getId(), (id, existing) -> {
+            Channel current = existing != null ? existing : new Channel(restaurant);
+            subscriber[0] = new Subscriber(current, exchange);
+            current.subscribers.add(subscriber[0]);
+            return current;
+        });
+        subscriber[0].offer(channel.encode("snapshot", restaurant.getAllCapacities().keySet()));
+    }
+
+    //Restaurants with at least one subscriber, for tests.
+    int getChannelCount() {
+        return channels.size();
+    }
+
+    //Clients connected to the stream of every restaurant.
+    public int getSubscriberCount() {
+        int count = 0;
+        for (Channel channel : channels.values()) {
+            count += channel.subscribers.size();
+        }
+        return count;
+    }
+
+    //Subscribers disconnected because they did not keep up.
+    public long getDroppedSubscribers() {
+        return droppedSubscribers.sum();
+    }
+
+    //Events written to subscribers, heartbeats excluded.
+    public long getSentEvents() {
+        return sentEvents.sum();
+    }
+
+    //Disconnects every subscriber.
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.shutdownNow();
+        for (Channel channel : channels.values()) {
+            channel.restaurant.removeListener(channel);
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.disconnect();
+            }
+        }
+        writers.shutdownNow();
+        closers.shutdown();
+    }
+
+    private void sendHeartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    // A client that stopped reading holds its thread: drop it and interrupt the thread, which closes the connection
+    private void dropStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : blocking) {
+            subscriber.dropIfBlockedSince(now - writeTimeoutNanos);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix.endsWith("-") ? prefix + count.incrementAndGet() : prefix);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Subscribers of one restaurant and the slots changed since its last event
+    private class Channel implements RestaurantListener {
+        final Restaurant restaurant;
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final Set<TimeSlot> changedSlots = ConcurrentHashMap.newKeySet();
+        final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+        Channel(Restaurant restaurant) {
+            this.restaurant = restaurant;
+            restaurant.addListener(this);
+        }
+
+        @Override
+        public void catalogChanged(Restaurant restaurant) {
+            // Menus are not streamed
+        }
+
+        @Override
+        public void capacityChanged(Restaurant restaurant, TimeSlot slot, int capacity) {
+            // On the thread of the order: only note the slot, the event is built by the scheduler
+            if (subscribers.isEmpty()) {
+                return;
+            }
+            changedSlots.add(slot);
+            if (flushScheduled.compareAndSet(false, true)) {
+                try {
+                    scheduler.schedule(this::flush, coalescingNanos, TimeUnit.NANOSECONDS);
+                } catch (RejectedExecutionException e) {
+                    // Stream closed: nobody to tell
+                }
+            }
+        }
+
+        private void flush() {
+            flushScheduled.set(false);
+            List<TimeSlot> slots = new ArrayList<>(changedSlots.size());
+            for (Iterator<TimeSlot> it = changedSlots.iterator(); it.hasNext(); ) {
+                slots.add(it.next());
+                it.remove();
+            }
+            if (slots.isEmpty() || subscribers.isEmpty()) {
+                return;
+            }
+            byte[] event = encode("capacity", slots);
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(event);
+            }
+        }
+
+        private byte[] encode(String name, Iterable<TimeSlot> slots) {
+            List<TimeSlotDTO> dtos = new ArrayList<>();
+            for (TimeSlot slot : slots) {
+                dtos.add(OrderMapper.timeSlotToDTO(slot, restaurant.getCapacity(slot)));
+            }
+            try {
+                return ("event: " + name + "\n"
+                        + "id: " + restaurant.getCapacityVersion() + "\n"
+                        + "data: " + objectMapper.writeValueAsString(dtos) + "\n\n")
+                        .getBytes(StandardCharsets.UTF_8);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot encode time slots", e);
+            }
+        }
+    }
+
+    // One client: its events wait in a bounded queue, written by one writer thread at a time
+    private class Subscriber {
+        final Channel channel;
+        final HttpExchange exchange;
+        final OutputStream out;
+        final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(maxQueuedEvents);
+        final AtomicBoolean writing = new AtomicBoolean();
+        final AtomicBoolean connected = new AtomicBoolean(true);
+        // Thread blocked on the connection and since when, guarded by this
+        private Thread blockedThread;
+        private long blockedSince;
+
+        Subscriber(Channel channel, HttpExchange exchange) {
+            this.channel = channel;
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+        }
+
+        void offer(byte[] event) {
+            if (!connected.get()) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                droppedSubscribers.increment();
+                disconnect();
+                return;
+            }
+            scheduleWrite();
+        }
+
+        private void scheduleWrite() {
+            if (writing.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::write);
+                } catch (RejectedExecutionException e) {
+                    disconnect(); // stream closed
+                }
+            }
+        }
+
+        private void write() {
+            try {
+                byte[] event;
+                while ((event = queue.poll()) != null && connected.get()) {
+                    block();
+                    out.write(event);
+                    if (event != HEARTBEAT) {
+                        sentEvents.increment();
+                    }
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                    unblock();
+                }
+            } catch (IOException e) {
+                disconnect(); // client gone, or stalled past the write timeout
+            } finally {
+                unblock();
+                writing.set(false);
+            }
+            // An event offered after the last poll but before writing was released
+            if (!queue.isEmpty() && connected.get()) {
+                scheduleWrite();
+            }
+        }
+
+        void disconnect() {
+            if (connected.compareAndSet(true, false)) {
+                channel.subscribers.remove(this);
+                channels.computeIfPresent(channel.restaurant.getId(), (id, current) -> {
+                    if (current == channel && current.subscribers.isEmpty()) {
+                        channel.restaurant.removeListener(channel);
+                        return null;
+                    }
+                    return current;
+                });
+                queue.clear();
+                // Closing ends the chunked body, which blocks as long as the client does not read:
+                // never on the thread of an order or of the broadcast, and watched like a write
+                try {
+                    closers.execute(this::close);
+                } catch (RejectedExecutionException e) {
+                    exchange.close();
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                block();
+                exchange.close();
+            } finally {
+                unblock();
+            }
+        }
+
+        private synchronized void block() {
+            blockedThread = Thread.currentThread();
+            blockedSince = System.nanoTime();
+            blocking.add(this);
+        }
+
+        private void unblock() {
+            synchronized (this) {
+                blockedThread = null;
+                blocking.remove(this);
+            }
+            Thread.interrupted(); // an interrupt that came too late must not hit the next task of the pool
+        }
+
+        // Under the lock, so that the thread is not interrupted once it moved on to another subscriber
+        synchronized void dropIfBlockedSince(long deadline) {
+            if (blockedThread == null || blockedSince - deadline > 0) {
+                return;
+            }
+            if (connected.get()) {
+                droppedSubscribers.increment();
+                disconnect();
+            }
+            blockedThread.interrupt();
+            blockedThread = null;
+        }
+    }
+}
@@ -12,14 +12,13 @@ import fr.unice.polytech.restaurants.RestaurantManager;
 import fr.unice.polytech.services.order.mappers.OrderMapper;
 import fr.unice.polytech.users.DeliveryLocation;
 import fr.unice.polytech.users.StudentAccount;
+import fr.unice.polytech.services.JsonResponses;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Handler for Order endpoints
@@ -56,8 +55,10 @@ public class OrderHandler implements HttpHandler {
             .bankInfo("1234567890123456", 123, 12, 2026)
             .build();
         
-        // Create mock restaurants
-        initializeMockRestaurants();
+        // Create mock restaurants, unless they were loaded from a snapshot
+        if (restaurantManager.getAllRestaurants().isEmpty()) {
+            initializeMockRestaurants();
+        }
     }
     
     @Override
@@ -71,11 +72,11 @@ public class OrderHandler implements HttpHandler {
             } else if ("GET".equals(method) && path.matches("/api/orders/\\d+")) {
                 handleGetOrder(exchange);
             } else {
-                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                JsonResponses.sendError(exchange, 405, "Method not allowed");
             }
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 500, e.getMessage());
         }
     }
     
@@ -87,19 +88,19 @@ public class OrderHandler implements HttpHandler {
         
         // Validate required fields
         if (orderDTO.getRestaurantId() == null) {
-            sendResponse(exchange, 400, "{\"error\": \"Restaurant ID is required\"}");
+            JsonResponses.sendError(exchange, 400, "Restaurant ID is required");
             return;
         }
         
         if (orderDTO.getDishes() == null || orderDTO.getDishes().isEmpty()) {
-            sendResponse(exchange, 400, "{\"error\": \"Order must contain at least one dish\"}");
+            JsonResponses.sendError(exchange, 400, "Order must contain at least one dish");
             return;
         }
         
         // Find restaurant
         Restaurant restaurant = findRestaurantById(orderDTO.getRestaurantId());
         if (restaurant == null) {
-            sendResponse(exchange, 404, "{\"error\": \"Restaurant not found\"}");
+            JsonResponses.sendError(exchange, 404, "Restaurant not found");
             return;
         }
         
@@ -119,25 +120,14 @@ public class OrderHandler implements HttpHandler {
         
         try {
             // Create order
-            orderManager.createOrder(dishes, mockStudent, deliveryLocation, restaurant);
-            
-            // Get the pending order (last created)
-            List<Order> pendingOrders = orderManager.getPendingOrders();
-            if (pendingOrders.isEmpty()) {
-                sendResponse(exchange, 500, "{\"error\": \"Failed to create order\"}");
-                return;
-            }
-            
-            Order createdOrder = pendingOrders.get(pendingOrders.size() - 1);
+            Order createdOrder = orderManager.createOrder(dishes, mockStudent, deliveryLocation, restaurant);
             
             // Convert to DTO
             OrderDTO responseDTO = OrderMapper.toDTO(createdOrder);
-            String jsonResponse = objectMapper.writeValueAsString(responseDTO);
-            
-            sendResponse(exchange, 201, jsonResponse);
+            JsonResponses.sendValue(exchange, 201, responseDTO);
             
         } catch (IllegalArgumentException e) {
-            sendResponse(exchange, 400, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 400, e.getMessage());
         }
     }
     
@@ -148,44 +138,21 @@ public class OrderHandler implements HttpHandler {
         try {
             long id = Long.parseLong(idStr);
             
-            // Search in registered orders
-            Optional<Order> order = orderManager.getRegisteredOrders().stream()
-                .filter(o -> o.hashCode() == id)
-                .findFirst();
+            Order order = orderManager.findOrderById(id);
             
-            // If not found, search in pending orders
-            if (!order.isPresent()) {
-                order = orderManager.getPendingOrders().stream()
-                    .filter(o -> o.hashCode() == id)
-                    .findFirst();
-            }
-            
-            if (order.isPresent()) {
-                OrderDTO dto = OrderMapper.toDTO(order.get());
-                String jsonResponse = objectMapper.writeValueAsString(dto);
-                sendResponse(exchange, 200, jsonResponse);
+            if (order != null) {
+                OrderDTO dto = OrderMapper.toDTO(order);
+                JsonResponses.sendValue(exchange, 200, dto);
             } else {
-                sendResponse(exchange, 404, "{\"error\": \"Order not found\"}");
+                JsonResponses.sendError(exchange, 404, "Order not found");
             }
         } catch (NumberFormatException e) {
-            sendResponse(exchange, 400, "{\"error\": \"Invalid order ID\"}");
+            JsonResponses.sendError(exchange, 400, "Invalid order ID");
         }
     }
     
     private Restaurant findRestaurantById(Long id) {
-        return restaurantManager.getAllRestaurants().stream()
-            .filter(r -> r.hashCode() == id)
-            .findFirst()
-            .orElse(null);
-    }
-    
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
+        return restaurantManager.getRestaurantById(id);
     }
     
     private void initializeMockRestaurants() {
@@ -204,7 +171,7 @@ public class OrderHandler implements HttpHandler {
         // Print restaurant IDs for testing
         System.out.println("\n📋 Available Restaurants:");
         for (Restaurant r : restaurantManager.getAllRestaurants()) {
-            System.out.println("   ID: " + r.hashCode() + " - " + r.getRestaurantName());
+            System.out.println("   ID: " + r.getId() + " - " + r.getRestaurantName());
         }
         System.out.println();
     }
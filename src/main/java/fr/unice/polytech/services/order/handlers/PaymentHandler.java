@@ -7,18 +7,26 @@ import com.sun.net.httpserver.HttpHandler;
 import fr.unice.polytech.orderManagement.Order;
 import fr.unice.polytech.orderManagement.OrderManager;
 import fr.unice.polytech.orderManagement.OrderStatus;
+import fr.unice.polytech.paymentProcessing.Bulkhead;
+import fr.unice.polytech.paymentProcessing.CircuitBreaker;
 import fr.unice.polytech.paymentProcessing.PaymentMethod;
+import fr.unice.polytech.paymentProcessing.PaymentProcessorFactory;
+import fr.unice.polytech.services.JsonResponses;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.Optional;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Payment Handler - Acts as a proxy to payment services
  * 
  * POST /api/payment
+ * GET  /api/payment/metrics - State of the circuit breaker and bulkhead around the external payment system
+ * 
+ * The response waits for the final status (200 validated, 402 canceled), unless the request
+ * asks for asynchronous processing: then it is 202 Accepted at once, with the order to poll in Location.
  * 
  * TD requirement: "Pour le paiement lui-même, un accès à un proxy 
  * vers un service potentiel est suffisant (P1)"
@@ -35,16 +43,19 @@ public class PaymentHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
         
         try {
             if ("POST".equals(method)) {
                 handleProcessPayment(exchange);
+            } else if ("GET".equals(method) && path.equals("/api/payment/metrics")) {
+                handleGetMetrics(exchange);
             } else {
-                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                JsonResponses.sendError(exchange, 405, "Method not allowed");
             }
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 500, e.getMessage());
         }
     }
     
@@ -56,7 +67,7 @@ public class PaymentHandler implements HttpHandler {
         
         // Extract payment info
         if (!jsonNode.has("orderId") || !jsonNode.has("paymentMethod")) {
-            sendResponse(exchange, 400, "{\"error\": \"Order ID and payment method are required\"}");
+            JsonResponses.sendError(exchange, 400, "Order ID and payment method are required");
             return;
         }
         
@@ -68,31 +79,38 @@ public class PaymentHandler implements HttpHandler {
         try {
             paymentMethod = PaymentMethod.valueOf(paymentMethodStr.toUpperCase());
         } catch (IllegalArgumentException e) {
-            sendResponse(exchange, 400, "{\"error\": \"Invalid payment method. Use INTERNAL or EXTERNAL\"}");
+            JsonResponses.sendError(exchange, 400, "Invalid payment method. Use INTERNAL or EXTERNAL");
             return;
         }
         
         // Find the order
-        Optional<Order> orderOpt = orderManager.getPendingOrders().stream()
-            .filter(o -> o.hashCode() == orderId)
-            .findFirst();
+        Order order = orderManager.findPendingOrderById(orderId);
         
-        if (!orderOpt.isPresent()) {
-            sendResponse(exchange, 404, "{\"error\": \"Order not found or already processed\"}");
+        if (order == null) {
+            JsonResponses.sendError(exchange, 404, "Order not found or already processed");
             return;
         }
         
-        Order order = orderOpt.get();
-        
         try {
-            // Process payment via OrderManager
-            orderManager.initiatePayment(order, paymentMethod);
+            // Process payment via OrderManager: the order is registered once the payment completes
+            CompletableFuture<OrderStatus> payment = orderManager.initiatePaymentAsync(order, paymentMethod);
             
-            // Register order if payment succeeded
-            boolean registered = orderManager.registerOrder(order, order.getRestaurant());
+            if (respondAsync(exchange, jsonNode)) {
+                // Do not hold the HTTP thread during the retries: the client polls the order
+                exchange.getResponseHeaders().set("Location", "/api/orders/" + orderId);
+                JsonResponses.sendValue(exchange, 202, Map.of(
+                    "orderId", orderId,
+                    "status", OrderStatus.PENDING.toString(),
+                    "message", "Payment processing. Poll GET /api/orders/" + orderId + " for the final status.",
+                    "paymentMethod", paymentMethod.toString(),
+                    "registered", false
+                ));
+                return;
+            }
             
             // Build response
-            OrderStatus finalStatus = order.getOrderStatus();
+            OrderStatus finalStatus = payment.join();
+            boolean registered = finalStatus == OrderStatus.VALIDATED;
             String message;
             int statusCode;
             
@@ -107,7 +125,7 @@ public class PaymentHandler implements HttpHandler {
                 statusCode = 202; // Accepted
             }
             
-            String jsonResponse = objectMapper.writeValueAsString(Map.of(
+            JsonResponses.sendValue(exchange, statusCode, Map.of(
                 "orderId", orderId,
                 "status", finalStatus.toString(),
                 "message", message,
@@ -115,20 +133,39 @@ public class PaymentHandler implements HttpHandler {
                 "registered", registered
             ));
             
-            sendResponse(exchange, statusCode, jsonResponse);
-            
         } catch (IllegalArgumentException e) {
-            sendResponse(exchange, 400, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 400, e.getMessage());
         }
     }
     
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
+    private void handleGetMetrics(HttpExchange exchange) throws IOException {
+        PaymentProcessorFactory factory = orderManager.getPaymentProcessorFactory();
+        CircuitBreaker circuitBreaker = factory.getCircuitBreaker();
+        Bulkhead bulkhead = factory.getBulkhead();
         
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
+        java.util.Map<String, Object> breakerMetrics = new LinkedHashMap<>();
+        breakerMetrics.put("state", circuitBreaker.getState().toString());
+        breakerMetrics.put("failureRate", circuitBreaker.getFailureRate());
+        breakerMetrics.put("bufferedCalls", circuitBreaker.getBufferedCalls());
+        breakerMetrics.put("failedCalls", circuitBreaker.getFailedCalls());
+        breakerMetrics.put("notPermittedCalls", circuitBreaker.getNotPermittedCalls());
+        
+        java.util.Map<String, Object> bulkheadMetrics = new LinkedHashMap<>();
+        bulkheadMetrics.put("maxConcurrentCalls", bulkhead.getMaxConcurrentCalls());
+        bulkheadMetrics.put("availableConcurrentCalls", bulkhead.getAvailableConcurrentCalls());
+        bulkheadMetrics.put("rejectedCalls", bulkhead.getRejectedCalls());
+        
+        java.util.Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("circuitBreaker", breakerMetrics);
+        metrics.put("bulkhead", bulkheadMetrics);
+        JsonResponses.sendValue(exchange, 200, metrics);
+    }
+    
+    // Asynchronous processing is requested with "Prefer: respond-async" (RFC 7240) or "async": true
+    private boolean respondAsync(HttpExchange exchange, JsonNode jsonNode) {
+        String prefer = exchange.getRequestHeaders().getFirst("Prefer");
+        return (prefer != null && prefer.contains("respond-async"))
+            || jsonNode.path("async").asBoolean(false);
     }
     
     // Helper to create Map easily
@@ -1,99 +1,111 @@
 package fr.unice.polytech.services.order.handlers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import fr.unice.polytech.api.TimeSlotDTO;
 import fr.unice.polytech.restaurants.Restaurant;
 import fr.unice.polytech.restaurants.RestaurantManager;
 import fr.unice.polytech.restaurants.TimeSlot;
+import fr.unice.polytech.services.ETags;
+import fr.unice.polytech.services.JsonResponses;
+import fr.unice.polytech.services.order.TimeSlotStream;
 import fr.unice.polytech.services.order.mappers.OrderMapper;
 
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.URI;
 import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 /**
  * Handler for TimeSlot endpoints
  * 
  * GET /api/timeslots?restaurantId={id}
+ * GET /api/timeslots/stream?restaurantId={id} - Server-Sent Events of the capacity changes
  * 
  * TD requirement: "visualisant les heures de livraisons possibles 
  * qui évoluent en fonction de la commande et des autres commandes"
  */
 public class TimeSlotHandler implements HttpHandler {
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Availability changes with every order: clients must revalidate each time, which costs a 304 when nothing changed
+    private static final String CACHE_CONTROL = "no-cache";
+    
     private final RestaurantManager restaurantManager;
+    private final TimeSlotStream stream;
     
     public TimeSlotHandler(RestaurantManager restaurantManager) {
+        this(restaurantManager, new TimeSlotStream());
+    }
+    
+    public TimeSlotHandler(RestaurantManager restaurantManager, TimeSlotStream stream) {
         this.restaurantManager = restaurantManager;
+        this.stream = stream;
         initializeMockTimeSlots();
     }
     
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
         
         try {
-            if ("GET".equals(method)) {
+            if ("GET".equals(method) && path.equals("/api/timeslots/stream")) {
+                handleStream(exchange);
+            } else if ("GET".equals(method)) {
                 handleGetTimeSlots(exchange);
             } else {
-                sendResponse(exchange, 405, "{\"error\": \"Method not allowed\"}");
+                JsonResponses.sendError(exchange, 405, "Method not allowed");
             }
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500, "{\"error\": \"" + e.getMessage() + "\"}");
+            JsonResponses.sendError(exchange, 500, e.getMessage());
         }
     }
     
     private void handleGetTimeSlots(HttpExchange exchange) throws IOException {
-        URI uri = exchange.getRequestURI();
-        Map<String, String> queryParams = parseQueryParams(uri.getQuery());
+        // Find restaurant
+        Restaurant restaurant = findRestaurant(exchange);
+        if (restaurant == null) {
+            return;
+        }
         
-        String restaurantIdStr = queryParams.get("restaurantId");
-        if (restaurantIdStr == null || restaurantIdStr.isEmpty()) {
-            sendResponse(exchange, 400, "{\"error\": \"Restaurant ID is required\"}");
+        // Read the version before the capacities, so a concurrent change can only make the ETag stale
+        if (ETags.notModified(exchange, ETags.of(restaurant.getCapacityVersion()), CACHE_CONTROL)) {
             return;
         }
         
+        // Capacities read once, so that a slot filled meanwhile is neither listed with 0 nor read twice
+        Map<TimeSlot, Integer> capacities = restaurant.getAllCapacities();
+        capacities.values().removeIf(capacity -> capacity <= 0); // Only return slots with capacity
+        
+        JsonResponses.sendArray(exchange, 200, capacities.entrySet(),
+            slot -> OrderMapper.timeSlotToDTO(slot.getKey(), slot.getValue()));
+    }
+    
+    // The exchange is left open: the stream writes to it until the client goes away
+    private void handleStream(HttpExchange exchange) throws IOException {
+        Restaurant restaurant = findRestaurant(exchange);
+        if (restaurant != null) {
+            stream.subscribe(restaurant, exchange);
+        }
+    }
+    
+    // Sends the error and returns null if the restaurantId parameter is missing, invalid or unknown
+    private Restaurant findRestaurant(HttpExchange exchange) throws IOException {
+        String restaurantIdStr = parseQueryParams(exchange.getRequestURI().getQuery()).get("restaurantId");
+        if (restaurantIdStr == null || restaurantIdStr.isEmpty()) {
+            JsonResponses.sendError(exchange, 400, "Restaurant ID is required");
+            return null;
+        }
         try {
-            long restaurantId = Long.parseLong(restaurantIdStr);
-            
-            // Find restaurant
-            Restaurant restaurant = restaurantManager.getAllRestaurants().stream()
-                .filter(r -> r.hashCode() == restaurantId)
-                .findFirst()
-                .orElse(null);
-            
+            Restaurant restaurant = restaurantManager.getRestaurantById(Long.parseLong(restaurantIdStr));
             if (restaurant == null) {
-                sendResponse(exchange, 404, "{\"error\": \"Restaurant not found\"}");
-                return;
+                JsonResponses.sendError(exchange, 404, "Restaurant not found");
             }
-            
-            // Get available time slots
-            List<TimeSlot> availableSlots = restaurantManager.getAvailableTimeSlots(restaurant);
-            
-            // Convert to DTOs with capacity info
-            List<TimeSlotDTO> slotDTOs = availableSlots.stream()
-                .map(slot -> {
-                    int capacity = restaurant.getCapacity(slot);
-                    return OrderMapper.timeSlotToDTO(slot, capacity);
-                })
-                .filter(dto -> dto.getAvailableCapacity() > 0) // Only return slots with capacity
-                .collect(Collectors.toList());
-            
-            String jsonResponse = objectMapper.writeValueAsString(slotDTOs);
-            sendResponse(exchange, 200, jsonResponse);
-            
+            return restaurant;
         } catch (NumberFormatException e) {
-            sendResponse(exchange, 400, "{\"error\": \"Invalid restaurant ID\"}");
+            JsonResponses.sendError(exchange, 400, "Invalid restaurant ID");
+            return null;
         }
     }
     
@@ -112,20 +124,14 @@ public class TimeSlotHandler implements HttpHandler {
         return params;
     }
     
-    private void sendResponse(HttpExchange exchange, int statusCode, String response) throws IOException {
-        exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(statusCode, response.getBytes().length);
-        
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(response.getBytes());
-        }
-    }
-    
     // ========== MOCK DATA ==========
     
     private void initializeMockTimeSlots() {
-        // Create time slots for all restaurants
+        // Create time slots for all restaurants, except those loaded from a snapshot with their own
         for (Restaurant restaurant : restaurantManager.getAllRestaurants()) {
+            if (!restaurant.getAllCapacities().isEmpty()) {
+                continue;
+            }
             // Lunch time slots (12:00 - 14:00)
             TimeSlot lunch1 = new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(12, 0), LocalTime.of(12, 30));
             TimeSlot lunch2 = new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(12, 30), LocalTime.of(13, 0));
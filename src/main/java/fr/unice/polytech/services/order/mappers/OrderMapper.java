@@ -17,9 +17,9 @@ public class OrderMapper {
     
     public static OrderDTO toDTO(Order order) {
         OrderDTO dto = new OrderDTO();
-        dto.setId((long) order.hashCode());
+        dto.setId(order.getId());
         dto.setStudentId(order.getStudentAccount().getStudentID());
-        dto.setRestaurantId((long) order.getRestaurant().hashCode());
+        dto.setRestaurantId(order.getRestaurant().getId());
         dto.setTotalAmount(order.getAmount());
         dto.setStatus(order.getOrderStatus().toString());
         dto.setDeliveryLocation(order.getDeliveryLocation() != null ? 
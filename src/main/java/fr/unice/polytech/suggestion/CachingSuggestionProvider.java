@@ -0,0 +1,136 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suggestions of another provider, cached by normalized keyword: autocomplete asks for the
+ * same prefixes again and again, whoever types them. The provider is asked with the normalized
+ * keyword too, so that every keyword sharing an entry gets the suggestions it would have had.
+ *
+ * Entries are tagged with the generation they were computed in. Learning a dish (or
+ * invalidate) starts a new generation, so older entries are simply missed and replaced, nothing
+ * is cleared. Beyond maxEntries, the least recently used keyword is evicted.
+ */
+public class CachingSuggestionProvider implements SuggestionProvider {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    private final SuggestionProvider delegate;
+    private final Map<String, Entry> entries;
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CachingSuggestionProvider(SuggestionProvider delegate) {
+        this(delegate, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingSuggestionProvider(SuggestionProvider delegate, int maxEntries) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Provider cannot be null");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.delegate = delegate;
+        // Access order: iteration starts with the least recently used entry
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public List<DishInfo> getSuggestions(String keyword) {
+        String key = SearchText.normalize(keyword);
+        // Read the generation before computing, so a concurrent learn can only make the entry stale
+        long current = generation.get();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.generation == current) {
+                hits.increment();
+                return entry.suggestions;
+            }
+        }
+        misses.increment();
+        List<DishInfo> suggestions = List.copyOf(delegate.getSuggestions(key));
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.generation <= current) {
+                entries.put(key, new Entry(current, suggestions));
+            }
+        }
+        return suggestions;
+    }
+
+    @Override
+    public void learnFrom(Dish dish) {
+        delegate.learnFrom(dish);
+        invalidate();
+    }
+
+    //Makes every cached suggestion stale, they are recomputed when next asked for.
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    //Forgets the suggestions cached for this keyword only.
+    public void invalidate(String keyword) {
+        String key = SearchText.normalize(keyword);
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    //Share of the requests answered from the cache, 0 before the first one.
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static final class Entry {
+        private final long generation;
+        private final List<DishInfo> suggestions;
+
+        private Entry(long generation, List<DishInfo> suggestions) {
+            this.generation = generation;
+            this.suggestions = suggestions;
+        }
+    }
+}
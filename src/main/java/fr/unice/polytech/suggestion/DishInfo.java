@@ -3,6 +3,8 @@ package fr.unice.polytech.suggestion;
 import fr.unice.polytech.dishes.DishCategory;
 import fr.unice.polytech.dishes.DishType;
 
+import java.util.Objects;
+
 public class DishInfo {
     public final String name;
     public final String description;
@@ -15,4 +17,21 @@ public class DishInfo {
         this.dishType = dishType;
         this.dishCategory = dishCategory;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) return false;
+        DishInfo dishInfo = (DishInfo) o;
+        return Objects.equals(name, dishInfo.name) && Objects.equals(description, dishInfo.description) && dishType == dishInfo.dishType && dishCategory == dishInfo.dishCategory;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, description, dishType, dishCategory);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + description + ")";
+    }
+}
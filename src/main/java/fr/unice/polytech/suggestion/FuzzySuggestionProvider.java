@@ -0,0 +1,385 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo tolerant suggestions: "piza", "sushis" or "salad" still find their dish.
+ *
+ * The words of names and descriptions form a vocabulary, each word with the dishes using it.
+ * Words are split into trigrams, each with the words that contain it. A query scores the words
+ * sharing its trigrams, verifies only the best ones with a bounded edit distance, then ranks at
+ * most a few hundred dishes of each word that passed: a catalog of 100k dishes with the same
+ * few thousand words costs about the same as a small one.
+ */
+public class FuzzySuggestionProvider implements SuggestionProvider {
+
+    public static final int DEFAULT_LIMIT = 10;
+    // Words of the vocabulary verified by edit distance, the ones sharing the most trigrams with the query
+    private static final int CANDIDATE_WORDS = 64;
+    // Dishes considered per matching word: a word shared by thousands of dishes must not cost thousands of checks
+    private static final int MAX_DISHES_PER_WORD = 256;
+
+    // An indexed dish, with the normalized words the rest of a query is checked against
+    private static class Indexed {
+        final int id;
+        final DishInfo info;
+        final String name;
+        final String[] words;
+
+        Indexed(int id, DishInfo info, String name, List<String> words) {
+            this.id = id;
+            this.info = info;
+            this.name = name;
+            this.words = words.toArray(new String[0]);
+        }
+    }
+
+    // A growable list of IDs, in insertion order
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    // A word of the vocabulary and the dishes using it
+    private static class Word {
+        final String text;
+        final Postings inNames = new Postings();
+        final Postings inDescriptions = new Postings();
+
+        Word(String text) {
+            this.text = text;
+        }
+    }
+
+    // A verified dish: name matches first, then the fewest edits, the name closest in length
+    // to the query ("Pizza" before "Pizza Margherita") and the most shared trigrams
+    private static class Match implements Comparable<Match> {
+        final Indexed dish;
+        final boolean inName;
+        final int edits;
+        final int lengthGap;
+        final int score;
+
+        Match(Indexed dish, boolean inName, int edits, int lengthGap, int score) {
+            this.dish = dish;
+            this.inName = inName;
+            this.edits = edits;
+            this.lengthGap = lengthGap;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            if (inName != other.inName) {
+                return inName ? -1 : 1;
+            }
+            if (edits != other.edits) {
+                return Integer.compare(edits, other.edits);
+            }
+            if (lengthGap != other.lengthGap) {
+                return Integer.compare(lengthGap, other.lengthGap);
+            }
+            return Integer.compare(other.score, score);
+        }
+    }
+
+    // Per thread buffers, so that a query allocates nothing proportional to the catalog
+    private static class Scratch {
+        int[] wordScores = new int[0];
+        int[] dishMarks = new int[0];
+        int mark;
+    }
+
+    private final List<Indexed> dishes = new ArrayList<>();
+    private final Set<String> names = new HashSet<>();
+    private final List<Word> vocabulary = new ArrayList<>();
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final Map<Long, Postings> trigramWords = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public FuzzySuggestionProvider() {
+    }
+
+    public FuzzySuggestionProvider(Iterable<DishInfo> dishes) {
+        for (DishInfo dish : dishes) {
+            add(dish);
+        }
+    }
+
+    @Override
+    public void learnFrom(Dish dish) {
+        add(new DishInfo(dish.getName(), dish.getDescription(), dish.getCuisineType(), dish.getCategory()));
+    }
+
+    //Indexes a dish, unless a dish with the same normalized name already is.
+    public void add(DishInfo info) {
+        String name = SearchText.normalize(info.name);
+        if (name.isEmpty()) {
+            return;
+        }
+        List<String> nameWords = SearchText.words(name);
+        List<String> descriptionWords = SearchText.words(SearchText.normalize(info.description));
+        List<String> words = new ArrayList<>(nameWords);
+        words.addAll(descriptionWords);
+        lock.writeLock().lock();
+        try {
+            if (!names.add(name)) {
+                return;
+            }
+            Indexed dish = new Indexed(dishes.size(), info, name, words);
+            dishes.add(dish);
+            for (String word : nameWords) {
+                word(word).inNames.add(dish.id);
+            }
+            for (String word : descriptionWords) {
+                word(word).inDescriptions.add(dish.id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Gets a word of the vocabulary, indexing its trigrams the first time it is seen
+    private Word word(String text) {
+        Integer id = wordIds.get(text);
+        if (id != null) {
+            return vocabulary.get(id);
+        }
+        Word word = new Word(text);
+        int newId = vocabulary.size();
+        vocabulary.add(word);
+        wordIds.put(text, newId);
+        for (long trigram : trigrams(text)) {
+            trigramWords.computeIfAbsent(trigram, t -> new Postings()).add(newId);
+        }
+        return word;
+    }
+
+    @Override
+    public List<DishInfo> getSuggestions(String keyword) {
+        return getSuggestions(keyword, DEFAULT_LIMIT);
+    }
+
+    public List<DishInfo> getSuggestions(String keyword, int limit) {
+        String query = SearchText.normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<String> queryWords = SearchText.words(query);
+        // The longest word is the most selective one, the others only filter its dishes
+        String primary = Collections.max(queryWords, Comparator.comparingInt(String::length));
+        List<String> others = new ArrayList<>(queryWords);
+        others.remove(primary);
+
+        PriorityQueue<Match> best = new PriorityQueue<>(limit + 1, Comparator.reverseOrder());
+        lock.readLock().lock();
+        try {
+            Scratch buffers = scratch.get();
+            int[] wordIdsByEdits = matchingWords(primary, buffers);
+            int mark = nextMark(buffers);
+            // Names first: a dish reached by its name is not considered again through its description
+            for (boolean inName : new boolean[] {true, false}) {
+                for (int i = 0; i < wordIdsByEdits.length; i += 2) {
+                    Word word = vocabulary.get(wordIdsByEdits[i]);
+                    Postings postings = inName ? word.inNames : word.inDescriptions;
+                    for (int p = 0; p < postings.size && p < MAX_DISHES_PER_WORD; p++) {
+                        Indexed dish = dishes.get(postings.ids[p]);
+                        if (buffers.dishMarks[dish.id] == mark || !matchesAll(dish, others)) {
+                            continue;
+                        }
+                        buffers.dishMarks[dish.id] = mark;
+                        best.offer(new Match(dish, inName, wordIdsByEdits[i + 1],
+                                Math.abs(dish.name.length() - query.length()), buffers.wordScores[wordIdsByEdits[i]]));
+                        if (best.size() > limit) {
+                            best.poll();
+                        }
+                    }
+                }
+            }
+            clearScores(primary, buffers);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Match> matches = new ArrayList<>(best);
+        Collections.sort(matches);
+        List<DishInfo> suggestions = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            suggestions.add(match.dish.info);
+        }
+        return suggestions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return dishes.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Words within the allowed edits of the query word, as (word ID, edits) pairs sorted by edits.
+     * Only the words sharing the most trigrams with it are verified.
+     */
+    private int[] matchingWords(String queryWord, Scratch buffers) {
+        if (buffers.wordScores.length < vocabulary.size()) {
+            buffers.wordScores = new int[Math.max(vocabulary.size(), buffers.wordScores.length * 2)];
+        }
+        int[] scores = buffers.wordScores;
+        Postings touched = new Postings();
+        for (long trigram : trigrams(queryWord)) {
+            Postings words = trigramWords.get(trigram);
+            if (words == null) {
+                continue;
+            }
+            for (int i = 0; i < words.size; i++) {
+                if (scores[words.ids[i]]++ == 0) {
+                    touched.add(words.ids[i]);
+                }
+            }
+        }
+        PriorityQueue<Integer> candidates = new PriorityQueue<>(CANDIDATE_WORDS + 1, Comparator.comparingInt(id -> scores[id]));
+        for (int i = 0; i < touched.size; i++) {
+            candidates.offer(touched.ids[i]);
+            if (candidates.size() > CANDIDATE_WORDS) {
+                candidates.poll();
+            }
+        }
+
+        int maxEdits = maxEdits(queryWord);
+        List<int[]> matches = new ArrayList<>();
+        for (int id : candidates) {
+            int edits = prefixDistance(queryWord, vocabulary.get(id).text, maxEdits);
+            if (edits <= maxEdits) {
+                matches.add(new int[] {id, edits});
+            }
+        }
+        matches.sort(Comparator.<int[]>comparingInt(match -> match[1]).thenComparingInt(match -> -scores[match[0]]));
+        int[] pairs = new int[matches.size() * 2];
+        for (int i = 0; i < matches.size(); i++) {
+            pairs[2 * i] = matches.get(i)[0];
+            pairs[2 * i + 1] = matches.get(i)[1];
+        }
+        return pairs;
+    }
+
+    // Resets the scores touched by the trigrams of the query word
+    private void clearScores(String queryWord, Scratch buffers) {
+        for (long trigram : trigrams(queryWord)) {
+            Postings words = trigramWords.get(trigram);
+            if (words != null) {
+                for (int i = 0; i < words.size; i++) {
+                    buffers.wordScores[words.ids[i]] = 0;
+                }
+            }
+        }
+    }
+
+    // A new mark for the dishes seen by this query, instead of clearing the previous ones
+    private int nextMark(Scratch buffers) {
+        if (buffers.dishMarks.length < dishes.size()) {
+            buffers.dishMarks = new int[Math.max(dishes.size(), buffers.dishMarks.length * 2)];
+        }
+        if (++buffers.mark == Integer.MAX_VALUE) {
+            Arrays.fill(buffers.dishMarks, 0);
+            buffers.mark = 1;
+        }
+        return buffers.mark;
+    }
+
+    // Every other word of the query must be within its allowed edits of (the start of) a word of the dish
+    private static boolean matchesAll(Indexed dish, List<String> queryWords) {
+        for (String queryWord : queryWords) {
+            int maxEdits = maxEdits(queryWord);
+            boolean found = false;
+            for (String word : dish.words) {
+                if (prefixDistance(queryWord, word, maxEdits) <= maxEdits) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Allowed typos grow with the length of the word
+    private static int maxEdits(String word) {
+        if (word.length() <= 2) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein distance between the query and the closest prefix of the text, so that a word
+     * being typed matches: "piz" is 0 from "pizza". Gives up (returns max + 1) as soon as every
+     * prefix is further than max.
+     */
+    static int prefixDistance(String query, String text, int max) {
+        int[] previous = new int[text.length() + 1];
+        int[] current = new int[text.length() + 1];
+        for (int j = 0; j <= text.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char q = query.charAt(i - 1);
+            for (int j = 1; j <= text.length(); j++) {
+                int substitution = previous[j - 1] + (q == text.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int distance = max + 1;
+        for (int value : previous) {
+            distance = Math.min(distance, value);
+        }
+        return distance;
+    }
+
+    // Distinct trigrams of a word padded with spaces
+    private static Set<Long> trigrams(String word) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        String padded = " " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
@@ -1,23 +1,161 @@
 package fr.unice.polytech.suggestion;
 
 import fr.unice.polytech.dishes.Dish;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
+/**
+ * Dishes learned recently, one entry per normalized name.
+ *
+ * Each dish has a popularity that grows by one every time it is learned and halves every
+ * half-life, so suggestions favour what is ordered often and lately. The history holds at most
+ * capacity dishes: beyond that, the least popular one is evicted (LFU with decay).
+ *
+ * As every popularity decays at the same rate, the order between two dishes only changes when one
+ * is learned: dishes are kept sorted by log2(popularity) + updatedAt / halfLife, which is their
+ * popularity at any time up to a common factor, so finding the least popular costs O(log capacity).
+ */
 public class HistorySuggestionProvider implements SuggestionProvider {
 
-    private final List<Dish> history = new ArrayList<>();
+    public static final int DEFAULT_CAPACITY = 1000;
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofHours(24);
+    public static final int MAX_SUGGESTIONS = 10;
 
+    // A learned dish and its popularity at the time of its last update
+    private static class Entry {
+        final String key;
+        final DishInfo info;
+        double popularity;
+        long updatedAt;
+        double latestRank; // guarded by the entry, like popularity
+        double rank;       // guarded by byRank: its position there
+
+        Entry(String key, DishInfo info, long now) {
+            this.key = key;
+            this.info = info;
+            this.updatedAt = now;
+        }
+    }
+
+    private final Map<String, Entry> history = new ConcurrentHashMap<>();
+    // Least popular first; the name breaks ties
+    private final NavigableSet<Entry> byRank = new TreeSet<>(
+            Comparator.<Entry>comparingDouble(entry -> entry.rank).thenComparing(entry -> entry.key));
+    private final int capacity;
+    private final double halfLifeNanos;
+    private final LongSupplier clock;
+
+    public HistorySuggestionProvider() {
+        this(DEFAULT_CAPACITY, DEFAULT_HALF_LIFE);
+    }
+
+    public HistorySuggestionProvider(int capacity, Duration halfLife) {
+        this(capacity, halfLife, System::nanoTime);
+    }
+
+    // Constructor for testing, with a controllable clock in nanoseconds
+    HistorySuggestionProvider(int capacity, Duration halfLife, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (halfLife == null || halfLife.isZero() || halfLife.isNegative()) {
+            throw new IllegalArgumentException("Half-life must be positive");
+        }
+        this.capacity = capacity;
+        this.halfLifeNanos = halfLife.toNanos();
+        this.clock = clock;
+    }
+
+    @Override
     public void learnFrom(Dish dish) {
-        history.add(dish);
+        String key = SearchText.normalize(dish.getName());
+        if (key.isEmpty()) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Entry learned = history.compute(key, (k, entry) -> {
+            if (entry == null) {
+                entry = new Entry(k, toInfo(dish), now);
+            }
+            synchronized (entry) {
+                entry.popularity = decayed(entry, now) + 1;
+                entry.updatedAt = now;
+                entry.latestRank = Math.log(entry.popularity) / Math.log(2) + now / halfLifeNanos;
+            }
+            return entry;
+        });
+        // Outside compute: eviction takes byRank, then the lock of the map
+        synchronized (byRank) {
+            if (history.get(key) == learned) {
+                byRank.remove(learned);
+                synchronized (learned) {
+                    learned.rank = learned.latestRank;
+                }
+                byRank.add(learned);
+            }
+            if (history.size() > capacity) {
+                evict(learned);
+            }
+        }
+    }
+
+    // Removes the least popular dishes until the history fits its capacity again.
+    // The dish just learned is spared, otherwise a newcomer would always be the one to go.
+    private void evict(Entry learned) {
+        Iterator<Entry> leastPopularFirst = byRank.iterator();
+        while (history.size() > capacity && leastPopularFirst.hasNext()) {
+            Entry entry = leastPopularFirst.next();
+            if (entry != learned) {
+                leastPopularFirst.remove();
+                history.remove(entry.key, entry);
+            }
+        }
     }
 
     @Override
     public List<DishInfo> getSuggestions(String keyword) {
-        return history.stream()
-                .filter(dish -> dish.getName().toLowerCase().contains(keyword.toLowerCase()))
-                .map(dish -> new DishInfo(dish.getName(), dish.getDescription(), dish.getCuisineType(), dish.getCategory()))
+        String text = SearchText.normalize(keyword);
+        long now = clock.getAsLong();
+        return history.values().stream()
+                .filter(entry -> entry.key.contains(text))
+                .map(entry -> Map.entry(entry, popularity(entry, now)))
+                .sorted(Map.Entry.<Entry, Double>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(ranked -> ranked.getKey().key))
+                .limit(MAX_SUGGESTIONS)
+                .map(ranked -> ranked.getKey().info)
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    //Current popularity of a dish, 0 if it is not (or no longer) in the history.
+    public double getPopularity(String dishName) {
+        Entry entry = history.get(SearchText.normalize(dishName));
+        return entry == null ? 0 : popularity(entry, clock.getAsLong());
+    }
+
+    public int size() {
+        return history.size();
+    }
+
+    private double popularity(Entry entry, long now) {
+        synchronized (entry) {
+            return decayed(entry, now);
+        }
+    }
+
+    private double decayed(Entry entry, long now) {
+        long elapsed = Math.max(0, now - entry.updatedAt);
+        return entry.popularity * Math.pow(0.5, elapsed / halfLifeNanos);
+    }
+
+    private static DishInfo toInfo(Dish dish) {
+        return new DishInfo(dish.getName(), dish.getDescription(), dish.getCuisineType(), dish.getCategory());
+    }
+}
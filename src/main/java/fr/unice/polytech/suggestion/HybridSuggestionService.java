@@ -1,37 +1,255 @@
 package fr.unice.polytech.suggestion;
 
 import fr.unice.polytech.dishes.Dish;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
-public class HybridSuggestionService {
+/**
+ * Suggestions merged from several providers, queried in parallel.
+ *
+ * Each provider has a weight and a latency budget: a provider that has not answered within its
+ * budget (or fails) counts as having no suggestion, so a slow provider cannot delay the answer
+ * beyond the largest budget. A dish scores weight / rank in every list it appears in; dishes
+ * with the same normalized name are one suggestion, and the best scores are kept in a bounded
+ * heap. Merged suggestions can be cached, learning a dish makes them stale; a merge that missed
+ * a provider is not kept.
+ */
+public class HybridSuggestionService implements SuggestionProvider {
 
-    private final KeywordSuggestionProvider keywordProvider;
-    private final HistorySuggestionProvider historyProvider;
+    public static final int DEFAULT_LIMIT = 10;
+    public static final Duration DEFAULT_BUDGET = Duration.ofMillis(50);
 
+    // A provider and how much it is trusted
+    private static class Source {
+        final SuggestionProvider provider;
+        final double weight;
+        final Duration budget;
+
+        Source(SuggestionProvider provider, double weight, Duration budget) {
+            this.provider = provider;
+            this.weight = weight;
+            this.budget = budget;
+        }
+    }
+
+    // A merged suggestion: ties go to the dish seen first, in the order of the providers
+    private static class Candidate {
+        final DishInfo dish;
+        final int order;
+        double score;
+
+        Candidate(DishInfo dish, int order) {
+            this.dish = dish;
+            this.order = order;
+        }
+    }
+
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparingDouble((Candidate candidate) -> -candidate.score)
+            .thenComparingInt(candidate -> candidate.order);
+
+    private final List<Source> sources;
+    private final Executor executor;
+    private final int limit;
+    private final CachingSuggestionProvider cache; // null without cache
+    private final LongAdder partialMerges = new LongAdder();
+
+    private HybridSuggestionService(Builder builder) {
+        this.sources = List.copyOf(builder.sources);
+        this.executor = builder.executor;
+        this.limit = builder.limit;
+        this.cache = builder.cacheSize > 0 ? new CachingSuggestionProvider(this::merge, builder.cacheSize) : null;
+    }
+
+    //History first, then prefix matches, the keywords and typo tolerant matches.
     public HybridSuggestionService() {
-        this.keywordProvider = new KeywordSuggestionProvider();
-        this.historyProvider = new HistorySuggestionProvider();
+        this(new KeywordSuggestionProvider(), new HistorySuggestionProvider());
     }
 
     // Constructor for testing
     public HybridSuggestionService(KeywordSuggestionProvider keywordProvider, HistorySuggestionProvider historyProvider) {
-        this.keywordProvider = keywordProvider;
-        this.historyProvider = historyProvider;
+        this(defaults(keywordProvider, historyProvider));
+    }
+
+    private static Builder defaults(KeywordSuggestionProvider keywordProvider, HistorySuggestionProvider historyProvider) {
+        // The prefix and fuzzy indexes start with the same keywords as the keyword provider
+        TrieSuggestionProvider prefixProvider = new TrieSuggestionProvider();
+        keywordProvider.getKeywords().forEach((keyword, dish) -> prefixProvider.add(dish, keyword));
+        FuzzySuggestionProvider fuzzyProvider = new FuzzySuggestionProvider(keywordProvider.getKeywords().values());
+        return new Builder()
+                .provider(historyProvider, 3)
+                .provider(prefixProvider, 2)
+                .provider(keywordProvider, 1)
+                .provider(fuzzyProvider, 0.5)
+                .cache(CachingSuggestionProvider.DEFAULT_MAX_ENTRIES);
     }
 
+    @Override
     public void learnFrom(Dish dish) {
-        historyProvider.learnFrom(dish);
+        for (Source source : sources) {
+            source.provider.learnFrom(dish);
+        }
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
+    @Override
     public List<DishInfo> getSuggestions(String keyword) {
-        List<DishInfo> historySuggestions = historyProvider.getSuggestions(keyword);
-        List<DishInfo> keywordSuggestions = keywordProvider.getSuggestions(keyword);
+        if (cache == null) {
+            return merge(keyword);
+        }
+        long partialBefore = partialMerges.sum();
+        List<DishInfo> suggestions = cache.getSuggestions(keyword);
+        if (partialMerges.sum() != partialBefore) {
+            // Possibly this merge: another query will ask the slow provider again
+            cache.invalidate(keyword);
+        }
+        return suggestions;
+    }
+
+    //Merges that went without at least one provider (over budget or failed).
+    public long getPartialMerges() {
+        return partialMerges.sum();
+    }
+
+    //Cache of the merged suggestions, for its metrics. Null if the service has none.
+    public CachingSuggestionProvider getCache() {
+        return cache;
+    }
+
+    private List<DishInfo> merge(String keyword) {
+        List<CompletableFuture<List<DishInfo>>> answers = new ArrayList<>(sources.size());
+        for (Source source : sources) {
+            answers.add(query(source, keyword));
+        }
+
+        // Merge and remove duplicates (same normalized name), in the order of the providers
+        Map<String, Candidate> candidates = new HashMap<>();
+        boolean partial = false;
+        for (int i = 0; i < sources.size(); i++) {
+            List<DishInfo> suggestions = answers.get(i).join();
+            if (suggestions == null) {
+                partial = true;
+                continue;
+            }
+            double weight = sources.get(i).weight;
+            for (int rank = 0; rank < suggestions.size(); rank++) {
+                DishInfo dish = suggestions.get(rank);
+                Candidate candidate = candidates.computeIfAbsent(SearchText.normalize(dish.name),
+                        key -> new Candidate(dish, candidates.size()));
+                candidate.score += weight / (rank + 1);
+            }
+        }
+        if (partial) {
+            partialMerges.increment();
+        }
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        for (Candidate candidate : candidates.values()) {
+            best.offer(candidate);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(BEST_FIRST);
+        List<DishInfo> suggestions = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            suggestions.add(candidate.dish);
+        }
+        return suggestions;
+    }
+
+    // The suggestions of one provider, or null if it fails or does not answer within its budget
+    private CompletableFuture<List<DishInfo>> query(Source source, String keyword) {
+        return CompletableFuture.supplyAsync(() -> source.provider.getSuggestions(keyword), executor)
+                .completeOnTimeout(null, source.budget.toNanos(), TimeUnit.NANOSECONDS)
+                .exceptionally(error -> null);
+    }
+
+    public static class Builder {
+        private final List<Source> sources = new ArrayList<>();
+        private Executor executor = DefaultExecutor.PROVIDERS;
+        private int limit = DEFAULT_LIMIT;
+        private int cacheSize;
+
+        public Builder provider(SuggestionProvider provider) {
+            return provider(provider, 1);
+        }
+
+        public Builder provider(SuggestionProvider provider, double weight) {
+            return provider(provider, weight, DEFAULT_BUDGET);
+        }
+
+        public Builder provider(SuggestionProvider provider, double weight, Duration budget) {
+            if (provider == null) {
+                throw new IllegalArgumentException("Provider cannot be null");
+            }
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight must be positive");
+            }
+            if (budget == null || budget.isNegative() || budget.isZero()) {
+                throw new IllegalArgumentException("Latency budget must be positive");
+            }
+            sources.add(new Source(provider, weight, budget));
+            return this;
+        }
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            if (limit <= 0) {
+                throw new IllegalArgumentException("Limit must be positive");
+            }
+            this.limit = limit;
+            return this;
+        }
+
+        //Caches the merged suggestions of up to cacheSize keywords (none by default).
+        public Builder cache(int cacheSize) {
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("Cache size cannot be negative");
+            }
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        public HybridSuggestionService build() {
+            if (sources.isEmpty()) {
+                throw new IllegalArgumentException("At least one provider is required");
+            }
+            return new HybridSuggestionService(this);
+        }
+    }
+
+    // Created on first use only. Cached: a provider over its budget keeps its thread, it must not hold up the others
+    private static class DefaultExecutor {
+        static final ExecutorService PROVIDERS = Executors.newCachedThreadPool(daemonThreads("suggestion-"));
 
-        // Merge and remove duplicates, giving priority to history
-        return Stream.concat(historySuggestions.stream(), keywordSuggestions.stream())
-                .distinct()
-                .collect(Collectors.toList());
+        private static ThreadFactory daemonThreads(String prefix) {
+            AtomicInteger count = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
     }
-}
\ No newline at end of file
+}
@@ -26,4 +26,9 @@ public class KeywordSuggestionProvider implements SuggestionProvider {
                 .map(Map.Entry::getValue)
                 .collect(Collectors.toList());
     }
+
+    //Keywords and the dish they suggest, used to seed other indexes.
+    public Map<String, DishInfo> getKeywords() {
+        return keywordMap;
+    }
 }
\ No newline at end of file
@@ -1,7 +1,13 @@
 package fr.unice.polytech.suggestion;
 
+import fr.unice.polytech.dishes.Dish;
+
 import java.util.List;
 
 public interface SuggestionProvider {
     List<DishInfo> getSuggestions(String keyword);
-}
\ No newline at end of file
+
+    // Providers that learn from the dishes created override this, the others ignore them
+    default void learnFrom(Dish dish) {
+    }
+}
@@ -0,0 +1,205 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix suggestions from a ternary search tree over normalized dish names and keywords.
+ *
+ * A dish is reachable from its full name, from each word of its name and from its keywords, so
+ * "bur" finds "Bacon Burger". Every node keeps the top-k dishes below it, ranked by how often
+ * they were learned: a lookup only walks the prefix, whatever the number of dishes.
+ */
+public class TrieSuggestionProvider implements SuggestionProvider {
+
+    public static final int DEFAULT_TOP_K = 8;
+
+    // A dish and its popularity
+    private static class Entry {
+        final DishInfo info;
+        final long order; // first insertion, breaks ties
+        int frequency;
+
+        Entry(DishInfo info, long order) {
+            this.info = info;
+            this.order = order;
+        }
+
+        boolean ranksBefore(Entry other) {
+            return frequency != other.frequency ? frequency > other.frequency : order < other.order;
+        }
+    }
+
+    private static class Node {
+        final char splitChar;
+        Node lo;
+        Node eq;
+        Node hi;
+        Entry[] top = new Entry[0]; // best entries of the subtree, best first
+
+        Node(char splitChar) {
+            this.splitChar = splitChar;
+        }
+    }
+
+    private final int topK;
+    private final Map<String, Entry> entriesByName = new HashMap<>();
+    private final Map<String, Set<String>> termsByName = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root;
+    private long insertions;
+
+    public TrieSuggestionProvider() {
+        this(DEFAULT_TOP_K);
+    }
+
+    public TrieSuggestionProvider(int topK) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("Top-k must be positive");
+        }
+        this.topK = topK;
+    }
+
+    @Override
+    public void learnFrom(Dish dish) {
+        add(new DishInfo(dish.getName(), dish.getDescription(), dish.getCuisineType(), dish.getCategory()));
+    }
+
+    //Indexes a dish by its name (and words) and the given keywords, or makes it more popular if it is known.
+    public void add(DishInfo info, String... keywords) {
+        String name = SearchText.normalize(info.name);
+        if (name.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Entry entry = entriesByName.computeIfAbsent(name, n -> new Entry(info, insertions++));
+            entry.frequency++;
+
+            Set<String> terms = termsByName.computeIfAbsent(name, n -> new LinkedHashSet<>());
+            terms.add(name);
+            terms.addAll(SearchText.words(name));
+            for (String keyword : keywords) {
+                String term = SearchText.normalize(keyword);
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+            // The frequency changed: re-rank the entry on every path that leads to it
+            for (String term : terms) {
+                root = insert(root, term, 0, entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Node insert(Node node, String term, int index, Entry entry) {
+        char c = term.charAt(index);
+        if (node == null) {
+            node = new Node(c);
+        }
+        if (c < node.splitChar) {
+            node.lo = insert(node.lo, term, index, entry);
+        } else if (c > node.splitChar) {
+            node.hi = insert(node.hi, term, index, entry);
+        } else {
+            rank(node, entry);
+            if (index + 1 < term.length()) {
+                node.eq = insert(node.eq, term, index + 1, entry);
+            }
+        }
+        return node;
+    }
+
+    // Puts the entry at its place in the top-k of the node (it is either new there or more popular)
+    private void rank(Node node, Entry entry) {
+        Entry[] top = node.top;
+        int current = -1;
+        for (int i = 0; i < top.length; i++) {
+            if (top[i] == entry) {
+                current = i;
+                break;
+            }
+        }
+        if (current < 0) {
+            if (top.length == topK && !entry.ranksBefore(top[topK - 1])) {
+                return;
+            }
+            Entry[] grown = new Entry[Math.min(top.length + 1, topK)];
+            System.arraycopy(top, 0, grown, 0, Math.min(top.length, grown.length - 1));
+            current = grown.length - 1;
+            grown[current] = entry;
+            top = grown;
+            node.top = top;
+        }
+        while (current > 0 && top[current].ranksBefore(top[current - 1])) {
+            Entry swap = top[current - 1];
+            top[current - 1] = top[current];
+            top[current] = swap;
+            current--;
+        }
+    }
+
+    @Override
+    public List<DishInfo> getSuggestions(String keyword) {
+        return getSuggestions(keyword, topK);
+    }
+
+    //The most popular dishes, at most limit (and topK), for which the keyword is a prefix of a name, word or keyword.
+    public List<DishInfo> getSuggestions(String keyword, int limit) {
+        String prefix = SearchText.normalize(keyword);
+        List<DishInfo> suggestions = new ArrayList<>();
+        if (prefix.isEmpty()) {
+            return suggestions;
+        }
+        lock.readLock().lock();
+        try {
+            Node node = find(prefix);
+            if (node != null) {
+                for (int i = 0; i < node.top.length && i < limit; i++) {
+                    suggestions.add(node.top[i].info);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return suggestions;
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        int index = 0;
+        while (node != null) {
+            char c = prefix.charAt(index);
+            if (c < node.splitChar) {
+                node = node.lo;
+            } else if (c > node.splitChar) {
+                node = node.hi;
+            } else if (index == prefix.length() - 1) {
+                return node;
+            } else {
+                node = node.eq;
+                index++;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entriesByName.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
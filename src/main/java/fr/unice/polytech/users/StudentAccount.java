@@ -11,7 +11,7 @@ import java.util.Objects;
 public class StudentAccount extends UserAccount {
 
     private String studentID;
-    private double balance = 30 ;
+    private final Wallet wallet;
     private BankInfo bankInfo;
     private List<DeliveryLocation> prerecordedLocations = new ArrayList<>();
 
@@ -22,7 +22,7 @@ public class StudentAccount extends UserAccount {
         super(builder.name, builder.surname, builder.email); // Initialize attributes from UserAccount
         this.studentID = builder.studentID;
         this.bankInfo = builder.bankInfo;
-        this.balance = builder.balance;
+        this.wallet = new Wallet(Wallet.toCents(builder.balance));
         this.prerecordedLocations = new ArrayList<>(builder.prerecordedLocations);
     }
 
@@ -45,7 +45,11 @@ public class StudentAccount extends UserAccount {
     }
 
     public double getBalance() {
-        return balance;
+        return wallet.getBalanceCents() / 100.0;
+    }
+
+    public Wallet getWallet() {
+        return wallet;
     }
 
     public BankInfo getBankInfo() {
@@ -53,11 +57,12 @@ public class StudentAccount extends UserAccount {
     }
 
     public boolean debit(double amount) {
-        if (amount <= balance) {
-            balance -= amount;
-            return true;
-        }
-        return false;
+        return debit(0, amount);
+    }
+
+    //Debits the amount of an order at most once, even if the payment is retried.
+    public boolean debit(long orderId, double amount) {
+        return wallet.debit(orderId, Wallet.toCents(amount));
     }
 
 
@@ -122,11 +127,11 @@ public class StudentAccount extends UserAccount {
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
         StudentAccount that = (StudentAccount) o;
-        return Double.compare(balance, that.balance) == 0 && Objects.equals(studentID, that.studentID) && Objects.equals(bankInfo, that.bankInfo) && Objects.equals(prerecordedLocations, that.prerecordedLocations);
+        return wallet.getBalanceCents() == that.wallet.getBalanceCents() && Objects.equals(studentID, that.studentID) && Objects.equals(bankInfo, that.bankInfo) && Objects.equals(prerecordedLocations, that.prerecordedLocations);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(studentID, balance, bankInfo, prerecordedLocations);
+        return Objects.hash(studentID, wallet.getBalanceCents(), bankInfo, prerecordedLocations);
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package fr.unice.polytech.users;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balance of a student account, in cents, with its ledger.
+ *
+ * Debits and credits are compare-and-set loops on the balance, so two payments of the same student
+ * can never spend the same money. Every movement is appended to a lock-free ledger, from which the
+ * balance can be rebuilt. A debit tied to an order (ID > 0) is done at most once, so a retried
+ * payment cannot charge the student twice, and it can be refunded once.
+ */
+public class Wallet {
+
+    private final AtomicLong balanceCents = new AtomicLong();
+    private final Queue<WalletTransaction> ledger = new ConcurrentLinkedQueue<>();
+    private final Map<Long, WalletTransaction> debitsByOrder = new ConcurrentHashMap<>();
+    private final Set<Long> refundedOrders = ConcurrentHashMap.newKeySet();
+    private final Clock clock;
+
+    public Wallet(long initialBalanceCents) {
+        this(initialBalanceCents, Clock.systemUTC());
+    }
+
+    public Wallet(long initialBalanceCents, Clock clock) {
+        if (initialBalanceCents < 0) {
+            throw new IllegalArgumentException("Initial balance cannot be negative");
+        }
+        this.clock = clock;
+        if (initialBalanceCents > 0) {
+            credit(WalletTransaction.Type.DEPOSIT, 0, initialBalanceCents);
+        }
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    public long getBalanceCents() {
+        return balanceCents.get();
+    }
+
+    /**
+     * Takes the amount from the balance if it is sufficient.
+     * Returns true without debiting again if this order was already debited, and false if that
+     * debit was refunded: a refunded order is not paid again.
+     */
+    public boolean debit(long orderId, long amountCents) {
+        if (amountCents < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        if (orderId > 0 && debitsByOrder.containsKey(orderId)) {
+            return !refundedOrders.contains(orderId);
+        }
+        long balance;
+        do {
+            balance = balanceCents.get();
+            if (balance < amountCents) {
+                return false;
+            }
+        } while (!balanceCents.compareAndSet(balance, balance - amountCents));
+
+        WalletTransaction debit = new WalletTransaction(WalletTransaction.Type.DEBIT, orderId, amountCents, clock.instant());
+        if (orderId > 0 && debitsByOrder.putIfAbsent(orderId, debit) != null) {
+            // A concurrent payment of the same order won: give the money back
+            balanceCents.addAndGet(amountCents);
+            return !refundedOrders.contains(orderId);
+        }
+        ledger.add(debit);
+        return true;
+    }
+
+    public void deposit(long amountCents) {
+        if (amountCents <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        credit(WalletTransaction.Type.DEPOSIT, 0, amountCents);
+    }
+
+    //Gives back the debit of an order. Returns false if it was not debited or already refunded.
+    public boolean refund(long orderId) {
+        WalletTransaction debit = debitsByOrder.get(orderId);
+        if (debit == null || !refundedOrders.add(orderId)) {
+            return false;
+        }
+        credit(WalletTransaction.Type.REFUND, orderId, debit.getAmountCents());
+        return true;
+    }
+
+    private void credit(WalletTransaction.Type type, long orderId, long amountCents) {
+        long balance;
+        do {
+            balance = balanceCents.get();
+        } while (!balanceCents.compareAndSet(balance, Math.addExact(balance, amountCents)));
+        ledger.add(new WalletTransaction(type, orderId, amountCents, clock.instant()));
+    }
+
+    //Snapshot of the ledger, in the order the transactions were recorded.
+    public List<WalletTransaction> getLedger() {
+        return new ArrayList<>(ledger);
+    }
+
+    //Balance rebuilt from the ledger; equals getBalanceCents() when no movement is in progress.
+    public long replayBalanceCents() {
+        long balance = 0;
+        for (WalletTransaction transaction : ledger) {
+            balance += transaction.getSignedAmountCents();
+        }
+        return balance;
+    }
+}
@@ -0,0 +1,54 @@
+package fr.unice.polytech.users;
+
+import java.time.Instant;
+
+/**
+ * One entry of a wallet ledger. Amounts are positive cents; the type gives their direction.
+ */
+public class WalletTransaction {
+
+    public enum Type {
+        DEPOSIT,
+        DEBIT,
+        REFUND
+    }
+
+    private final Type type;
+    private final long orderId;
+    private final long amountCents;
+    private final Instant timestamp;
+
+    public WalletTransaction(Type type, long orderId, long amountCents, Instant timestamp) {
+        this.type = type;
+        this.orderId = orderId;
+        this.amountCents = amountCents;
+        this.timestamp = timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    //0 when the transaction is not tied to an order (deposit, order not saved yet).
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    //Effect on the balance: negative for a debit.
+    public long getSignedAmountCents() {
+        return type == Type.DEBIT ? -amountCents : amountCents;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + amountCents + "c (order " + orderId + ") at " + timestamp;
+    }
+}
@@ -0,0 +1,174 @@
+package fr.unice.polytech.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("RingBufferEventBus Tests")
+class RingBufferEventBusTest {
+
+    private RingBufferEventBus<Integer> bus;
+
+    @AfterEach
+    void tearDown() {
+        bus.close();
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "Events not delivered in time");
+    }
+
+    @Test
+    @DisplayName("Should deliver every event in order to every subscriber")
+    void shouldDeliverInOrderToEverySubscriber() throws InterruptedException {
+        bus = new RingBufferEventBus<>(8);
+        int count = 1000;
+        List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> second = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2 * count);
+        bus.subscribe("first", batch -> batch.forEach(event -> { first.add(event); done.countDown(); }));
+        bus.subscribe("second", batch -> batch.forEach(event -> { second.add(event); done.countDown(); }));
+
+        // Many more events than slots: the publisher has to wait for the subscribers
+        for (int i = 0; i < count; i++) {
+            bus.publish(i);
+        }
+        await(done);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, first);
+        assertEquals(expected, second);
+        assertEquals(count, bus.getPublishedCount());
+    }
+
+    @Test
+    @DisplayName("Should release the events every subscriber has handled")
+    void shouldClearHandledSlots() throws InterruptedException {
+        bus = new RingBufferEventBus<>(64);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        bus.subscribe("first", batch -> { });
+        bus.subscribe("second", handled::addAll);
+
+        for (int i = 0; i < 10; i++) {
+            bus.publish(i);
+        }
+        bus.close(); // returns once both subscriptions have handled everything
+        assertEquals(10, handled.size());
+        assertEquals(0, bus.getRetainedEvents());
+
+        bus = new RingBufferEventBus<>(64);
+        bus.publish(1);
+        assertEquals(0, bus.getRetainedEvents(), "Nobody to hand it to");
+    }
+
+    @Test
+    @DisplayName("Should hand the events published meanwhile as one batch")
+    void shouldBatchEvents() throws InterruptedException {
+        bus = new RingBufferEventBus<>(16);
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+        bus.subscribe("slow", batch -> {
+            batchSizes.add(batch.size());
+            firstBatchStarted.countDown();
+            release.await();
+            done.countDown();
+        });
+
+        bus.publish(0);
+        await(firstBatchStarted);
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(i);
+        }
+        release.countDown();
+        await(done);
+
+        assertEquals(List.of(1, 5), batchSizes);
+    }
+
+    @Test
+    @DisplayName("Should refuse to overwrite events a subscriber has not read")
+    void shouldApplyBackpressure() throws InterruptedException {
+        bus = new RingBufferEventBus<>(4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        bus.subscribe("blocked", batch -> {
+            blocked.countDown();
+            release.await();
+        });
+
+        assertTrue(bus.tryPublish(0));
+        await(blocked);
+        // The subscriber is still handling event 0, so its slot cannot be reused yet
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(bus.tryPublish(i));
+        }
+        assertFalse(bus.tryPublish(4));
+
+        Thread publisher = new Thread(() -> bus.publish(4));
+        publisher.start();
+        while (bus.getBackpressureWaits() == 0) {
+            Thread.onSpinWait();
+        }
+        assertEquals(4, bus.getPublishedCount());
+
+        release.countDown();
+        publisher.join(5000);
+        assertEquals(5, bus.getPublishedCount());
+    }
+
+    @Test
+    @DisplayName("Should keep delivering to a handler that failed")
+    void shouldSurviveFailingHandler() throws InterruptedException {
+        bus = new RingBufferEventBus<>(8);
+        AtomicInteger handled = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        RingBufferEventBus<Integer>.Subscription subscription = bus.subscribe("failing", batch -> {
+            for (Integer event : batch) {
+                if (event == 0) {
+                    throw new IllegalStateException("boom");
+                }
+                handled.incrementAndGet();
+                done.countDown();
+            }
+        });
+
+        bus.publish(0);
+        while (subscription.getLag() > 0) {
+            Thread.onSpinWait();
+        }
+        bus.publish(1);
+        await(done);
+
+        assertEquals(1, handled.get());
+        assertEquals(1, subscription.getFailures());
+
+        subscription.cancel();
+        assertEquals(1, bus.getHandlerFailures(), "The failures of a canceled subscription are still counted");
+    }
+
+    @Test
+    @DisplayName("Should not wait for a cancelled subscription")
+    void shouldIgnoreCancelledSubscription() {
+        bus = new RingBufferEventBus<>(2);
+        RingBufferEventBus<Integer>.Subscription subscription = bus.subscribe("stopped", batch -> { });
+        subscription.cancel();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bus.tryPublish(i));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package fr.unice.polytech.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("MetricsRegistry Tests")
+class MetricsRegistryTest {
+
+    private MetricsRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    @DisplayName("Should keep every bucket within 1/16 of its values")
+    void shouldBoundBucketError() {
+        long previousHighest = -1;
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 33, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = Histogram.bucketOf(value);
+            long highest = Histogram.highestValueOf(bucket);
+            assertTrue(highest >= value, "Bucket of " + value + " ends at " + highest);
+            assertTrue(highest - value <= value / 16, "Bucket of " + value + " is too wide");
+            assertTrue(highest >= previousHighest);
+            previousHighest = highest;
+        }
+        assertEquals(Histogram.bucketOf(32), Histogram.bucketOf(33));
+        assertNotEquals(Histogram.bucketOf(33), Histogram.bucketOf(34));
+    }
+
+    @Test
+    @DisplayName("Should compute quantiles from concurrent recordings")
+    void shouldComputeQuantiles() throws InterruptedException {
+        Histogram histogram = registry.histogram("latency_seconds", "Latency");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            pool.execute(() -> {
+                for (int micros = 1; micros <= 1000; micros++) {
+                    histogram.record(micros, TimeUnit.MICROSECONDS);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(4000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(4 * 500_500_000L, histogram.getSumNanos());
+        assertEquals(500_000, histogram.getQuantileNanos(0.5), 500_000 / 16.0);
+        assertEquals(990_000, histogram.getQuantileNanos(0.99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.getQuantileNanos(1));
+        assertEquals(0, registry.histogram("empty_seconds", "Nothing").getQuantileNanos(0.5));
+    }
+
+    @Test
+    @DisplayName("Should write the Prometheus text format")
+    void shouldScrapePrometheusText() {
+        registry.counter("http_requests_total", "Requests", "route", "/api/orders", "status", "201").add(3);
+        registry.counter("http_requests_total", "Requests", "route", "/api/orders", "status", "201").increment();
+        registry.gauge("orders", "Orders by status", () -> 2, "status", "pending");
+        registry.histogram("http_request_duration_seconds", "Duration", "route", "/api/orders")
+                .record(1, TimeUnit.MILLISECONDS);
+        registry.collector("timeslot_capacity", "Capacity", MetricsRegistry.Type.GAUGE,
+                samples -> samples.add(1.5, "restaurant", "say \"hi\"\n"));
+
+        String text = registry.scrape();
+
+        assertTrue(text.contains("# TYPE http_requests_total counter\n"));
+        assertTrue(text.contains("http_requests_total{route=\"/api/orders\",status=\"201\"} 4\n"));
+        assertTrue(text.contains("# HELP orders Orders by status\n# TYPE orders gauge\norders{status=\"pending\"} 2\n"));
+        assertTrue(text.contains("# TYPE http_request_duration_seconds summary\n"));
+        assertTrue(text.contains("http_request_duration_seconds{route=\"/api/orders\",quantile=\"0.99\"} 0.001\n"));
+        assertTrue(text.contains("http_request_duration_seconds_sum{route=\"/api/orders\"} 0.001\n"));
+        assertTrue(text.contains("http_request_duration_seconds_count{route=\"/api/orders\"} 1\n"));
+        assertTrue(text.contains("timeslot_capacity{restaurant=\"say \\\"hi\\\"\\n\"} 1.5\n"));
+        // Families are sorted by name
+        assertTrue(text.indexOf("http_request_duration_seconds") < text.indexOf("http_requests_total"));
+    }
+
+    @Test
+    @DisplayName("Should read supplied values at each scrape")
+    void shouldReadSuppliersAtScrape() {
+        AtomicInteger pending = new AtomicInteger();
+        registry.gauge("pending_orders", "Pending orders", pending::get);
+
+        assertTrue(registry.scrape().contains("pending_orders 0\n"));
+        pending.set(7);
+        assertTrue(registry.scrape().contains("pending_orders 7\n"));
+    }
+
+    @Test
+    @DisplayName("Should refuse invalid or conflicting metrics")
+    void shouldRefuseInvalidMetrics() {
+        registry.counter("requests_total", "Requests");
+        registry.gauge("queue_size", "Queue", () -> 0);
+
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("requests_total", "Requests", () -> 1));
+        assertThrows(IllegalArgumentException.class, () -> registry.gauge("queue_size", "Queue", () -> 1));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("bad-name", "Bad"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("odd_labels", "Odd", "route"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("bad_label", "Bad", "1route", "x"));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("requests_total", "Requests").add(-1));
+    }
+}
@@ -9,11 +9,18 @@ import fr.unice.polytech.users.StudentAccount;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.lang.reflect.Field;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -57,9 +64,7 @@ class OrderManagerTest {
         orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
 
 
-        Field pendingOrdersField = OrderManager.class.getDeclaredField("pendingOrders");
-        pendingOrdersField.setAccessible(true);
-        List<Order> pendingOrders = (List<Order>) pendingOrdersField.get(orderManager);
+        List<Order> pendingOrders = orderManager.getPendingOrders();
 
         assertEquals(1, pendingOrders.size());
         Order createdOrder = pendingOrders.get(0);
@@ -84,10 +89,7 @@ class OrderManagerTest {
 
         manager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
 
-        Field f = OrderManager.class.getDeclaredField("pendingOrders");
-        f.setAccessible(true);
-        @SuppressWarnings("unchecked")
-        List<Order> pending = (List<Order>) f.get(manager);
+        List<Order> pending = manager.getPendingOrders();
         assertEquals(1, pending.size());
         Order order = pending.get(0);
 
@@ -96,7 +98,7 @@ class OrderManagerTest {
         verify(factory).createProcessor(order, PaymentMethod.EXTERNAL);
         verify(processor).processPayment(order);
         assertEquals(OrderStatus.VALIDATED, order.getOrderStatus());
-        assertEquals(1, pending.size());
+        assertEquals(1, manager.getPendingOrders().size());
     }
 
     @Test
@@ -105,19 +107,14 @@ class OrderManagerTest {
                 .orderStatus(OrderStatus.VALIDATED)
                 .build();
 
-        Field pendingOrdersField = OrderManager.class.getDeclaredField("pendingOrders");
-        pendingOrdersField.setAccessible(true);
-        List<Order> pendingOrders = (List<Order>) pendingOrdersField.get(orderManager);
-        pendingOrders.add(order);
+        orderManager.getOrderRepository().save(order);
 
         boolean result = orderManager.registerOrder(order, mockRestaurant);
 
         assertTrue(result);
-        assertEquals(0, pendingOrders.size());
+        assertEquals(0, orderManager.getPendingOrders().size());
 
-        Field registeredOrdersField = OrderManager.class.getDeclaredField("registeredOrders");
-        registeredOrdersField.setAccessible(true);
-        List<Order> registeredOrders = (List<Order>) registeredOrdersField.get(orderManager);
+        List<Order> registeredOrders = orderManager.getRegisteredOrders();
         assertEquals(1, registeredOrders.size());
         assertTrue(registeredOrders.contains(order));
     }
@@ -142,17 +139,14 @@ class OrderManagerTest {
     }
 
     @Test
-    void initiatePaymentUsesFactoryAndUpdatesOrderStatus() throws NoSuchFieldException, IllegalAccessException {
+    void initiatePaymentUsesFactoryAndUpdatesOrderStatus() {
         PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
         OrderManager managerWithFactory = new OrderManager(factory);
         Order order = new Order.Builder(mockStudentAccount)
                 .amount(12.0)
                 .build();
 
-        Field pendingOrdersField = OrderManager.class.getDeclaredField("pendingOrders");
-        pendingOrdersField.setAccessible(true);
-        List<Order> pendingOrders = (List<Order>) pendingOrdersField.get(managerWithFactory);
-        pendingOrders.add(order);
+        managerWithFactory.getOrderRepository().save(order);
 
         IPaymentProcessor processor = mock(IPaymentProcessor.class);
         when(factory.createProcessor(order, PaymentMethod.EXTERNAL)).thenReturn(processor);
@@ -178,6 +172,34 @@ class OrderManagerTest {
         assertEquals(OrderStatus.PENDING, order.getOrderStatus());
     }
 
+    @Test
+    void createdOrdersCanBeFoundById() {
+        Order first = orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+        Order second = orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+
+        assertTrue(second.getId() > first.getId());
+        assertSame(first, orderManager.findOrderById(first.getId()));
+        assertSame(second, orderManager.findPendingOrderById(second.getId()));
+        assertNull(orderManager.findOrderById(second.getId() + 1));
+    }
+
+    @Test
+    void registeredAndCanceledOrdersLeaveThePendingIndex() {
+        Order validated = orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+        Order canceled = orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+        validated.setOrderStatus(OrderStatus.VALIDATED);
+        canceled.setOrderStatus(OrderStatus.CANCELED);
+
+        assertTrue(orderManager.registerOrder(validated, mockRestaurant));
+        assertFalse(orderManager.registerOrder(canceled, mockRestaurant));
+
+        assertTrue(orderManager.getPendingOrders().isEmpty());
+        assertNull(orderManager.findPendingOrderById(validated.getId()));
+        assertNull(orderManager.findPendingOrderById(canceled.getId()));
+        assertEquals(List.of(validated), orderManager.getRegisteredOrders());
+        assertSame(canceled, orderManager.findOrderById(canceled.getId()));
+    }
+
     @Test
     void createOrderFailsForUnknownDeliveryLocation() {
         DeliveryLocation otherLocation = mock(DeliveryLocation.class);
@@ -189,4 +211,141 @@ class OrderManagerTest {
         assertTrue(exception.getMessage().contains("saved locations"));
     }
 
+
+    @Test
+    void asyncPaymentRegistersOrderWhenItCompletes() {
+        PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+        CompletableFuture<OrderStatus> outcome = new CompletableFuture<>();
+        IAsyncPaymentProcessor processor = order -> outcome;
+        when(factory.createAsyncProcessor(any(Order.class), eq(PaymentMethod.EXTERNAL))).thenReturn(processor);
+        OrderManager manager = new OrderManager(factory);
+        Order order = manager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+
+        CompletableFuture<OrderStatus> payment = manager.initiatePaymentAsync(order, PaymentMethod.EXTERNAL);
+        assertSame(payment, manager.initiatePaymentAsync(order, PaymentMethod.EXTERNAL),
+                "A payment in progress must not be started twice");
+        assertFalse(payment.isDone());
+        assertEquals(OrderStatus.PENDING, manager.findOrderById(order.getId()).getOrderStatus());
+
+        outcome.complete(OrderStatus.VALIDATED);
+
+        assertEquals(OrderStatus.VALIDATED, payment.join());
+        assertTrue(manager.getRegisteredOrders().contains(order));
+        assertNull(manager.findPendingOrderById(order.getId()));
+        verify(mockRestaurant, timeout(5000)).addOrder(order);
+        verify(factory, times(1)).createAsyncProcessor(order, PaymentMethod.EXTERNAL);
+    }
+
+    @Test
+    void asyncPaymentCancelsOrderWhenProcessingFails() {
+        PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+        IAsyncPaymentProcessor processor = order -> CompletableFuture.failedFuture(new IllegalStateException("down"));
+        when(factory.createAsyncProcessor(any(Order.class), eq(PaymentMethod.EXTERNAL))).thenReturn(processor);
+        OrderManager manager = new OrderManager(factory);
+        Order order = manager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+
+        assertEquals(OrderStatus.CANCELED, manager.initiatePaymentAsync(order, PaymentMethod.EXTERNAL).join());
+        assertEquals(OrderStatus.CANCELED, order.getOrderStatus());
+        assertNull(manager.findPendingOrderById(order.getId()));
+    }
+
+    @Test
+    void concurrentAsyncPaymentsRegisterEveryOrderWithTheRestaurant() {
+        ExecutorService paymentThreads = Executors.newFixedThreadPool(8);
+        try {
+            PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+            IAsyncPaymentProcessor processor = order -> CompletableFuture.supplyAsync(() -> OrderStatus.VALIDATED, paymentThreads);
+            when(factory.createAsyncProcessor(any(Order.class), eq(PaymentMethod.EXTERNAL))).thenReturn(processor);
+            OrderManager manager = new OrderManager(factory);
+            Restaurant restaurant = new Restaurant("La Bella Vita");
+            List<Order> created = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                created.add(manager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, restaurant));
+            }
+
+            List<CompletableFuture<OrderStatus>> payments = new ArrayList<>();
+            for (Order order : created) {
+                payments.add(manager.initiatePaymentAsync(order, PaymentMethod.EXTERNAL));
+            }
+            payments.forEach(CompletableFuture::join);
+            manager.close(Duration.ofSeconds(5)); // once the registration subscriber has caught up
+
+            assertEquals(2000, restaurant.getOrders().size());
+            assertEquals(2000, manager.getRegisteredOrders().size());
+        } finally {
+            paymentThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncPaymentWithUnknownOutcomeAwaitsReconciliation() {
+        PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+        IAsyncPaymentProcessor processor = order -> CompletableFuture.completedFuture(OrderStatus.PENDING);
+        when(factory.createAsyncProcessor(any(Order.class), eq(PaymentMethod.EXTERNAL))).thenReturn(processor);
+        OrderManager manager = new OrderManager(factory);
+        Order order = manager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+
+        assertEquals(OrderStatus.PENDING, manager.initiatePaymentAsync(order, PaymentMethod.EXTERNAL).join());
+        assertEquals(List.of(order), manager.getOrdersToReconcile());
+        assertEquals(OrderStatus.PENDING, manager.initiatePaymentAsync(order, PaymentMethod.EXTERNAL).join());
+        verify(factory, times(1)).createAsyncProcessor(order, PaymentMethod.EXTERNAL);
+
+        assertTrue(manager.reconcilePayment(order, true));
+        assertEquals(OrderStatus.VALIDATED, order.getOrderStatus());
+        assertTrue(manager.getOrdersToReconcile().isEmpty());
+        verify(mockRestaurant, timeout(5000)).addOrder(order);
+        assertThrows(IllegalArgumentException.class, () -> manager.reconcilePayment(order, false));
+    }
+
+    @Test
+    void registersValidatedOrdersWithTheirRestaurantOffTheCallingThread() {
+        Restaurant restaurant = mock(Restaurant.class);
+        Thread caller = Thread.currentThread();
+        List<Thread> registeringThreads = new ArrayList<>();
+        doAnswer(invocation -> registeringThreads.add(Thread.currentThread())).when(restaurant).addOrder(any(Order.class));
+        Order order = orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, restaurant);
+        order.setOrderStatus(OrderStatus.VALIDATED);
+
+        assertTrue(orderManager.registerOrder(order, restaurant));
+        orderManager.close(Duration.ofSeconds(5));
+
+        verify(restaurant).addOrder(order);
+        assertNotSame(caller, registeringThreads.get(0));
+        assertEquals(0, orderManager.getDroppedEvents());
+    }
+
+    @Test
+    void registersOrdersAtOnceOnceTheEventBusIsClosed() {
+        orderManager.close(Duration.ofSeconds(5));
+        Order order = orderManager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+        order.setOrderStatus(OrderStatus.VALIDATED);
+
+        assertTrue(orderManager.registerOrder(order, mockRestaurant));
+
+        verify(mockRestaurant).addOrder(order);
+        assertEquals(2, orderManager.getDroppedEvents(), "Creation and validation events");
+    }
+
+    @Test
+    void publishesEveryTransitionOnTheEventBus() throws InterruptedException {
+        PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+        IAsyncPaymentProcessor processor = order -> CompletableFuture.completedFuture(OrderStatus.VALIDATED);
+        when(factory.createAsyncProcessor(any(Order.class), eq(PaymentMethod.INTERNAL))).thenReturn(processor);
+        OrderManager manager = new OrderManager(factory);
+        BlockingQueue<OrderEvent> received = new LinkedBlockingQueue<>();
+        manager.getEventBus().subscribe("test", received::addAll);
+
+        Order order = manager.createOrder(mockDishes, mockStudentAccount, mockDeliveryLocation, mockRestaurant);
+        manager.initiatePaymentAsync(order, PaymentMethod.INTERNAL).join();
+
+        List<OrderEvent.Type> types = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            OrderEvent event = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(event);
+            assertEquals(order.getId(), event.getOrderId());
+            types.add(event.getType());
+        }
+        assertEquals(List.of(OrderEvent.Type.CREATED, OrderEvent.Type.PAYMENT_STARTED, OrderEvent.Type.VALIDATED), types);
+        manager.getEventBus().close();
+    }
 }
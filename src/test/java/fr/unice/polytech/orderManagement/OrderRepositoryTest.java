@@ -0,0 +1,52 @@
+package fr.unice.polytech.orderManagement;
+
+import fr.unice.polytech.users.StudentAccount;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("OrderRepository Tests")
+class OrderRepositoryTest {
+
+    private final StudentAccount student = new StudentAccount.Builder("John", "Doe").build();
+
+    private Order saveOrder(OrderRepository repository) {
+        return repository.save(new Order.Builder(student).orderStatus(OrderStatus.PENDING).build());
+    }
+
+    @Test
+    @DisplayName("Should forget the oldest canceled orders past the limit")
+    void shouldEvictOldestCanceledOrders() {
+        OrderRepository repository = new OrderRepository(2);
+        Order validated = saveOrder(repository);
+        repository.moveTo(validated, OrderStatus.VALIDATED);
+        Order first = saveOrder(repository);
+        Order second = saveOrder(repository);
+        Order third = saveOrder(repository);
+
+        repository.moveTo(first, OrderStatus.CANCELED);
+        repository.moveTo(second, OrderStatus.CANCELED);
+        repository.moveTo(third, OrderStatus.CANCELED);
+
+        assertEquals(2, repository.count(OrderStatus.CANCELED));
+        assertNull(repository.findById(first.getId()));
+        assertSame(second, repository.findById(second.getId()));
+        assertSame(third, repository.findById(third.getId(), OrderStatus.CANCELED));
+        // Other stages are never evicted
+        assertSame(validated, repository.findById(validated.getId()));
+    }
+
+    @Test
+    @DisplayName("Should keep no canceled order with a limit of 0")
+    void shouldDropCanceledOrdersWithoutRetention() {
+        OrderRepository repository = new OrderRepository(0);
+        Order order = saveOrder(repository);
+
+        repository.moveTo(order, OrderStatus.CANCELED);
+
+        assertNull(repository.findById(order.getId()));
+        assertEquals(0, repository.count(OrderStatus.CANCELED));
+        assertThrows(IllegalArgumentException.class, () -> new OrderRepository(-1));
+    }
+}
@@ -0,0 +1,184 @@
+package fr.unice.polytech.orderManagement;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.paymentProcessing.PaymentMethod;
+import fr.unice.polytech.paymentProcessing.PaymentProcessorFactory;
+import fr.unice.polytech.persistence.WriteAheadLog;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.users.DeliveryLocation;
+import fr.unice.polytech.users.StudentAccount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DisplayName("WalOrderJournal Tests")
+class WalOrderJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private RestaurantManager restaurantManager;
+    private Restaurant restaurant;
+    private StudentAccount student;
+    private DeliveryLocation location;
+
+    @BeforeEach
+    void setUp() {
+        restaurantManager = new RestaurantManager();
+        restaurant = new Restaurant("La Bella Vita");
+        restaurant.addDish("Margherita Pizza", "Classic tomato and mozzarella", 12.50);
+        restaurant.addDish("Carbonara", "Creamy pasta with bacon", 14.00);
+        restaurantManager.addRestaurant(restaurant);
+
+        location = new DeliveryLocation("Campus Sophia", "930 Route des Colles", "Biot", "06410");
+        student = new StudentAccount.Builder("John", "Doe")
+                .email("john.doe@etu.unice.fr")
+                .studentId("S12345")
+                .balance(100.0)
+                .addDeliveryLocation(location)
+                .build();
+    }
+
+    private WalOrderJournal openJournal(WriteAheadLog.Builder log) throws IOException {
+        return WalOrderJournal.open(log, restaurantManager::getRestaurantById, 2);
+    }
+
+    private Order order(OrderManager orderManager, String... dishNames) {
+        List<Dish> dishes = new ArrayList<>();
+        for (String name : dishNames) {
+            dishes.add(restaurant.findDishByName(name));
+        }
+        return orderManager.createOrder(dishes, student, location, restaurant);
+    }
+
+    @Test
+    @DisplayName("Should recover orders, their stage and payment method after a restart")
+    void shouldRecoverOrders() throws Exception {
+        WriteAheadLog.Builder log = new WriteAheadLog.Builder(directory);
+        try (WalOrderJournal journal = openJournal(log)) {
+            OrderManager orderManager = new OrderManager(new PaymentProcessorFactory(), journal);
+            assertEquals(0, orderManager.recover());
+
+            Order paid = order(orderManager, "Margherita Pizza", "Carbonara");
+            order(orderManager, "Carbonara");
+            orderManager.initiatePaymentAsync(paid, PaymentMethod.INTERNAL).join();
+        }
+
+        try (WalOrderJournal journal = openJournal(log)) {
+            OrderManager orderManager = new OrderManager(new PaymentProcessorFactory(), journal);
+            assertEquals(2, orderManager.recover());
+
+            Order paid = orderManager.findOrderById(1);
+            assertEquals(OrderStatus.VALIDATED, paid.getOrderStatus());
+            assertEquals(PaymentMethod.INTERNAL, paid.getPaymentMethod());
+            assertEquals(26.50, paid.getAmount());
+            assertSame(restaurant, paid.getRestaurant());
+            assertSame(restaurant.findDishByName("Carbonara"), paid.getDishes().get(1));
+            assertEquals("S12345", paid.getStudentAccount().getStudentID());
+            assertEquals(location, paid.getDeliveryLocation());
+            assertEquals(1, orderManager.getRegisteredOrders().size());
+
+            assertNotNull(orderManager.findPendingOrderById(2));
+            // New orders continue after the recovered IDs
+            assertEquals(3, order(orderManager, "Carbonara").getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover the orders of a log whose tail was left zero-filled by a crash")
+    void shouldRecoverFromZeroFilledTail() throws Exception {
+        WriteAheadLog.Builder log = new WriteAheadLog.Builder(directory);
+        try (WalOrderJournal journal = openJournal(log)) {
+            OrderManager orderManager = new OrderManager(new PaymentProcessorFactory(), journal);
+            orderManager.recover();
+            order(orderManager, "Carbonara");
+            order(orderManager, "Margherita Pizza");
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.toString().endsWith(".wal")).sorted().reduce((first, second) -> second).orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(4096));
+        }
+
+        try (WalOrderJournal journal = openJournal(log)) {
+            OrderManager orderManager = new OrderManager(new PaymentProcessorFactory(), journal);
+            assertEquals(2, orderManager.recover());
+            assertEquals(3, order(orderManager, "Carbonara").getId());
+            assertEquals(0, journal.getWriteFailures());
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep the state of the orders through compaction")
+    void shouldCompactWithoutLosingOrders() throws Exception {
+        WriteAheadLog.Builder log = new WriteAheadLog.Builder(directory).segmentSize(512);
+        try (WalOrderJournal journal = openJournal(log)) {
+            OrderManager orderManager = new OrderManager(new PaymentProcessorFactory(), journal);
+            orderManager.recover();
+            for (int i = 0; i < 20; i++) {
+                Order order = order(orderManager, "Carbonara");
+                order.setOrderStatus(i % 2 == 0 ? OrderStatus.VALIDATED : OrderStatus.CANCELED);
+                orderManager.registerOrder(order, restaurant);
+            }
+            journal.compact();
+            assertEquals(2, journal.getLog().getSegmentCount());
+        }
+
+        try (WalOrderJournal journal = openJournal(log)) {
+            OrderManager orderManager = new OrderManager(new PaymentProcessorFactory(), journal);
+            assertEquals(20, orderManager.recover());
+            assertEquals(10, orderManager.getRegisteredOrders().size());
+            assertEquals(OrderStatus.CANCELED, orderManager.findOrderById(20).getOrderStatus());
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover an order whose payment was in progress as awaiting reconciliation")
+    void shouldReconcilePaymentsInProgress() throws Exception {
+        WriteAheadLog.Builder log = new WriteAheadLog.Builder(directory);
+        try (WalOrderJournal journal = openJournal(log)) {
+            PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+            when(factory.createAsyncProcessor(any(Order.class), eq(PaymentMethod.EXTERNAL)))
+                    .thenReturn(order -> new CompletableFuture<>());
+            OrderManager orderManager = new OrderManager(factory, journal);
+            orderManager.recover();
+
+            orderManager.initiatePaymentAsync(order(orderManager, "Carbonara"), PaymentMethod.EXTERNAL);
+            order(orderManager, "Margherita Pizza");
+            journal.compact(); // the snapshot must keep the payment in progress too
+        }
+
+        try (WalOrderJournal journal = openJournal(log)) {
+            PaymentProcessorFactory factory = mock(PaymentProcessorFactory.class);
+            OrderManager orderManager = new OrderManager(factory, journal);
+            assertEquals(2, orderManager.recover());
+
+            Order inProgress = orderManager.findOrderById(1);
+            assertEquals(List.of(inProgress), orderManager.getOrdersToReconcile());
+            assertEquals(OrderStatus.PENDING, orderManager.initiatePaymentAsync(inProgress, PaymentMethod.EXTERNAL).join());
+            verifyNoInteractions(factory);
+
+            assertTrue(orderManager.reconcilePayment(inProgress, true));
+            assertEquals(1, orderManager.getRegisteredOrders().size());
+            assertNotNull(orderManager.findPendingOrderById(2));
+        }
+    }
+}
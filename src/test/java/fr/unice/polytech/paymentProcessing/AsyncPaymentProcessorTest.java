@@ -0,0 +1,119 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderStatus;
+import fr.unice.polytech.users.StudentAccount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AsyncPaymentProcessorTest {
+
+    private Order order;
+    private IAsyncPaymentService paymentService;
+    private ScheduledExecutorService scheduler;
+    private AsyncPaymentProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        StudentAccount student = new StudentAccount.Builder("Alice", "Smith")
+                .email("alice.smith@etu.unice.fr")
+                .studentId("22400632")
+                .bankInfo("3151 2136 8946 4151", 401, 5, 28)
+                .build();
+        order = new Order.Builder(student).build();
+
+        paymentService = mock(IAsyncPaymentService.class);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .backoff(Duration.ofMillis(1), 2, Duration.ofMillis(5))
+                .attemptTimeout(Duration.ofMillis(200))
+                .build();
+        processor = new AsyncPaymentProcessor(paymentService, policy, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void validatesOnFirstAttempt() throws Exception {
+        when(paymentService.processExternalPaymentAsync(order)).thenReturn(CompletableFuture.completedFuture(true));
+
+        assertEquals(OrderStatus.VALIDATED, processor.processPaymentAsync(order).get(1, TimeUnit.SECONDS));
+        verify(paymentService, times(1)).processExternalPaymentAsync(order);
+    }
+
+    @Test
+    void retriesRefusedAndFailedAttempts() throws Exception {
+        when(paymentService.processExternalPaymentAsync(order))
+                .thenReturn(CompletableFuture.completedFuture(false))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("provider error")))
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        assertEquals(OrderStatus.VALIDATED, processor.processPaymentAsync(order).get(1, TimeUnit.SECONDS));
+        verify(paymentService, times(3)).processExternalPaymentAsync(order);
+    }
+
+    @Test
+    void cancelsAfterLastAttempt() throws Exception {
+        when(paymentService.processExternalPaymentAsync(order)).thenReturn(CompletableFuture.completedFuture(false));
+
+        assertEquals(OrderStatus.CANCELED, processor.processPaymentAsync(order).get(1, TimeUnit.SECONDS));
+        verify(paymentService, times(3)).processExternalPaymentAsync(order);
+    }
+
+    @Test
+    void timedOutAttemptIsNotRetried() throws Exception {
+        when(paymentService.processExternalPaymentAsync(order))
+                .thenReturn(new CompletableFuture<>())
+                .thenReturn(CompletableFuture.completedFuture(true));
+
+        // The first call may still charge the student: its outcome is unknown, not refused
+        assertEquals(OrderStatus.PENDING, processor.processPaymentAsync(order).get(2, TimeUnit.SECONDS));
+        verify(paymentService, times(1)).processExternalPaymentAsync(order);
+    }
+
+    @Test
+    void cancelsAtOnceWhileCircuitIsOpen() throws Exception {
+        when(paymentService.processExternalPaymentAsync(order)).thenReturn(
+                CompletableFuture.failedFuture(new PaymentUnavailableException("External payment system unavailable", true)));
+
+        assertEquals(OrderStatus.CANCELED, processor.processPaymentAsync(order).get(1, TimeUnit.SECONDS));
+        verify(paymentService, times(1)).processExternalPaymentAsync(order);
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToTheCap() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .backoff(Duration.ofMillis(100), 2, Duration.ofMillis(300))
+                .jitter(false)
+                .build();
+
+        assertEquals(100, policy.delayMillis(1));
+        assertEquals(200, policy.delayMillis(2));
+        assertEquals(300, policy.delayMillis(3));
+    }
+
+    @Test
+    void jitterStaysWithinTheBackoff() {
+        RetryPolicy policy = new RetryPolicy.Builder()
+                .backoff(Duration.ofMillis(100), 2, Duration.ofMillis(1000))
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.delayMillis(2);
+            assertTrue(delay >= 0 && delay <= 200, "Unexpected delay " + delay);
+        }
+    }
+}
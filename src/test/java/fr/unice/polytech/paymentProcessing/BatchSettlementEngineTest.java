@@ -0,0 +1,138 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderManager;
+import fr.unice.polytech.orderManagement.OrderStatus;
+import fr.unice.polytech.users.StudentAccount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class BatchSettlementEngineTest {
+
+    private ScheduledExecutorService scheduler;
+    private IBatchPaymentService batchService;
+    private StudentAccount student;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        batchService = mock(IBatchPaymentService.class);
+        student = new StudentAccount.Builder("Alice", "Smith").build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private Order order(double amount) {
+        return new Order.Builder(student).amount(amount).build();
+    }
+
+    // The provider refuses the orders above 20
+    private List<Boolean> refuseExpensive(List<Order> orders) {
+        List<Boolean> results = new ArrayList<>();
+        for (Order order : orders) {
+            results.add(order.getAmount() <= 20);
+        }
+        return results;
+    }
+
+    @Test
+    void settlesFullBatchInOneCall() throws Exception {
+        when(batchService.processExternalPayments(anyList())).thenAnswer(call -> refuseExpensive(call.getArgument(0)));
+        BatchSettlementEngine engine = new BatchSettlementEngine(batchService, Duration.ofMinutes(1), 3, scheduler, Runnable::run);
+
+        CompletableFuture<Boolean> cheap = engine.processExternalPaymentAsync(order(10));
+        CompletableFuture<Boolean> expensive = engine.processExternalPaymentAsync(order(50));
+        assertFalse(cheap.isDone(), "The batch is not full yet");
+        CompletableFuture<Boolean> other = engine.processExternalPaymentAsync(order(15));
+
+        assertTrue(cheap.get(1, TimeUnit.SECONDS));
+        assertFalse(expensive.get(1, TimeUnit.SECONDS));
+        assertTrue(other.get(1, TimeUnit.SECONDS));
+        verify(batchService, times(1)).processExternalPayments(anyList());
+        assertEquals(1, engine.getBatchCount());
+        assertEquals(3, engine.getSettledOrderCount());
+    }
+
+    @Test
+    void settlesPartialBatchWhenWindowElapses() throws Exception {
+        when(batchService.processExternalPayments(anyList())).thenAnswer(call -> refuseExpensive(call.getArgument(0)));
+        BatchSettlementEngine engine = new BatchSettlementEngine(batchService, Duration.ofMillis(20), 100, scheduler, Runnable::run);
+
+        CompletableFuture<Boolean> first = engine.processExternalPaymentAsync(order(10));
+        CompletableFuture<Boolean> second = engine.processExternalPaymentAsync(order(12));
+
+        assertTrue(first.get(1, TimeUnit.SECONDS));
+        assertTrue(second.get(1, TimeUnit.SECONDS));
+        verify(batchService, times(1)).processExternalPayments(anyList());
+    }
+
+    @Test
+    void failsEveryOrderOfAFailedBatch() {
+        when(batchService.processExternalPayments(anyList())).thenThrow(new IllegalStateException("provider down"));
+        BatchSettlementEngine engine = new BatchSettlementEngine(batchService, Duration.ofMinutes(1), 2, scheduler, Runnable::run);
+
+        CompletableFuture<Boolean> first = engine.processExternalPaymentAsync(order(10));
+        CompletableFuture<Boolean> second = engine.processExternalPaymentAsync(order(12));
+
+        assertThrows(ExecutionException.class, first::get);
+        assertThrows(ExecutionException.class, second::get);
+        assertEquals(0, engine.getBatchCount());
+    }
+
+    @Test
+    void failedBatchIsOneBreakerFailure() {
+        when(batchService.processExternalPayments(anyList())).thenThrow(new IllegalStateException("provider down"));
+        CircuitBreaker breaker = new CircuitBreaker.Builder().slidingWindow(20, 10).build();
+        Bulkhead bulkhead = new Bulkhead(2);
+        ResilientPaymentService guard = new ResilientPaymentService(
+                IAsyncPaymentService.fromBlocking(batchService, Runnable::run), breaker, bulkhead, Duration.ofSeconds(5));
+        BatchSettlementEngine engine = new BatchSettlementEngine(batchService, Duration.ofMinutes(1), 10, scheduler,
+                Runnable::run, guard);
+
+        List<CompletableFuture<Boolean>> payments = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            payments.add(engine.processExternalPaymentAsync(order(10 + i)));
+        }
+
+        payments.forEach(payment -> assertTrue(payment.isCompletedExceptionally()));
+        assertEquals(1, breaker.getFailedCalls());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(2, bulkhead.getAvailableConcurrentCalls());
+    }
+
+    @Test
+    void fansResultsBackToOrderStatuses() {
+        when(batchService.processExternalPayments(anyList())).thenAnswer(call -> refuseExpensive(call.getArgument(0)));
+        BatchSettlementEngine engine = new BatchSettlementEngine(batchService, Duration.ofMinutes(1), 2, scheduler, Runnable::run);
+        RetryPolicy singleAttempt = new RetryPolicy.Builder().maxAttempts(1).build();
+        OrderManager manager = new OrderManager(new PaymentProcessorFactory(batchService, engine, singleAttempt, scheduler));
+        Order accepted = manager.getOrderRepository().save(order(10));
+        Order refused = manager.getOrderRepository().save(order(30));
+
+        CompletableFuture<OrderStatus> first = manager.initiatePaymentAsync(accepted, PaymentMethod.EXTERNAL);
+        CompletableFuture<OrderStatus> second = manager.initiatePaymentAsync(refused, PaymentMethod.EXTERNAL);
+
+        assertEquals(OrderStatus.VALIDATED, first.join());
+        assertEquals(OrderStatus.CANCELED, second.join());
+        assertEquals(OrderStatus.VALIDATED, accepted.getOrderStatus());
+        assertEquals(OrderStatus.CANCELED, refused.getOrderStatus());
+        verify(batchService, times(1)).processExternalPayments(anyList());
+    }
+}
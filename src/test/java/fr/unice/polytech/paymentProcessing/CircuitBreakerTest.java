@@ -0,0 +1,160 @@
+package fr.unice.polytech.paymentProcessing;
+
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.users.StudentAccount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker.Builder()
+                .slidingWindow(4, 4)
+                .failureRateThreshold(0.5)
+                .openDuration(Duration.ofSeconds(10))
+                .halfOpenCalls(2)
+                .clock(now::get)
+                .build();
+    }
+
+    private void call(boolean success) {
+        assertTrue(breaker.tryAcquirePermission());
+        if (success) {
+            breaker.onSuccess();
+        } else {
+            breaker.onFailure();
+        }
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(false);
+        call(true);
+        call(true);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "Not enough calls yet");
+
+        call(false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(1, breaker.getNotPermittedCalls());
+    }
+
+    @Test
+    void slidingWindowForgetsOldOutcomes() {
+        call(false);
+        call(true);
+        call(true);
+        call(true);
+        call(true);
+
+        assertEquals(4, breaker.getBufferedCalls());
+        assertEquals(0, breaker.getFailedCalls());
+        assertEquals(0.0, breaker.getFailureRate());
+    }
+
+    @Test
+    void halfOpenTrialsCloseTheCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        call(true);
+        call(true);
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getBufferedCalls());
+    }
+
+    @Test
+    void halfOpenFailureOpensAgainAndLimitsTrials() {
+        for (int i = 0; i < 4; i++) {
+            call(false);
+        }
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+        assertFalse(breaker.tryAcquirePermission(), "Only two trial calls are allowed");
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void resilientServiceRefusesCallsWhileOpenAndWhenBulkheadIsFull() {
+        Order order = new Order.Builder(new StudentAccount.Builder("Alice", "Smith").build()).build();
+        CompletableFuture<Boolean> hanging = new CompletableFuture<>();
+        Bulkhead bulkhead = new Bulkhead(1);
+        ResilientPaymentService service = new ResilientPaymentService(o -> hanging, breaker, bulkhead, Duration.ofSeconds(5));
+
+        CompletableFuture<Boolean> first = service.processExternalPaymentAsync(order);
+        ExecutionException full = assertThrows(ExecutionException.class,
+                () -> service.processExternalPaymentAsync(order).get());
+        assertFalse(((PaymentUnavailableException) full.getCause()).isCircuitOpen());
+        assertEquals(1, bulkhead.getRejectedCalls());
+
+        hanging.completeExceptionally(new IllegalStateException("provider down"));
+        assertTrue(first.isCompletedExceptionally());
+        assertEquals(1, bulkhead.getAvailableConcurrentCalls());
+        assertEquals(1, breaker.getFailedCalls());
+
+        for (int i = 0; i < 3; i++) {
+            call(false);
+        }
+        ExecutionException open = assertThrows(ExecutionException.class,
+                () -> service.processExternalPaymentAsync(order).get());
+        assertTrue(((PaymentUnavailableException) open.getCause()).isCircuitOpen());
+        assertEquals(1, bulkhead.getAvailableConcurrentCalls());
+    }
+
+    @Test
+    void timedOutCallKeepsItsBulkheadSlotUntilItReturns() {
+        Order order = new Order.Builder(new StudentAccount.Builder("Alice", "Smith").build()).build();
+        CompletableFuture<Boolean> hanging = new CompletableFuture<>();
+        Bulkhead bulkhead = new Bulkhead(1);
+        ResilientPaymentService service = new ResilientPaymentService(o -> hanging, breaker, bulkhead, Duration.ofMillis(20));
+
+        ExecutionException timeout = assertThrows(ExecutionException.class,
+                () -> service.processExternalPaymentAsync(order).get());
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertEquals(1, breaker.getFailedCalls());
+        assertEquals(0, bulkhead.getAvailableConcurrentCalls(), "The call is still running");
+
+        hanging.complete(true);
+        assertEquals(1, bulkhead.getAvailableConcurrentCalls());
+        assertEquals(1, breaker.getBufferedCalls(), "The late answer is not recorded twice");
+    }
+
+    @Test
+    void callRejectedByTheExecutorIsNotAFailure() {
+        Order order = new Order.Builder(new StudentAccount.Builder("Alice", "Smith").build()).build();
+        Bulkhead bulkhead = new Bulkhead(1);
+        IAsyncPaymentService saturated = IAsyncPaymentService.fromBlocking(o -> true, runnable -> {
+            throw new RejectedExecutionException("queue full");
+        });
+        ResilientPaymentService service = new ResilientPaymentService(saturated, breaker, bulkhead, Duration.ofSeconds(5));
+
+        ExecutionException rejected = assertThrows(ExecutionException.class,
+                () -> service.processExternalPaymentAsync(order).get());
+        assertFalse(((PaymentUnavailableException) rejected.getCause()).isCircuitOpen());
+        assertEquals(1, bulkhead.getAvailableConcurrentCalls());
+        assertEquals(0, breaker.getBufferedCalls());
+    }
+}
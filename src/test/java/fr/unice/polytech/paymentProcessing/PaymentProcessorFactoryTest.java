@@ -42,6 +42,25 @@ class PaymentProcessorFactoryTest {
         verify(paymentService).processExternalPayment(order);
     }
 
+    @Test
+    void externalPaymentsGoThroughTheCircuitBreaker() {
+        IPaymentService paymentService = mock(IPaymentService.class);
+        when(paymentService.processExternalPayment(order)).thenThrow(new IllegalStateException("provider down"));
+        CircuitBreaker breaker = new CircuitBreaker.Builder().slidingWindow(2, 2).build();
+        PaymentProcessorFactory factory = new PaymentProcessorFactory(paymentService, mock(IAsyncPaymentService.class),
+                RetryPolicy.defaultPolicy(), null, breaker, new Bulkhead(1));
+
+        for (int i = 0; i < 2; i++) {
+            IPaymentProcessor processor = factory.createProcessor(order, PaymentMethod.EXTERNAL);
+            assertThrows(IllegalStateException.class, () -> processor.processPayment(order));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(OrderStatus.CANCELED, factory.createProcessor(order, PaymentMethod.EXTERNAL).processPayment(order));
+        verify(paymentService, times(2)).processExternalPayment(order);
+        assertEquals(1, factory.getBulkhead().getAvailableConcurrentCalls());
+    }
+
     @Test
     void createProcessorForInternalPaymentReturnsInternalProcessor() {
         PaymentProcessorFactory factory = new PaymentProcessorFactory(mock(IPaymentService.class));
@@ -0,0 +1,158 @@
+package fr.unice.polytech.persistence;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("WriteAheadLog Tests")
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private WriteAheadLog open(WriteAheadLog.Builder builder, List<String> replayed) throws IOException {
+        return builder.open(record -> {
+            byte[] content = new byte[record.remaining()];
+            record.get(content);
+            replayed.add(new String(content, StandardCharsets.UTF_8));
+        });
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should replay the appended records in order after a restart")
+    void shouldReplayRecords() throws Exception {
+        List<String> replayed = new ArrayList<>();
+        try (WriteAheadLog log = open(new WriteAheadLog.Builder(directory), replayed)) {
+            for (int i = 0; i < 100; i++) {
+                log.append(bytes("record " + i));
+            }
+        }
+        assertTrue(replayed.isEmpty());
+
+        try (WriteAheadLog log = open(new WriteAheadLog.Builder(directory), replayed)) {
+            log.append(bytes("after restart")).join();
+        }
+        assertEquals(100, replayed.size());
+        assertEquals("record 99", replayed.get(99));
+
+        List<String> again = new ArrayList<>();
+        open(new WriteAheadLog.Builder(directory), again).close();
+        assertEquals("after restart", again.get(100));
+    }
+
+    @Test
+    @DisplayName("Should complete an append once it is on disk with the ALWAYS policy")
+    void shouldSyncWithAlwaysPolicy() throws Exception {
+        WriteAheadLog.Builder builder = new WriteAheadLog.Builder(directory).fsyncPolicy(WriteAheadLog.FsyncPolicy.ALWAYS);
+        try (WriteAheadLog log = open(builder, new ArrayList<>())) {
+            List<CompletableFuture<Void>> appends = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                appends.add(log.append(bytes("durable " + i)));
+            }
+            CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])).join();
+            // 10 records of 9 bytes and 40 of 10, each with its 8 bytes header
+            assertEquals(10 * 17 + 40 * 18, Files.size(segments().get(0)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should cut off a torn record at the end of the log")
+    void shouldTruncateTornTail() throws Exception {
+        try (WriteAheadLog log = open(new WriteAheadLog.Builder(directory), new ArrayList<>())) {
+            log.append(bytes("first"));
+            log.append(bytes("second")).join();
+        }
+        Path segment = segments().get(0);
+        // Crash in the middle of the third record: header written, payload partially
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(11).putInt(100).putInt(42).put(new byte[] {1, 2, 3}).flip());
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (WriteAheadLog log = open(new WriteAheadLog.Builder(directory), replayed)) {
+            log.append(bytes("third")).join();
+        }
+        assertEquals(List.of("first", "second"), replayed);
+
+        List<String> again = new ArrayList<>();
+        open(new WriteAheadLog.Builder(directory), again).close();
+        assertEquals(List.of("first", "second", "third"), again);
+    }
+
+    @Test
+    @DisplayName("Should cut off a zero-filled tail rather than replay it as empty records")
+    void shouldTruncateZeroFilledTail() throws Exception {
+        try (WriteAheadLog log = open(new WriteAheadLog.Builder(directory), new ArrayList<>())) {
+            log.append(bytes("first")).join();
+        }
+        Path segment = segments().get(0);
+        long size = Files.size(segment);
+        // Crash after the file grew but before its pages were written: zeros parse as empty records
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(64));
+        }
+
+        List<String> replayed = new ArrayList<>();
+        open(new WriteAheadLog.Builder(directory), replayed).close();
+        assertEquals(List.of("first"), replayed);
+        assertEquals(size, Files.size(segment));
+    }
+
+    @Test
+    @DisplayName("Should roll segments and compact the sealed ones into a snapshot")
+    void shouldRollAndCompact() throws Exception {
+        WriteAheadLog.Builder builder = new WriteAheadLog.Builder(directory).segmentSize(64);
+        try (WriteAheadLog log = open(builder, new ArrayList<>())) {
+            for (int i = 0; i < 20; i++) {
+                log.append(bytes("event " + i)).join();
+            }
+            assertTrue(log.getSegmentCount() > 3, "Only " + log.getSegmentCount() + " segments");
+
+            log.compact(() -> List.of(bytes("state")));
+            log.append(bytes("event 20")).join();
+
+            assertEquals(2, log.getSegmentCount());
+            assertEquals(2, segments().size());
+        }
+
+        List<String> replayed = new ArrayList<>();
+        open(builder, replayed).close();
+        assertEquals(List.of("state", "event 20"), replayed);
+    }
+
+    @Test
+    @DisplayName("Should refuse appends once closed")
+    void shouldRejectAppendsWhenClosed() throws Exception {
+        WriteAheadLog log = open(new WriteAheadLog.Builder(directory), new ArrayList<>());
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> log.append(bytes("late")));
+        assertThrows(IllegalArgumentException.class, () -> log.append(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> new WriteAheadLog.Builder(directory).segmentSize(4));
+    }
+}
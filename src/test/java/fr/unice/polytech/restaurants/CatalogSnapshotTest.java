@@ -0,0 +1,129 @@
+package fr.unice.polytech.restaurants;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import fr.unice.polytech.dishes.Topping;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CatalogSnapshot Tests")
+class CatalogSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private RestaurantManager manager;
+    private TimeSlot lunch;
+
+    @BeforeEach
+    void setUp() {
+        file = directory.resolve("catalog.snap");
+        manager = new RestaurantManager();
+        lunch = new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(12, 0), LocalTime.of(12, 30));
+
+        Dish pizza = new Dish("Margherita Pizza", "Classic tomato and mozzarella", 12.50);
+        pizza.setCategory(DishCategory.MAIN_COURSE);
+        pizza.setCuisineType(DishType.ITALIAN);
+        pizza.addTopping(new Topping("Olives", 1.5));
+        Restaurant italian = new Restaurant.Builder("La Bella Vita")
+                .withCuisineType(DishType.ITALIAN)
+                .withDish(pizza)
+                .withOpeningHours(List.of(new OpeningHours(DayOfWeek.MONDAY, LocalTime.of(11, 30), LocalTime.of(22, 0))))
+                .build();
+        italian.setCapacity(lunch, 5);
+        italian.setCapacity(new TimeSlot(LocalTime.of(19, 0), LocalTime.of(19, 30)), 0);
+
+        Restaurant japanese = new Restaurant("Sakura Sushi");
+        japanese.addDish("Miso Soup", "Traditional soup", 4.50);
+
+        manager.addRestaurant(new Restaurant("Closed Bistro"));
+        manager.addRestaurant(italian);
+        manager.addRestaurant(japanese);
+    }
+
+    @Test
+    @DisplayName("Should restore restaurants, menus, opening hours and capacities under their IDs")
+    void shouldRoundTrip() throws IOException {
+        CatalogSnapshot.write(manager, file);
+
+        RestaurantManager loaded = new RestaurantManager();
+        assertEquals(3, CatalogSnapshot.load(file, loaded));
+
+        Restaurant italian = loaded.getRestaurant("La Bella Vita");
+        assertEquals(manager.getRestaurant("La Bella Vita").getId(), italian.getId());
+        assertSame(italian, loaded.getRestaurantById(italian.getId()));
+        assertEquals(DishType.ITALIAN, italian.getCuisineType());
+        assertEquals(LocalTime.of(22, 0), italian.getOpeningHours().get(0).getClosingTime());
+        assertEquals(manager.getRestaurant("La Bella Vita").getAllCapacities(), italian.getAllCapacities());
+        assertEquals(5, italian.getCapacity(lunch));
+
+        Dish pizza = italian.findDishByName("Margherita Pizza");
+        assertEquals(12.50, pizza.getPrice());
+        assertEquals(DishCategory.MAIN_COURSE, pizza.getCategory());
+        assertEquals("Olives", pizza.getToppings().get(0).getName());
+        assertEquals(1.5, pizza.getToppings().get(0).getPrice());
+
+        assertEquals("Traditional soup", loaded.getRestaurant("Sakura Sushi").findDishByName("Miso Soup").getDescription());
+
+        // New restaurants do not take the ID of a restored one
+        Restaurant added = new Restaurant("New Place");
+        loaded.addRestaurant(added);
+        assertEquals(4, added.getId());
+    }
+
+    @Test
+    @DisplayName("Should reject a corrupted snapshot and leave the manager empty")
+    void shouldRejectCorruptedSnapshot() throws IOException {
+        CatalogSnapshot.write(manager, file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size() - 3);
+        }
+
+        RestaurantManager loaded = new RestaurantManager();
+        assertThrows(IOException.class, () -> CatalogSnapshot.load(file, loaded));
+        assertTrue(loaded.getAllRestaurants().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should only write a new snapshot when the catalog or a capacity changed")
+    void shouldSnapshotOnlyChanges() throws IOException {
+        CatalogSnapshotter snapshotter = new CatalogSnapshotter(manager, file);
+
+        assertTrue(snapshotter.snapshot());
+        assertFalse(snapshotter.snapshot());
+
+        manager.getRestaurant("La Bella Vita").blockTimeSlot(lunch);
+        assertTrue(snapshotter.snapshot());
+        manager.getRestaurant("Sakura Sushi").addDish("Ramen", "Pork broth noodles", 12.00);
+        assertTrue(snapshotter.snapshot());
+        assertFalse(Files.exists(directory.resolve("catalog.snap.tmp")));
+
+        RestaurantManager restarted = new RestaurantManager();
+        CatalogSnapshotter reloaded = new CatalogSnapshotter(restarted, file);
+        assertEquals(3, reloaded.load());
+        Restaurant restored = restarted.getRestaurant("La Bella Vita");
+        assertEquals(4, restored.getCapacity(lunch));
+        // The place taken before the restart can still be given back, but only that one
+        assertEquals(5, restored.getConfiguredCapacity(lunch));
+        assertNotNull(restarted.getRestaurant("Sakura Sushi").findDishByName("Ramen"));
+        assertFalse(reloaded.snapshot());
+        assertTrue(restored.releaseTimeSlot(lunch));
+        assertFalse(restored.releaseTimeSlot(lunch));
+    }
+}
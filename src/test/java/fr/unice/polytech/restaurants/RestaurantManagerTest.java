@@ -9,8 +9,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+
 import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -171,6 +177,213 @@ class RestaurantManagerTest {
         }
     }
 
+    // ==================== RESTAURANT ID TESTS ====================
+
+    @Nested
+    @DisplayName("Restaurant ID Tests")
+    class RestaurantIdTests {
+
+        @Test
+        @DisplayName("Should assign distinct IDs on registration")
+        void shouldAssignDistinctIdsOnRegistration() {
+            assertEquals(0, restaurant1.getId());
+
+            manager.addRestaurant(restaurant1);
+            manager.addRestaurant(restaurant2);
+
+            assertTrue(restaurant1.getId() > 0);
+            assertTrue(restaurant2.getId() > 0);
+            assertNotEquals(restaurant1.getId(), restaurant2.getId());
+        }
+
+        @Test
+        @DisplayName("Should get restaurant by ID")
+        void shouldGetRestaurantById() {
+            manager.addRestaurant(restaurant1);
+            manager.addRestaurant(restaurant2);
+
+            assertSame(restaurant1, manager.getRestaurantById(restaurant1.getId()));
+            assertSame(restaurant2, manager.getRestaurantById(restaurant2.getId()));
+        }
+
+        @Test
+        @DisplayName("Should return null for unknown ID")
+        void shouldReturnNullForUnknownId() {
+            manager.addRestaurant(restaurant1);
+
+            assertNull(manager.getRestaurantById(0));
+            assertNull(manager.getRestaurantById(-1));
+            assertNull(manager.getRestaurantById(restaurant1.getId() + 1));
+            assertNull(manager.getRestaurantById(Long.MAX_VALUE));
+        }
+
+        @Test
+        @DisplayName("Should keep the ID when replacing a restaurant with the same name")
+        void shouldKeepIdWhenReplacingRestaurant() {
+            manager.addRestaurant(restaurant1);
+            long id = restaurant1.getId();
+
+            Restaurant newPizzaPalace = new Restaurant("Pizza Palace");
+            manager.addRestaurant(newPizzaPalace);
+
+            assertEquals(id, newPizzaPalace.getId());
+            assertSame(newPizzaPalace, manager.getRestaurantById(id));
+        }
+
+        @Test
+        @DisplayName("Should index many restaurants by ID")
+        void shouldIndexManyRestaurantsById() {
+            for (int i = 0; i < 1000; i++) {
+                manager.addRestaurant(new Restaurant("Restaurant " + i));
+            }
+
+            for (Restaurant r : manager.getAllRestaurants()) {
+                assertSame(r, manager.getRestaurantById(r.getId()));
+            }
+        }
+        @Test
+        @DisplayName("Should assign distinct IDs to restaurants added concurrently")
+        void shouldAssignDistinctIdsConcurrently() throws InterruptedException {
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                pool.execute(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        manager.addRestaurant(new Restaurant("Restaurant " + thread + "-" + i));
+                    }
+                });
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+            List<Restaurant> all = manager.getAllRestaurants();
+            assertEquals(2000, all.size());
+            assertEquals(2000, all.stream().mapToLong(Restaurant::getId).distinct().count());
+            for (Restaurant r : all) {
+                assertSame(r, manager.getRestaurantById(r.getId()));
+            }
+        }
+    }
+
+    // ==================== CATALOG VERSION TESTS ====================
+
+    @Nested
+    @DisplayName("Catalog Version Tests")
+    class CatalogVersionTests {
+
+        @Test
+        @DisplayName("Should change catalog version when a restaurant is added")
+        void shouldChangeVersionWhenRestaurantAdded() {
+            long before = manager.getCatalogVersion();
+
+            manager.addRestaurant(restaurant1);
+
+            assertNotEquals(before, manager.getCatalogVersion());
+        }
+
+        @Test
+        @DisplayName("Should change catalog version when a menu changes")
+        void shouldChangeVersionWhenMenuChanges() {
+            manager.addRestaurant(restaurant1);
+
+            long beforeAdd = manager.getCatalogVersion();
+            restaurant1.addDish("Margherita", "Classic Italian pizza", 12.0);
+            long afterAdd = manager.getCatalogVersion();
+            restaurant1.updateDish(restaurant1.findDishByName("Margherita"), 14);
+            long afterUpdate = manager.getCatalogVersion();
+            restaurant1.removeDish("Margherita");
+
+            assertNotEquals(beforeAdd, afterAdd);
+            assertNotEquals(afterAdd, afterUpdate);
+            assertNotEquals(afterUpdate, manager.getCatalogVersion());
+        }
+
+        @Test
+        @DisplayName("Should not change catalog version for capacity changes")
+        void shouldNotChangeVersionForCapacityChanges() {
+            manager.addRestaurant(restaurant1);
+            long before = manager.getCatalogVersion();
+
+            manager.blockTimeSlot(slot1, restaurant1);
+
+            assertEquals(before, manager.getCatalogVersion());
+        }
+
+        @Test
+        @DisplayName("Should stop tracking a replaced restaurant")
+        void shouldStopTrackingReplacedRestaurant() {
+            manager.addRestaurant(restaurant1);
+            manager.addRestaurant(new Restaurant("Pizza Palace"));
+            long before = manager.getCatalogVersion();
+
+            restaurant1.addDish("Margherita", "Classic Italian pizza", 12.0);
+
+            assertEquals(before, manager.getCatalogVersion());
+        }
+    }
+
+    // ==================== FIND RESTAURANTS TESTS ====================
+
+    @Nested
+    @DisplayName("Find Restaurants Tests")
+    class FindRestaurantsTests {
+
+        private Restaurant italian;
+        private Restaurant japanese;
+
+        @BeforeEach
+        void setUpCatalog() {
+            italian = new Restaurant.Builder("La Bella Vita").withCuisineType(DishType.ITALIAN).build();
+            italian.addDish("Margherita", "Classic Italian pizza", 12.0);
+            italian.addDish("Tiramisu", "Coffee dessert", 6.0);
+            italian.updateDish(italian.findDishByName("Tiramisu"), DishCategory.DESSERT);
+            japanese = new Restaurant.Builder("Sakura Sushi").withCuisineType(DishType.JAPANESE).build();
+            japanese.addDish("Miso Soup", "Traditional soup", 4.5);
+            manager.addRestaurant(italian);
+            manager.addRestaurant(japanese);
+        }
+
+        @Test
+        @DisplayName("Should return every restaurant for an empty query")
+        void shouldReturnEveryRestaurantForEmptyQuery() {
+            assertEquals(List.of(italian, japanese), manager.findRestaurants(new CatalogQuery()));
+        }
+
+        @Test
+        @DisplayName("Should filter by cuisine type and dish category")
+        void shouldFilterByCuisineTypeAndDishCategory() {
+            assertEquals(List.of(japanese), manager.findRestaurants(new CatalogQuery().cuisineType(DishType.JAPANESE)));
+            assertEquals(List.of(italian), manager.findRestaurants(new CatalogQuery().withDishCategory(DishCategory.DESSERT)));
+            assertTrue(manager.findRestaurants(new CatalogQuery()
+                    .cuisineType(DishType.JAPANESE)
+                    .withDishCategory(DishCategory.DESSERT)).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should follow dish additions, updates and removals")
+        void shouldFollowMenuChanges() {
+            CatalogQuery vegetarian = new CatalogQuery().withDishType(DishType.VEGETARIAN);
+            assertTrue(manager.findRestaurants(vegetarian).isEmpty());
+
+            japanese.addDish("Vegetable Maki", "Cucumber and avocado", 7.0);
+            japanese.updateDish(japanese.findDishByName("Vegetable Maki"), DishType.VEGETARIAN);
+            assertEquals(List.of(japanese), manager.findRestaurants(vegetarian));
+
+            japanese.removeDish("Vegetable Maki");
+            assertTrue(manager.findRestaurants(vegetarian).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should index a replacing restaurant instead of the replaced one")
+        void shouldIndexReplacingRestaurant() {
+            Restaurant newItalian = new Restaurant.Builder("La Bella Vita").withCuisineType(DishType.FRENCH).build();
+            manager.addRestaurant(newItalian);
+
+            assertTrue(manager.findRestaurants(new CatalogQuery().cuisineType(DishType.ITALIAN)).isEmpty());
+            assertEquals(List.of(newItalian), manager.findRestaurants(new CatalogQuery().cuisineType(DishType.FRENCH)));
+        }
+    }
+
     // ==================== HAS RESTAURANT TESTS ====================
 
     @Nested
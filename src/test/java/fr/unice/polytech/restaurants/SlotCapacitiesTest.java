@@ -0,0 +1,151 @@
+package fr.unice.polytech.restaurants;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SlotCapacities Tests")
+class SlotCapacitiesTest {
+
+    private static final int THREADS = 16;
+
+    private Restaurant restaurant;
+    private TimeSlot slot;
+
+    @BeforeEach
+    void setUp() {
+        restaurant = new Restaurant("Pizza Palace");
+        slot = new TimeSlot(LocalTime.of(12, 0), LocalTime.of(12, 30));
+    }
+
+    @Test
+    @DisplayName("Should report whether a reservation succeeded")
+    void shouldReportWhetherReservationSucceeded() {
+        restaurant.setCapacity(slot, 1);
+
+        assertTrue(restaurant.blockTimeSlot(slot));
+        assertFalse(restaurant.blockTimeSlot(slot));
+        assertEquals(0, restaurant.getCapacity(slot));
+    }
+
+    @Test
+    @DisplayName("Should refuse to reserve an unknown slot")
+    void shouldRefuseToReserveUnknownSlot() {
+        assertFalse(restaurant.blockTimeSlot(slot));
+        assertEquals(0, restaurant.getCapacity(slot));
+    }
+
+    @Test
+    @DisplayName("Should not inflate capacity when a place is released twice")
+    void shouldNotInflateCapacityOnDoubleRelease() {
+        restaurant.setCapacity(slot, 2);
+        assertTrue(restaurant.blockTimeSlot(slot));
+
+        assertTrue(restaurant.releaseTimeSlot(slot));
+        assertFalse(restaurant.releaseTimeSlot(slot));
+        assertEquals(2, restaurant.getCapacity(slot));
+        assertEquals(2, restaurant.getConfiguredCapacity(slot));
+    }
+
+    @Test
+    @DisplayName("Should refuse to release an unknown slot")
+    void shouldRefuseToReleaseUnknownSlot() {
+        assertFalse(restaurant.releaseTimeSlot(slot));
+        assertEquals(0, restaurant.getCapacity(slot));
+        assertTrue(restaurant.getAllCapacities().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should raise the configured capacity when the manager adds a place")
+    void shouldRaiseConfiguredCapacityOnIncrease() {
+        restaurant.setCapacity(slot, 1);
+        assertTrue(restaurant.blockTimeSlot(slot));
+
+        restaurant.increaseCapacity(slot);
+
+        assertEquals(1, restaurant.getCapacity(slot));
+        assertEquals(2, restaurant.getConfiguredCapacity(slot));
+        assertTrue(restaurant.releaseTimeSlot(slot));
+        assertFalse(restaurant.releaseTimeSlot(slot));
+        assertEquals(2, restaurant.getCapacity(slot));
+    }
+
+    @Test
+    @DisplayName("Should never oversell a slot under concurrent reservations")
+    void shouldNeverOversellUnderConcurrentReservations() throws Exception {
+        int capacity = 1000;
+        int attemptsPerThread = 200;
+        restaurant.setCapacity(slot, capacity);
+
+        AtomicInteger reserved = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < attemptsPerThread; i++) {
+                if (restaurant.blockTimeSlot(slot)) {
+                    reserved.incrementAndGet();
+                }
+                assertTrue(restaurant.getCapacity(slot) >= 0);
+            }
+        });
+
+        // 16 threads x 200 attempts = 3200 attempts for 1000 places
+        assertEquals(capacity, reserved.get());
+        assertEquals(0, restaurant.getCapacity(slot));
+    }
+
+    @Test
+    @DisplayName("Should keep capacity consistent under concurrent reservations and releases")
+    void shouldKeepCapacityConsistentUnderReservationsAndReleases() throws Exception {
+        int capacity = 10;
+        restaurant.setCapacity(slot, capacity);
+
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int i = 0; i < 5000; i++) {
+                if (restaurant.blockTimeSlot(slot)) {
+                    maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+                    held.decrementAndGet();
+                    assertTrue(restaurant.releaseTimeSlot(slot));
+                }
+                int remaining = restaurant.getCapacity(slot);
+                assertTrue(remaining >= 0 && remaining <= capacity, "capacity out of bounds: " + remaining);
+            }
+        });
+
+        assertTrue(maxHeld.get() <= capacity);
+        assertEquals(capacity, restaurant.getCapacity(slot));
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
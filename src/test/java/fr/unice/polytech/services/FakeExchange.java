@@ -0,0 +1,150 @@
+package fr.unice.polytech.services;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-memory HttpExchange so that handlers can be tested without sockets.
+ * The response body and status are kept for assertions.
+ */
+public class FakeExchange extends HttpExchange {
+
+    private final String method;
+    private final URI uri;
+    private InputStream requestBody;
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final ByteArrayOutputStream recordedBody;
+    private OutputStream responseBody;
+    private int responseCode = -1;
+    private long responseLength = -2;
+
+    public FakeExchange(String method, String uri, String requestBody) {
+        this.method = method;
+        this.uri = URI.create(uri);
+        this.requestBody = new ByteArrayInputStream(requestBody.getBytes(StandardCharsets.UTF_8));
+        this.recordedBody = new ByteArrayOutputStream();
+        this.responseBody = recordedBody;
+    }
+
+    public static FakeExchange get(String uri) {
+        return new FakeExchange("GET", uri, "");
+    }
+
+    public static FakeExchange post(String uri, String body) {
+        return new FakeExchange("POST", uri, body);
+    }
+
+    public byte[] getResponseBytes() {
+        return recordedBody.toByteArray();
+    }
+
+    //Length given to sendResponseHeaders: 0 for chunked, -1 for no body, -2 if headers were not sent.
+    public long getResponseLength() {
+        return responseLength;
+    }
+
+    public String getResponseText() {
+        return recordedBody.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+        this.responseCode = rCode;
+        this.responseLength = responseLength;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return null;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        // Same contract as the real exchange: filters wrap the streams
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+package fr.unice.polytech.services;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private IdempotencyFilter filter;
+    private HttpHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(new IdempotencyStore(100, Duration.ofMinutes(5)));
+        // Creates a new resource on each execution, echoing the request body
+        handler = exchange -> {
+            int id = executions.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes());
+            exchange.getResponseHeaders().set("Location", "/api/orders/" + id);
+            JsonResponses.sendValue(exchange, body.contains("crash") ? 503 : 201, List.of(id, body));
+        };
+    }
+
+    private FakeExchange post(String key, String body) throws IOException {
+        FakeExchange exchange = FakeExchange.post("/api/orders", body);
+        if (key != null) {
+            exchange.getRequestHeaders().set(IdempotencyFilter.HEADER, key);
+        }
+        filter.doFilter(exchange, new Filter.Chain(List.of(), handler));
+        return exchange;
+    }
+
+    @Test
+    void replaysRecordedResponseWithoutExecutingAgain() throws IOException {
+        FakeExchange first = post("key-1", "{\"dish\": \"pizza\"}");
+        FakeExchange retry = post("key-1", "{\"dish\": \"pizza\"}");
+
+        assertEquals(1, executions.get());
+        assertEquals(201, retry.getResponseCode());
+        assertArrayEquals(first.getResponseBytes(), retry.getResponseBytes());
+        assertEquals("/api/orders/1", retry.getResponseHeaders().getFirst("Location"));
+        assertEquals("true", retry.getResponseHeaders().getFirst("Idempotent-Replayed"));
+    }
+
+    @Test
+    void executesRequestsWithoutKeyOrWithOtherKeys() throws IOException {
+        post(null, "{}");
+        post(null, "{}");
+        post("key-1", "{}");
+        post("key-2", "{}");
+
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    void refusesKeyReusedWithAnotherBody() throws IOException {
+        post("key-1", "{\"dish\": \"pizza\"}");
+        FakeExchange reused = post("key-1", "{\"dish\": \"sushi\"}");
+
+        assertEquals(422, reused.getResponseCode());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void doesNotKeepServerErrors() throws IOException {
+        assertEquals(503, post("key-1", "crash").getResponseCode());
+        post("key-1", "crash");
+
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForFirstExecution() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        HttpHandler fast = handler;
+        handler = exchange -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            fast.handle(exchange);
+        };
+
+        CompletableFuture<FakeExchange> first = CompletableFuture.supplyAsync(() -> postUnchecked("key-1"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<FakeExchange> duplicate = CompletableFuture.supplyAsync(() -> postUnchecked("key-1"));
+        Thread.sleep(50);
+        assertFalse(duplicate.isDone(), "The duplicate must wait for the first execution");
+
+        release.countDown();
+
+        assertArrayEquals(first.get(5, TimeUnit.SECONDS).getResponseBytes(),
+                duplicate.get(5, TimeUnit.SECONDS).getResponseBytes());
+        assertEquals(1, executions.get());
+    }
+
+    private FakeExchange postUnchecked(String key) {
+        try {
+            return post(key, "{}");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void storeExpiresAndEvictsCompletedEntries() {
+        AtomicLong now = new AtomicLong();
+        IdempotencyStore store = new IdempotencyStore(2, Duration.ofSeconds(10), now::get);
+        IdempotencyStore.StoredResponse response = new IdempotencyStore.StoredResponse(201, Map.of(), new byte[0]);
+
+        IdempotencyStore.Entry inProgress = store.register("a", "x");
+        store.register("b", "x").getResponse().complete(response);
+        store.register("c", "x").getResponse().complete(response);
+
+        assertNull(store.register("a", "x"), "An execution in progress is never evicted");
+        assertNull(store.get("b"), "The oldest completed entry is evicted beyond the capacity");
+        assertNotNull(store.get("c"));
+
+        inProgress.getResponse().complete(response);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        assertNull(store.get("a"));
+        assertNotNull(store.register("a", "y"), "An expired key can be used again");
+    }
+
+    @Test
+    void storeDropsRemovedEntriesQueuedBehindLiveOnes() {
+        IdempotencyStore store = new IdempotencyStore(100, Duration.ofMinutes(5));
+        IdempotencyStore.StoredResponse response = new IdempotencyStore.StoredResponse(201, Map.of(), new byte[0]);
+        store.register("live", "x").getResponse().complete(response);
+
+        // Server errors are forgotten so that they can be retried: none of them may stay queued
+        for (int i = 0; i < 10_000; i++) {
+            store.remove(store.register("failed-" + i, "x"));
+        }
+
+        assertEquals(1, store.size());
+        assertTrue(store.getQueuedCount() <= 3, store.getQueuedCount() + " entries queued");
+        assertNotNull(store.get("live"));
+    }
+}
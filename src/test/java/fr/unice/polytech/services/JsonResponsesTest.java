@@ -0,0 +1,124 @@
+package fr.unice.polytech.services;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonResponsesTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void sendsSmallBodiesWithTheirLength() throws IOException {
+        FakeExchange exchange = FakeExchange.get("/");
+
+        JsonResponses.sendValue(exchange, 201, Map.of("name", "Pizza"));
+
+        assertEquals(201, exchange.getResponseCode());
+        assertEquals(exchange.getResponseBytes().length, exchange.getResponseLength());
+        assertEquals("{\"name\":\"Pizza\"}", exchange.getResponseText());
+        assertEquals("application/json", exchange.getResponseHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void streamsLargeBodiesChunked() throws IOException {
+        FakeExchange exchange = FakeExchange.get("/");
+        List<Integer> items = new ArrayList<>();
+        IntStream.range(0, 5000).forEach(items::add);
+
+        JsonResponses.sendArray(exchange, 200, items, i -> Map.of("id", i, "name", "Dish " + i));
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals(0, exchange.getResponseLength());
+        JsonNode body = objectMapper.readTree(exchange.getResponseBytes());
+        assertEquals(5000, body.size());
+        assertEquals("Dish 4999", body.get(4999).get("name").asText());
+    }
+
+    @Test
+    void doesNotFlushEachItemOfAStreamedArray() throws IOException {
+        FakeExchange exchange = FakeExchange.get("/");
+        AtomicInteger flushes = new AtomicInteger();
+        exchange.setStreams(null, new FilterOutputStream(exchange.getResponseBody()) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                flushes.incrementAndGet();
+                super.flush();
+            }
+        });
+        List<Integer> items = new ArrayList<>();
+        IntStream.range(0, 5000).forEach(items::add);
+
+        JsonResponses.sendArray(exchange, 200, items, i -> Map.of("id", i, "name", "Dish " + i));
+
+        assertEquals(0, exchange.getResponseLength());
+        assertEquals(5000, objectMapper.readTree(exchange.getResponseBytes()).size());
+        // Only when the generator and then the stream are closed, not once per item
+        assertTrue(flushes.get() <= 2, "Flushed " + flushes.get() + " times");
+    }
+
+    @Test
+    void keepsACopyOfStreamedBodiesUpToTheLimit() throws IOException {
+        List<Integer> items = new ArrayList<>();
+        IntStream.range(0, 5000).forEach(items::add);
+
+        FakeExchange small = FakeExchange.get("/");
+        byte[] smallCopy = JsonResponses.sendArray(small, 200, List.of(1, 2), i -> Map.of("id", i), 1024);
+        FakeExchange chunked = FakeExchange.get("/");
+        byte[] chunkedCopy = JsonResponses.sendArray(chunked, 200, items, i -> Map.of("id", i), 1 << 20);
+        FakeExchange tooLong = FakeExchange.get("/");
+        byte[] noCopy = JsonResponses.sendArray(tooLong, 200, items, i -> Map.of("id", i), 20_000);
+
+        assertArrayEquals(small.getResponseBytes(), smallCopy);
+        assertEquals(0, chunked.getResponseLength());
+        assertArrayEquals(chunked.getResponseBytes(), chunkedCopy);
+        assertNull(noCopy);
+        assertEquals(5000, objectMapper.readTree(tooLong.getResponseBytes()).size());
+    }
+
+    @Test
+    void escapesErrorMessages() throws IOException {
+        FakeExchange exchange = FakeExchange.get("/");
+
+        JsonResponses.sendError(exchange, 400, "For input string: \"abc\"");
+
+        assertEquals(400, exchange.getResponseCode());
+        assertEquals("For input string: \"abc\"",
+            objectMapper.readTree(exchange.getResponseBytes()).get("error").asText());
+    }
+
+    @Test
+    void failedSerializationSendsNothing() {
+        FakeExchange exchange = FakeExchange.get("/");
+
+        assertThrows(RuntimeException.class, () -> JsonResponses.sendArray(exchange, 200, List.of(1, 2),
+            i -> { throw new IllegalStateException("boom"); }));
+
+        assertEquals(-1, exchange.getResponseCode());
+        assertEquals(0, exchange.getResponseBytes().length);
+    }
+
+    @Test
+    void sendsEmptyBodiesWithoutChunking() throws IOException {
+        FakeExchange exchange = FakeExchange.get("/");
+
+        JsonResponses.send(exchange, 200, new byte[0]);
+
+        assertEquals(-1, exchange.getResponseLength());
+    }
+}
@@ -0,0 +1,55 @@
+package fr.unice.polytech.services;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import fr.unice.polytech.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestMetricsFilterTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final RequestMetricsFilter filter = new RequestMetricsFilter(registry, "/api/orders");
+
+    private void call(HttpHandler handler) throws IOException {
+        filter.doFilter(FakeExchange.get("/api/orders/42"), new Filter.Chain(List.of(), handler));
+    }
+
+    @Test
+    void countsRequestsByRouteAndStatus() throws IOException {
+        call(exchange -> JsonResponses.sendValue(exchange, 200, List.of()));
+        call(exchange -> JsonResponses.sendValue(exchange, 200, List.of()));
+        call(exchange -> JsonResponses.sendError(exchange, 404, "Order not found"));
+        call(exchange -> { });
+        assertThrows(IllegalStateException.class, () -> call(exchange -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        String text = registry.scrape();
+        assertTrue(text.contains("http_requests_total{route=\"/api/orders\",status=\"200\"} 2\n"));
+        assertTrue(text.contains("http_requests_total{route=\"/api/orders\",status=\"404\"} 1\n"));
+        assertTrue(text.contains("http_requests_total{route=\"/api/orders\",status=\"none\"} 1\n"));
+        assertTrue(text.contains("http_requests_total{route=\"/api/orders\",status=\"500\"} 1\n"));
+        assertTrue(text.contains("http_request_duration_seconds_count{route=\"/api/orders\"} 5\n"));
+    }
+
+    @Test
+    void servesMetricsAsPrometheusText() throws IOException {
+        FakeExchange exchange = FakeExchange.get("/metrics");
+        call(e -> { });
+
+        new MetricsHandler(registry).handle(exchange);
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals(MetricsHandler.CONTENT_TYPE, exchange.getResponseHeaders().getFirst("Content-Type"));
+        assertTrue(exchange.getResponseText().contains("# TYPE http_requests_total counter"));
+
+        FakeExchange post = FakeExchange.post("/metrics", "");
+        new MetricsHandler(registry).handle(post);
+        assertEquals(405, post.getResponseCode());
+    }
+}
@@ -0,0 +1,101 @@
+package fr.unice.polytech.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ServerExecutorsTest {
+
+    @Test
+    void parsesExecutorOptions() {
+        ServerOptions options = ServerOptions.parse("test-server", "--executor=POOL", "--threads=8", "--queue-capacity=50");
+
+        assertNotNull(options);
+        assertEquals(ExecutionMode.POOL, options.getExecutionMode());
+        assertEquals(8, options.getThreads());
+        assertEquals(50, options.getQueueCapacity());
+    }
+
+    @Test
+    void defaultsToVirtualThreads() {
+        ServerOptions options = ServerOptions.parse("test-server");
+
+        assertNotNull(options);
+        assertEquals(ExecutionMode.VIRTUAL, options.getExecutionMode());
+    }
+
+    @Test
+    void rejectsUnknownExecutionMode() {
+        assertNull(ServerOptions.parse("test-server", "--executor=FORKJOIN"));
+    }
+
+    @Test
+    void dispatcherModeKeepsDefaultExecutor() {
+        assertNull(ServerExecutors.create("test", new ServerOptions(ExecutionMode.DISPATCHER, 1, 1)));
+    }
+
+    @Test
+    void poolModeCreatesBoundedPool() {
+        ExecutorService executor = ServerExecutors.create("test", new ServerOptions(ExecutionMode.POOL, 3, 10));
+        try {
+            ThreadPoolExecutor pool = assertInstanceOf(ThreadPoolExecutor.class, executor);
+            assertEquals(3, pool.getMaximumPoolSize());
+            assertEquals(10, pool.getQueue().remainingCapacity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void poolModeRejectsInvalidSizes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ServerExecutors.create("test", new ServerOptions(ExecutionMode.POOL, 0, 10)));
+        assertThrows(IllegalArgumentException.class,
+                () -> ServerExecutors.create("test", new ServerOptions(ExecutionMode.POOL, 2, 0)));
+    }
+
+    @Test
+    void virtualModeFallsBackToBoundedPoolWithoutVirtualThreads() {
+        assumeTrue(Runtime.version().feature() < 21, "Virtual threads are available");
+        ExecutorService executor = ServerExecutors.create("test", new ServerOptions(ExecutionMode.VIRTUAL, 3, 10));
+        try {
+            ThreadPoolExecutor pool = assertInstanceOf(ThreadPoolExecutor.class, executor);
+            assertEquals(3, pool.getMaximumPoolSize());
+            assertEquals(10, pool.getQueue().remainingCapacity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void virtualModeRunsBlockingTasksConcurrently() throws InterruptedException {
+        // Enough threads for every task if the runtime falls back to the pool
+        ExecutorService executor = ServerExecutors.create("test", new ServerOptions(ExecutionMode.VIRTUAL, 64, 10));
+        try {
+            int tasks = 50;
+            CountDownLatch allStarted = new CountDownLatch(tasks);
+            CountDownLatch release = new CountDownLatch(1);
+            for (int i = 0; i < tasks; i++) {
+                executor.execute(() -> {
+                    allStarted.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            // Every task blocks until all of them have started: this only completes if none waits for another
+            assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package fr.unice.polytech.services.catalog.handlers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.services.FakeExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RestaurantHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private RestaurantManager restaurantManager;
+    private RestaurantHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        restaurantManager = new RestaurantManager();
+        handler = new RestaurantHandler(restaurantManager);
+    }
+
+    private FakeExchange get(String uri) throws IOException {
+        FakeExchange exchange = FakeExchange.get(uri);
+        handler.handle(exchange);
+        return exchange;
+    }
+
+    @Test
+    void listsAndFiltersRestaurants() throws IOException {
+        FakeExchange all = get("/api/restaurants");
+        FakeExchange italian = get("/api/restaurants?cuisineType=italian");
+        FakeExchange vegetarian = get("/api/restaurants?hasVegetarian=true");
+
+        assertEquals(200, all.getResponseCode());
+        assertEquals(3, objectMapper.readTree(all.getResponseBytes()).size());
+        JsonNode italianRestaurants = objectMapper.readTree(italian.getResponseBytes());
+        assertEquals(1, italianRestaurants.size());
+        assertEquals("La Bella Vita", italianRestaurants.get(0).get("name").asText());
+        assertEquals(0, objectMapper.readTree(vegetarian.getResponseBytes()).size());
+    }
+
+    @Test
+    void filtersOnUnknownValuesMatchNothing() throws IOException {
+        FakeExchange unknownCuisine = get("/api/restaurants?cuisineType=MARTIAN");
+        FakeExchange unknownCategory = get("/api/restaurants?dishCategory=BRUNCH");
+
+        assertEquals(200, unknownCuisine.getResponseCode());
+        assertEquals(0, objectMapper.readTree(unknownCuisine.getResponseBytes()).size());
+        assertEquals(0, objectMapper.readTree(unknownCategory.getResponseBytes()).size());
+    }
+
+    @Test
+    void servesRepeatedQueriesFromCache() throws IOException {
+        byte[] first = get("/api/restaurants?cuisineType=JAPANESE").getResponseBytes();
+        byte[] second = get("/api/restaurants?cuisineType=japanese").getResponseBytes();
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void streamsLargeListsChunked() throws IOException {
+        for (int i = 0; i < 2000; i++) {
+            Restaurant restaurant = new Restaurant("Restaurant " + i);
+            restaurant.addDish("Dish " + i, "A dish with a long enough description to fill the body", 10.0);
+            restaurantManager.addRestaurant(restaurant);
+        }
+
+        FakeExchange first = get("/api/restaurants");
+        FakeExchange second = get("/api/restaurants");
+
+        assertEquals(0, first.getResponseLength()); // chunked
+        assertEquals(2003, objectMapper.readTree(first.getResponseBytes()).size());
+        assertArrayEquals(first.getResponseBytes(), second.getResponseBytes());
+    }
+
+    @Test
+    void invalidatesCacheWhenMenuChanges() throws IOException {
+        get("/api/restaurants?cuisineType=ITALIAN");
+
+        Restaurant italian = restaurantManager.getRestaurant("La Bella Vita");
+        italian.addDish("Tiramisu", "Coffee dessert", 6.0);
+        JsonNode afterAdd = objectMapper.readTree(get("/api/restaurants?cuisineType=ITALIAN").getResponseBytes());
+        assertEquals(3, afterAdd.get(0).get("dishes").size());
+
+        italian.removeDish("Tiramisu");
+        JsonNode afterRemove = objectMapper.readTree(get("/api/restaurants?cuisineType=ITALIAN").getResponseBytes());
+        assertEquals(2, afterRemove.get(0).get("dishes").size());
+    }
+
+    @Test
+    void invalidatesCacheWhenRestaurantIsAdded() throws IOException {
+        get("/api/restaurants");
+
+        restaurantManager.addRestaurant(new Restaurant("Chez Paul"));
+
+        assertEquals(4, objectMapper.readTree(get("/api/restaurants").getResponseBytes()).size());
+    }
+
+    @Test
+    void getsRestaurantById() throws IOException {
+        Restaurant japanese = restaurantManager.getRestaurant("Sakura Sushi");
+
+        FakeExchange found = get("/api/restaurants/" + japanese.getId());
+        FakeExchange missing = get("/api/restaurants/999");
+
+        assertEquals(200, found.getResponseCode());
+        assertEquals("Sakura Sushi", objectMapper.readTree(found.getResponseBytes()).get("name").asText());
+        assertEquals(404, missing.getResponseCode());
+    }
+
+    @Test
+    void answersNotModifiedWhileCatalogIsUnchanged() throws IOException {
+        FakeExchange first = get("/api/restaurants");
+        String etag = first.getResponseHeaders().getFirst("ETag");
+        assertNotNull(etag);
+        assertNotNull(first.getResponseHeaders().getFirst("Cache-Control"));
+
+        FakeExchange revalidation = FakeExchange.get("/api/restaurants");
+        revalidation.getRequestHeaders().set("If-None-Match", etag);
+        handler.handle(revalidation);
+
+        assertEquals(304, revalidation.getResponseCode());
+        assertEquals(0, revalidation.getResponseBytes().length);
+        assertEquals(etag, revalidation.getResponseHeaders().getFirst("ETag"));
+    }
+
+    @Test
+    void rejectsInvalidCursorBeforeRevalidation() throws IOException {
+        String etag = get("/api/restaurants?limit=2").getResponseHeaders().getFirst("ETag");
+
+        FakeExchange revalidation = FakeExchange.get("/api/restaurants?limit=2&cursor=not-a-cursor");
+        revalidation.getRequestHeaders().set("If-None-Match", etag);
+        handler.handle(revalidation);
+
+        assertEquals(400, revalidation.getResponseCode());
+        assertNull(revalidation.getResponseHeaders().getFirst("ETag"));
+        assertNull(revalidation.getResponseHeaders().getFirst("Cache-Control"));
+    }
+
+    @Test
+    void changesETagWhenRestaurantChanges() throws IOException {
+        Restaurant italian = restaurantManager.getRestaurant("La Bella Vita");
+        String uri = "/api/restaurants/" + italian.getId();
+        String etag = get(uri).getResponseHeaders().getFirst("ETag");
+
+        italian.addDish("Tiramisu", "Coffee dessert", 6.0);
+
+        FakeExchange revalidation = FakeExchange.get(uri);
+        revalidation.getRequestHeaders().set("If-None-Match", etag);
+        handler.handle(revalidation);
+        assertEquals(200, revalidation.getResponseCode());
+        assertNotEquals(etag, revalidation.getResponseHeaders().getFirst("ETag"));
+        assertEquals(3, objectMapper.readTree(revalidation.getResponseBytes()).get("dishes").size());
+    }
+
+    @Test
+    void sortsRestaurants() throws IOException {
+        JsonNode byName = objectMapper.readTree(get("/api/restaurants?sort=name").getResponseBytes());
+        JsonNode byPriceDesc = objectMapper.readTree(get("/api/restaurants?sort=-minPrice").getResponseBytes());
+
+        assertEquals("Green Garden", byName.get(0).get("name").asText());
+        assertEquals("Sakura Sushi", byName.get(2).get("name").asText());
+        assertEquals("La Bella Vita", byPriceDesc.get(0).get("name").asText());
+        assertEquals("Sakura Sushi", byPriceDesc.get(2).get("name").asText());
+    }
+
+    @Test
+    void walksPagesWithCursor() throws IOException {
+        restaurantManager.addRestaurant(new Restaurant("Chez Paul"));
+        restaurantManager.addRestaurant(new Restaurant("Au Bon Coin"));
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String uri = "/api/restaurants?sort=name&limit=2" + (cursor != null ? "&cursor=" + cursor : "");
+            FakeExchange exchange = get(uri);
+            assertEquals(200, exchange.getResponseCode());
+            JsonNode page = objectMapper.readTree(exchange.getResponseBytes());
+            assertTrue(page.get("restaurants").size() <= 2);
+            page.get("restaurants").forEach(r -> names.add(r.get("name").asText()));
+            cursor = page.hasNonNull("nextCursor") ? page.get("nextCursor").asText() : null;
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(List.of("Au Bon Coin", "Chez Paul", "Green Garden", "La Bella Vita", "Sakura Sushi"), names);
+    }
+
+    @Test
+    void cursorSkipsRestaurantsAlreadyReturned() throws IOException {
+        JsonNode first = objectMapper.readTree(get("/api/restaurants?sort=dishCount&limit=1").getResponseBytes());
+        String cursor = first.get("nextCursor").asText();
+
+        restaurantManager.getRestaurant("Green Garden").addDish("Falafel", "Chickpea balls", 7.0);
+        JsonNode second = objectMapper.readTree(
+            get("/api/restaurants?sort=dishCount&limit=1&cursor=" + cursor).getResponseBytes());
+
+        assertEquals("La Bella Vita", first.get("restaurants").get(0).get("name").asText());
+        assertEquals("Sakura Sushi", second.get("restaurants").get(0).get("name").asText());
+    }
+
+    @Test
+    void projectsRequestedFields() throws IOException {
+        JsonNode list = objectMapper.readTree(get("/api/restaurants?fields=id,name").getResponseBytes());
+        Restaurant japanese = restaurantManager.getRestaurant("Sakura Sushi");
+        JsonNode single = objectMapper.readTree(
+            get("/api/restaurants/" + japanese.getId() + "?fields=dishes").getResponseBytes());
+
+        assertTrue(list.get(0).has("id"));
+        assertTrue(list.get(0).has("name"));
+        assertFalse(list.get(0).has("dishes"));
+        assertFalse(list.get(0).has("openingHours"));
+        assertFalse(list.get(0).has("cuisineType"));
+        assertEquals(2, single.get("dishes").size());
+        assertFalse(single.has("name"));
+    }
+
+    @Test
+    void rejectsInvalidPagingParameters() throws IOException {
+        assertEquals(400, get("/api/restaurants?limit=0").getResponseCode());
+        assertEquals(400, get("/api/restaurants?limit=abc").getResponseCode());
+        assertEquals(400, get("/api/restaurants?sort=rating").getResponseCode());
+        assertEquals(400, get("/api/restaurants?fields=id,secret").getResponseCode());
+        assertEquals(400, get("/api/restaurants?limit=2&cursor=not-a-cursor").getResponseCode());
+
+        String cursor = objectMapper.readTree(get("/api/restaurants?sort=name&limit=1").getResponseBytes())
+            .get("nextCursor").asText();
+        assertEquals(400, get("/api/restaurants?sort=minPrice&limit=1&cursor=" + cursor).getResponseCode());
+    }
+}
@@ -0,0 +1,183 @@
+package fr.unice.polytech.services.order;
+
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.TimeSlot;
+import fr.unice.polytech.services.FakeExchange;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TimeSlotStream Tests")
+class TimeSlotStreamTest {
+
+    private TimeSlotStream stream;
+    private Restaurant restaurant;
+    private TimeSlot lunch;
+    private TimeSlot dinner;
+
+    @BeforeEach
+    void setUp() {
+        restaurant = new Restaurant("La Bella Vita");
+        lunch = new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(12, 0), LocalTime.of(12, 30));
+        dinner = new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(19, 0), LocalTime.of(19, 30));
+        restaurant.setCapacity(lunch, 5);
+        restaurant.setCapacity(dinner, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stream.close();
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    @DisplayName("Should send a snapshot, then the changes of a window as one event")
+    void shouldCoalesceChanges() throws IOException, InterruptedException {
+        stream = new TimeSlotStream(Duration.ofMillis(200), 8);
+        FakeExchange exchange = FakeExchange.get("/api/timeslots/stream?restaurantId=1");
+
+        stream.subscribe(restaurant, exchange);
+        waitUntil(() -> exchange.getResponseText().contains("event: snapshot"));
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals("text/event-stream", exchange.getResponseHeaders().getFirst("Content-Type"));
+
+        restaurant.blockTimeSlot(lunch);
+        restaurant.blockTimeSlot(lunch);
+        restaurant.blockTimeSlot(dinner);
+        waitUntil(() -> exchange.getResponseText().contains("event: capacity"));
+        Thread.sleep(300); // nothing else is coming
+
+        String text = exchange.getResponseText();
+        String capacityEvent = text.substring(text.indexOf("event: capacity"));
+        assertEquals(1, occurrences(text, "event: capacity"));
+        assertTrue(capacityEvent.contains("\"startTime\":\"12:00\""));
+        assertTrue(capacityEvent.contains("\"availableCapacity\":3"));
+        assertTrue(capacityEvent.contains("\"availableCapacity\":1"));
+        assertEquals(1, stream.getSubscriberCount());
+        assertEquals(2, stream.getSentEvents());
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber that does not keep up")
+    void shouldDropSlowSubscriber() throws IOException, InterruptedException {
+        stream = new TimeSlotStream(Duration.ZERO, 2);
+        CountDownLatch unblock = new CountDownLatch(1);
+        FakeExchange exchange = FakeExchange.get("/api/timeslots/stream?restaurantId=1");
+        exchange.setStreams(null, new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    unblock.await(5, TimeUnit.SECONDS); // client not reading
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+
+        try {
+            stream.subscribe(restaurant, exchange);
+            for (int capacity = 10; stream.getDroppedSubscribers() == 0; capacity++) {
+                restaurant.setCapacity(lunch, capacity);
+                Thread.sleep(5);
+                assertTrue(capacity < 1000, "Slow subscriber never dropped");
+            }
+
+            assertEquals(0, stream.getSubscriberCount());
+            // Later changes are not queued for it
+            restaurant.setCapacity(dinner, 10);
+            assertEquals(1, stream.getDroppedSubscribers());
+        } finally {
+            unblock.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber stalled past the write timeout")
+    void shouldDropStalledSubscriber() throws IOException, InterruptedException {
+        stream = new TimeSlotStream(Duration.ZERO, 8, Duration.ofMillis(100));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        FakeExchange exchange = FakeExchange.get("/api/timeslots/stream?restaurantId=1");
+        exchange.setStreams(null, new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    new CountDownLatch(1).await(); // client not reading, until the connection is closed
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw new IOException(e);
+                }
+            }
+        });
+
+        stream.subscribe(restaurant, exchange);
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Stalled write never interrupted");
+        waitUntil(() -> stream.getSubscriberCount() == 0);
+        assertEquals(1, stream.getDroppedSubscribers());
+        assertEquals(0, stream.getChannelCount());
+        // Later changes are not queued for it
+        restaurant.setCapacity(dinner, 10);
+        assertEquals(0, stream.getChannelCount());
+        assertEquals(0, stream.getSentEvents());
+    }
+
+    @Test
+    @DisplayName("Should stop listening to a restaurant once its last subscriber is gone")
+    void shouldRemoveChannelOfLastSubscriber() throws IOException, InterruptedException {
+        stream = new TimeSlotStream(Duration.ZERO, 8);
+        AtomicBoolean connectionReset = new AtomicBoolean();
+        OutputStream resettable = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                if (connectionReset.get()) {
+                    throw new IOException("Connection reset");
+                }
+            }
+        };
+        FakeExchange first = FakeExchange.get("/api/timeslots/stream?restaurantId=1");
+        FakeExchange second = FakeExchange.get("/api/timeslots/stream?restaurantId=1");
+        first.setStreams(null, resettable);
+        second.setStreams(null, resettable);
+        stream.subscribe(restaurant, first);
+        stream.subscribe(restaurant, second);
+        waitUntil(() -> stream.getSentEvents() == 2);
+        assertEquals(1, stream.getChannelCount());
+
+        connectionReset.set(true);
+        restaurant.setCapacity(lunch, 10);
+        waitUntil(() -> stream.getSubscriberCount() == 0);
+
+        assertEquals(0, stream.getChannelCount());
+        connectionReset.set(false);
+        stream.subscribe(restaurant, FakeExchange.get("/api/timeslots/stream?restaurantId=1"));
+        assertEquals(1, stream.getChannelCount());
+    }
+}
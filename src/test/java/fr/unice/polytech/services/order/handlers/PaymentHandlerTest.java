@@ -0,0 +1,99 @@
+package fr.unice.polytech.services.order.handlers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.orderManagement.Order;
+import fr.unice.polytech.orderManagement.OrderManager;
+import fr.unice.polytech.orderManagement.OrderStatus;
+import fr.unice.polytech.paymentProcessing.IAsyncPaymentService;
+import fr.unice.polytech.paymentProcessing.IPaymentService;
+import fr.unice.polytech.paymentProcessing.PaymentProcessorFactory;
+import fr.unice.polytech.paymentProcessing.RetryPolicy;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.services.FakeExchange;
+import fr.unice.polytech.users.DeliveryLocation;
+import fr.unice.polytech.users.StudentAccount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class PaymentHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ScheduledExecutorService scheduler;
+    private CompletableFuture<Boolean> providerAnswer;
+    private OrderManager orderManager;
+    private PaymentHandler handler;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        providerAnswer = new CompletableFuture<>();
+        IAsyncPaymentService asyncService = o -> providerAnswer;
+        orderManager = new OrderManager(new PaymentProcessorFactory(
+                mock(IPaymentService.class), asyncService, RetryPolicy.defaultPolicy(), scheduler));
+        handler = new PaymentHandler(orderManager);
+
+        DeliveryLocation location = new DeliveryLocation("Campus Sophia", "930 Route des Colles", "Biot", "06410");
+        StudentAccount student = new StudentAccount.Builder("John", "Doe")
+                .email("john.doe@etu.unice.fr")
+                .studentId("S12345")
+                .addDeliveryLocation(location)
+                .bankInfo("1234567890123456", 123, 12, 2030)
+                .build();
+        Restaurant restaurant = new Restaurant("La Bella Vita");
+        order = orderManager.createOrder(List.of(new Dish("Carbonara", 14.0)), student, location, restaurant);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private FakeExchange pay(boolean async) throws IOException {
+        FakeExchange exchange = FakeExchange.post("/api/payment",
+                "{\"orderId\": " + order.getId() + ", \"paymentMethod\": \"EXTERNAL\"}");
+        if (async) {
+            exchange.getRequestHeaders().set("Prefer", "respond-async");
+        }
+        handler.handle(exchange);
+        return exchange;
+    }
+
+    @Test
+    void acceptsAsyncPaymentWithoutWaitingForTheProvider() throws IOException {
+        FakeExchange exchange = pay(true);
+
+        assertEquals(202, exchange.getResponseCode());
+        assertEquals("/api/orders/" + order.getId(), exchange.getResponseHeaders().getFirst("Location"));
+        JsonNode body = objectMapper.readTree(exchange.getResponseBytes());
+        assertEquals("PENDING", body.get("status").asText());
+
+        providerAnswer.complete(true);
+        assertEquals(OrderStatus.VALIDATED, orderManager.findOrderById(order.getId()).getOrderStatus());
+        assertTrue(orderManager.getRegisteredOrders().contains(order));
+    }
+
+    @Test
+    void synchronousPaymentWaitsForTheFinalStatus() throws IOException {
+        providerAnswer.complete(true);
+
+        FakeExchange exchange = pay(false);
+
+        assertEquals(200, exchange.getResponseCode());
+        JsonNode body = objectMapper.readTree(exchange.getResponseBytes());
+        assertEquals("VALIDATED", body.get("status").asText());
+        assertTrue(body.get("registered").asBoolean());
+    }
+}
@@ -0,0 +1,86 @@
+package fr.unice.polytech.services.order.handlers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.unice.polytech.restaurants.Restaurant;
+import fr.unice.polytech.restaurants.RestaurantManager;
+import fr.unice.polytech.restaurants.TimeSlot;
+import fr.unice.polytech.services.FakeExchange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSlotHandlerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private Restaurant restaurant;
+    private TimeSlotHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        RestaurantManager restaurantManager = new RestaurantManager();
+        restaurant = new Restaurant("La Bella Vita");
+        restaurantManager.addRestaurant(restaurant);
+        handler = new TimeSlotHandler(restaurantManager);
+    }
+
+    private FakeExchange get(String uri, String ifNoneMatch) throws IOException {
+        FakeExchange exchange = FakeExchange.get(uri);
+        if (ifNoneMatch != null) {
+            exchange.getRequestHeaders().set("If-None-Match", ifNoneMatch);
+        }
+        handler.handle(exchange);
+        return exchange;
+    }
+
+    @Test
+    void listsAvailableSlots() throws IOException {
+        FakeExchange exchange = get("/api/timeslots?restaurantId=" + restaurant.getId(), null);
+
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals(8, objectMapper.readTree(exchange.getResponseBytes()).size());
+        assertEquals("no-cache", exchange.getResponseHeaders().getFirst("Cache-Control"));
+    }
+
+    @Test
+    void answersNotModifiedUntilCapacityChanges() throws IOException {
+        String uri = "/api/timeslots?restaurantId=" + restaurant.getId();
+        String etag = get(uri, null).getResponseHeaders().getFirst("ETag");
+
+        assertEquals(304, get(uri, etag).getResponseCode());
+        assertEquals(304, get(uri, "W/" + etag).getResponseCode());
+
+        // Dinner 20:00 - 20:30 has a single place left: taking it removes the slot
+        restaurant.blockTimeSlot(new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(20, 0), LocalTime.of(20, 30)));
+
+        FakeExchange afterOrder = get(uri, etag);
+        assertEquals(200, afterOrder.getResponseCode());
+        assertNotEquals(etag, afterOrder.getResponseHeaders().getFirst("ETag"));
+        assertEquals(7, objectMapper.readTree(afterOrder.getResponseBytes()).size());
+    }
+
+    @Test
+    void keepsETagWhenReservationFails() throws IOException {
+        String uri = "/api/timeslots?restaurantId=" + restaurant.getId();
+        String etag = get(uri, null).getResponseHeaders().getFirst("ETag");
+
+        restaurant.blockTimeSlot(new TimeSlot(DayOfWeek.MONDAY, LocalTime.of(3, 0), LocalTime.of(3, 30)));
+
+        assertEquals(304, get(uri, etag).getResponseCode());
+    }
+
+    @Test
+    void streamsOnlyKnownRestaurants() throws IOException {
+        assertEquals(404, get("/api/timeslots/stream?restaurantId=999", null).getResponseCode());
+        assertEquals(400, get("/api/timeslots/stream", null).getResponseCode());
+
+        FakeExchange stream = get("/api/timeslots/stream?restaurantId=" + restaurant.getId(), null);
+        assertEquals(200, stream.getResponseCode());
+        assertEquals("text/event-stream", stream.getResponseHeaders().getFirst("Content-Type"));
+        assertEquals(0, stream.getResponseLength());
+    }
+}
@@ -187,7 +187,7 @@ public class e2eWorkflowSteps {
         PaymentMethod paymentMethod = PaymentMethod.valueOf(paymentMethodStr.toUpperCase());
         orderManager.initiatePayment(currentOrder, paymentMethod);
         if(currentOrder.getOrderStatus().equals(OrderStatus.CANCELED)){
-            currentRestaurant.unblockTimeSlot(currentTimeSlot);
+            currentRestaurant.releaseTimeSlot(currentTimeSlot);
             timeSlotCapacityAfterSelection = timeSlotCapacityBeforeSelection;
         }
     }
@@ -0,0 +1,141 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CachingSuggestionProvider Tests")
+class CachingSuggestionProviderTest {
+
+    private final List<String> queries = new ArrayList<>();
+    private final List<DishInfo> learned = new ArrayList<>();
+
+    // Records the queries it receives and suggests the dishes it learned
+    private final SuggestionProvider delegate = new SuggestionProvider() {
+        @Override
+        public List<DishInfo> getSuggestions(String keyword) {
+            queries.add(keyword);
+            return new ArrayList<>(learned);
+        }
+
+        @Override
+        public void learnFrom(Dish dish) {
+            learned.add(new DishInfo(dish.getName(), dish.getDescription(), DishType.GENERAL, DishCategory.MAIN_COURSE));
+        }
+    };
+
+    @Test
+    @DisplayName("Should answer the same normalized keyword from the cache")
+    void shouldCacheByNormalizedKeyword() {
+        CachingSuggestionProvider cache = new CachingSuggestionProvider(delegate, 10);
+
+        cache.getSuggestions("Piz");
+        cache.getSuggestions(" piz");
+        cache.getSuggestions("PÏZ");
+
+        assertEquals(1, queries.size());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should give keywords sharing an entry the suggestions of the normalized keyword")
+    void shouldAskTheDelegateWithTheNormalizedKeyword() {
+        CachingSuggestionProvider cache = new CachingSuggestionProvider(new KeywordSuggestionProvider(), 10);
+
+        List<DishInfo> whileTyping = cache.getSuggestions("sushi ");
+        List<DishInfo> typed = cache.getSuggestions("Sushi");
+
+        assertEquals(1, whileTyping.size());
+        assertEquals("Sushi", whileTyping.get(0).name);
+        assertEquals(whileTyping, typed);
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used keyword")
+    void shouldEvictLeastRecentlyUsed() {
+        CachingSuggestionProvider cache = new CachingSuggestionProvider(delegate, 2);
+
+        cache.getSuggestions("a");
+        cache.getSuggestions("b");
+        cache.getSuggestions("a");
+        cache.getSuggestions("c");
+        cache.getSuggestions("a");
+        cache.getSuggestions("b");
+
+        assertEquals(List.of("a", "b", "c", "b"), queries);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should recompute suggestions after learning a dish")
+    void shouldInvalidateOnLearn() {
+        CachingSuggestionProvider cache = new CachingSuggestionProvider(delegate, 10);
+        assertTrue(cache.getSuggestions("bur").isEmpty());
+
+        cache.learnFrom(new Dish("Bacon Burger", "Smoky", 10.0));
+
+        assertEquals(1, cache.getGeneration());
+        assertEquals("Bacon Burger", cache.getSuggestions("bur").get(0).name);
+        assertEquals(2, queries.size());
+
+        cache.invalidate("BUR");
+        cache.getSuggestions("bur");
+        assertEquals(3, queries.size());
+    }
+
+    @Test
+    @DisplayName("Should cache the hybrid merge until a dish is learned")
+    void shouldCacheHybridSuggestions() {
+        AtomicInteger calls = new AtomicInteger();
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(keyword -> {
+                    calls.incrementAndGet();
+                    return List.of(new DishInfo("Pizza", "Classic", DishType.ITALIAN, DishCategory.MAIN_COURSE));
+                })
+                .cache(16)
+                .build();
+
+        service.getSuggestions("piz");
+        service.getSuggestions("piz");
+        assertEquals(1, calls.get());
+
+        service.learnFrom(new Dish("Pizza Regina", "Ham", 11.0));
+        service.getSuggestions("piz");
+        assertEquals(2, calls.get());
+        assertEquals(1, service.getCache().getHits());
+    }
+
+    @Test
+    @DisplayName("Should not cache a merge that missed a provider")
+    void shouldNotCachePartialMerges() {
+        AtomicInteger calls = new AtomicInteger();
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(keyword -> List.of(new DishInfo("Pizza", "Classic", DishType.ITALIAN, DishCategory.MAIN_COURSE)))
+                .provider(keyword -> {
+                    calls.incrementAndGet();
+                    throw new IllegalStateException("index unavailable");
+                }, 1, Duration.ofMillis(50))
+                .cache(16)
+                .build();
+
+        service.getSuggestions("piz");
+        assertEquals("Pizza", service.getSuggestions("piz").get(0).name);
+
+        assertEquals(2, calls.get());
+        assertEquals(2, service.getPartialMerges());
+        assertEquals(0, service.getCache().size());
+    }
+}
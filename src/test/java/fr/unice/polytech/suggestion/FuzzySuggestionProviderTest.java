@@ -0,0 +1,82 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FuzzySuggestionProvider Tests")
+class FuzzySuggestionProviderTest {
+
+    private FuzzySuggestionProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        provider = new FuzzySuggestionProvider(new KeywordSuggestionProvider().getKeywords().values());
+        provider.add(new DishInfo("Pizza Margherita", "Tomate, mozzarella", DishType.ITALIAN, DishCategory.MAIN_COURSE));
+        provider.add(new DishInfo("Tiramisu", "Café et mascarpone", DishType.ITALIAN, DishCategory.DESSERT));
+    }
+
+    private List<String> suggest(String keyword) {
+        return provider.getSuggestions(keyword).stream().map(dish -> dish.name).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should tolerate typos the keyword provider misses")
+    void shouldTolerateTypos() {
+        KeywordSuggestionProvider keywordProvider = new KeywordSuggestionProvider();
+        assertTrue(keywordProvider.getSuggestions("piza").isEmpty());
+        assertTrue(keywordProvider.getSuggestions("sushis").isEmpty());
+
+        assertEquals(List.of("Pizza", "Pizza Margherita"), suggest("piza"));
+        assertEquals(List.of("Sushi"), suggest("sushis"));
+        assertEquals(List.of("Salad"), suggest("salade"));
+    }
+
+    @Test
+    @DisplayName("Should match a word being typed, in names before descriptions")
+    void shouldMatchPrefixesNamesFirst() {
+        assertEquals(List.of("Pizza Margherita"), suggest("marg"));
+        assertEquals(List.of("Tiramisu"), suggest("mascarpne"));
+        assertEquals(List.of("Tiramisu"), suggest("CAFE"));
+    }
+
+    @Test
+    @DisplayName("Should reject dishes too far from the query")
+    void shouldRejectDistantDishes() {
+        assertTrue(suggest("xyz").isEmpty());
+        assertTrue(suggest("").isEmpty());
+        assertTrue(suggest("pasta").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should bound the edit distance computation")
+    void shouldComputeBoundedPrefixDistance() {
+        assertEquals(0, FuzzySuggestionProvider.prefixDistance("piz", "pizza", 1));
+        assertEquals(1, FuzzySuggestionProvider.prefixDistance("piza", "pizza", 1));
+        assertEquals(1, FuzzySuggestionProvider.prefixDistance("sushis", "sushi", 2));
+        assertEquals(2, FuzzySuggestionProvider.prefixDistance("burger", "pizza", 1));
+    }
+
+    @Test
+    @DisplayName("Should find the intended dish in a large catalog")
+    void shouldScaleToLargeCatalogs() {
+        List<DishInfo> catalog = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            catalog.add(new DishInfo("Dish " + i, "Generated dish " + i, DishType.GENERAL, DishCategory.MAIN_COURSE));
+        }
+        catalog.add(new DishInfo("Bouillabaisse", "Soupe de poissons", DishType.GENERAL, DishCategory.MAIN_COURSE));
+        FuzzySuggestionProvider large = new FuzzySuggestionProvider(catalog);
+
+        assertEquals(20_001, large.size());
+        assertEquals("Bouillabaisse", large.getSuggestions("bouilabaise", 3).get(0).name);
+        assertEquals(3, large.getSuggestions("dish", 3).size());
+    }
+}
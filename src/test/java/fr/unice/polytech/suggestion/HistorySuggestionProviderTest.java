@@ -0,0 +1,110 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HistorySuggestionProvider Tests")
+class HistorySuggestionProviderTest {
+
+    private static final Duration HALF_LIFE = Duration.ofMinutes(10);
+
+    private final AtomicLong now = new AtomicLong();
+
+    private HistorySuggestionProvider provider(int capacity) {
+        return new HistorySuggestionProvider(capacity, HALF_LIFE, now::get);
+    }
+
+    private static List<String> names(List<DishInfo> dishes) {
+        return dishes.stream().map(dish -> dish.name).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should keep one entry per normalized name")
+    void shouldDeduplicateByNormalizedName() {
+        HistorySuggestionProvider provider = provider(10);
+        provider.learnFrom(new Dish("Crème Brûlée", "Dessert", 6.0));
+        provider.learnFrom(new Dish("creme brulee", "Dessert", 6.0));
+
+        assertEquals(1, provider.size());
+        assertEquals(List.of("Crème Brûlée"), names(provider.getSuggestions("BRULE")));
+        assertEquals(2.0, provider.getPopularity("Creme Brulee"), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should rank by popularity weighted by recency")
+    void shouldRankByRecencyWeightedPopularity() {
+        HistorySuggestionProvider provider = provider(10);
+        provider.learnFrom(new Dish("Pasta Pesto", "Basil", 10.0));
+        provider.learnFrom(new Dish("Pasta Pesto", "Basil", 10.0));
+        provider.learnFrom(new Dish("Pasta Carbonara", "Creamy", 11.0));
+
+        assertEquals(List.of("Pasta Pesto", "Pasta Carbonara"), names(provider.getSuggestions("pasta")));
+
+        // Two half-lives later, the old favourite weighs 0.5: one fresh order beats it
+        now.addAndGet(HALF_LIFE.toNanos() * 2);
+        provider.learnFrom(new Dish("Pasta Carbonara", "Creamy", 11.0));
+
+        assertEquals(0.5, provider.getPopularity("Pasta Pesto"), 1e-9);
+        assertEquals(List.of("Pasta Carbonara", "Pasta Pesto"), names(provider.getSuggestions("pasta")));
+    }
+
+    @Test
+    @DisplayName("Should evict the least popular dish beyond its capacity")
+    void shouldEvictLeastPopularDish() {
+        HistorySuggestionProvider provider = provider(2);
+        provider.learnFrom(new Dish("Sushi", "Fish", 12.0));
+        provider.learnFrom(new Dish("Sushi", "Fish", 12.0));
+        provider.learnFrom(new Dish("Ramen", "Soup", 11.0));
+        provider.learnFrom(new Dish("Gyoza", "Dumplings", 6.0));
+
+        assertEquals(2, provider.size());
+        assertEquals(0, provider.getPopularity("Ramen"));
+        assertTrue(provider.getPopularity("Sushi") > 0);
+        assertTrue(provider.getPopularity("Gyoza") > 0);
+    }
+
+    @Test
+    @DisplayName("Should evict a favourite that decayed below a newer dish")
+    void shouldEvictDecayedFavourite() {
+        HistorySuggestionProvider provider = provider(2);
+        for (int i = 0; i < 3; i++) {
+            provider.learnFrom(new Dish("Sushi", "Fish", 12.0));
+        }
+        // Three half-lives later, Sushi weighs 3/8
+        now.addAndGet(HALF_LIFE.toNanos() * 3);
+        provider.learnFrom(new Dish("Ramen", "Soup", 11.0));
+        provider.learnFrom(new Dish("Gyoza", "Dumplings", 6.0));
+
+        assertEquals(0, provider.getPopularity("Sushi"));
+        assertEquals(1.0, provider.getPopularity("Ramen"), 1e-9);
+        assertEquals(1.0, provider.getPopularity("Gyoza"), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should stay bounded under many distinct dishes")
+    void shouldStayBounded() {
+        HistorySuggestionProvider provider = provider(50);
+        for (int i = 0; i < 1000; i++) {
+            now.incrementAndGet();
+            provider.learnFrom(new Dish("Dish " + i, "Generated", 5.0));
+        }
+
+        assertEquals(50, provider.size());
+        assertTrue(provider.getSuggestions("dish").size() <= HistorySuggestionProvider.MAX_SUGGESTIONS);
+    }
+
+    @Test
+    @DisplayName("Should reject invalid settings")
+    void shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new HistorySuggestionProvider(0, HALF_LIFE));
+        assertThrows(IllegalArgumentException.class, () -> new HistorySuggestionProvider(10, Duration.ZERO));
+    }
+}
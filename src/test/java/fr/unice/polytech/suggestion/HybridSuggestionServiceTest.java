@@ -0,0 +1,133 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("HybridSuggestionService Tests")
+class HybridSuggestionServiceTest {
+
+    private static DishInfo dish(String name) {
+        return new DishInfo(name, "Description of " + name, DishType.GENERAL, DishCategory.MAIN_COURSE);
+    }
+
+    private static List<String> names(List<DishInfo> dishes) {
+        return dishes.stream().map(dish -> dish.name).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should compare dish infos by value")
+    void shouldCompareDishInfosByValue() {
+        assertEquals(dish("Pizza"), dish("Pizza"));
+        assertEquals(dish("Pizza").hashCode(), dish("Pizza").hashCode());
+        assertNotEquals(dish("Pizza"), dish("Pasta"));
+    }
+
+    @Test
+    @DisplayName("Should merge duplicates on their normalized name and rank by weighted score")
+    void shouldMergeAndRankByScore() {
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(keyword -> List.of(dish("Crème Brûlée"), dish("Tarte Tatin")), 1)
+                .provider(keyword -> List.of(dish("Mousse"), dish("creme brulee")), 1)
+                .build();
+
+        // Crème Brûlée: 1 + 1/2, Mousse: 1, Tarte Tatin: 1/2
+        assertEquals(List.of("Crème Brûlée", "Mousse", "Tarte Tatin"), names(service.getSuggestions("c")));
+    }
+
+    @Test
+    @DisplayName("Should keep only the best suggestions")
+    void shouldLimitSuggestions() {
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(keyword -> List.of(dish("A"), dish("B"), dish("C")), 1)
+                .provider(keyword -> List.of(dish("C")), 2)
+                .limit(2)
+                .build();
+
+        assertEquals(List.of("C", "A"), names(service.getSuggestions("x")));
+    }
+
+    @Test
+    @DisplayName("Should not wait for a provider beyond its latency budget")
+    void shouldIgnoreSlowProviders() {
+        CountDownLatch release = new CountDownLatch(1);
+        SuggestionProvider slow = keyword -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(dish("Late"));
+        };
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(keyword -> List.of(dish("Fast")), 1, Duration.ofMillis(500))
+                .provider(slow, 10, Duration.ofMillis(50))
+                .build();
+
+        long start = System.nanoTime();
+        List<DishInfo> suggestions = service.getSuggestions("a");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertEquals(List.of("Fast"), names(suggestions));
+        assertTrue(elapsedMillis < 2000, "Took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("Should ignore a failing provider")
+    void shouldIgnoreFailingProviders() {
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(keyword -> {
+                    throw new IllegalStateException("index unavailable");
+                })
+                .provider(keyword -> List.of(dish("Pizza")))
+                .build();
+
+        assertEquals(List.of("Pizza"), names(service.getSuggestions("piz")));
+    }
+
+    @Test
+    @DisplayName("Should let every provider learn from new dishes")
+    void shouldLearnInEveryProvider() {
+        List<String> learned = new ArrayList<>();
+        SuggestionProvider learning = new SuggestionProvider() {
+            @Override
+            public List<DishInfo> getSuggestions(String keyword) {
+                return List.of();
+            }
+
+            @Override
+            public void learnFrom(Dish dish) {
+                learned.add(dish.getName());
+            }
+        };
+        HybridSuggestionService service = new HybridSuggestionService.Builder()
+                .provider(learning)
+                .provider(keyword -> List.of())
+                .build();
+
+        service.learnFrom(new Dish("Poke Bowl", "Fresh", 12.0));
+
+        assertEquals(List.of("Poke Bowl"), learned);
+    }
+
+    @Test
+    @DisplayName("Should tolerate typos with the default providers")
+    void shouldTolerateTyposByDefault() {
+        HybridSuggestionService service = new HybridSuggestionService();
+
+        assertEquals("Pizza", service.getSuggestions("piza").get(0).name);
+        assertThrows(IllegalArgumentException.class, () -> new HybridSuggestionService.Builder().build());
+    }
+}
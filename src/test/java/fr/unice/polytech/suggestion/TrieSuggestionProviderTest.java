@@ -0,0 +1,73 @@
+package fr.unice.polytech.suggestion;
+
+import fr.unice.polytech.dishes.Dish;
+import fr.unice.polytech.dishes.DishCategory;
+import fr.unice.polytech.dishes.DishType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TrieSuggestionProvider Tests")
+class TrieSuggestionProviderTest {
+
+    private static List<String> names(List<DishInfo> dishes) {
+        return dishes.stream().map(dish -> dish.name).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should normalize case, accents and separators")
+    void shouldNormalizeText() {
+        assertEquals("creme brulee", SearchText.normalize("  Crème-Brûlée "));
+        assertEquals(List.of("creme", "brulee"), SearchText.words("creme brulee"));
+        assertEquals("", SearchText.normalize(null));
+    }
+
+    @Test
+    @DisplayName("Should find dishes by the prefix of their name, words or keywords")
+    void shouldFindByPrefix() {
+        TrieSuggestionProvider provider = new TrieSuggestionProvider();
+        provider.add(new DishInfo("Bacon Burger", "Smoky", DishType.AMERICAN, DishCategory.MAIN_COURSE));
+        provider.add(new DishInfo("Salad", "A healthy starter", DishType.GENERAL, DishCategory.STARTER), "salade");
+
+        assertEquals(List.of("Bacon Burger"), names(provider.getSuggestions("bac")));
+        assertEquals(List.of("Bacon Burger"), names(provider.getSuggestions("BUR")));
+        assertEquals(List.of("Bacon Burger"), names(provider.getSuggestions("bacon bu")));
+        assertEquals(List.of("Salad"), names(provider.getSuggestions("saladé")));
+        assertTrue(provider.getSuggestions("urger").isEmpty());
+        assertTrue(provider.getSuggestions("").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should rank the most learned dishes first and keep only the top-k")
+    void shouldRankByFrequency() {
+        TrieSuggestionProvider provider = new TrieSuggestionProvider(2);
+        provider.learnFrom(new Dish("Pasta Carbonara", "Creamy", 11.0));
+        provider.learnFrom(new Dish("Pasta Pesto", "Basil", 10.0));
+        provider.learnFrom(new Dish("Pasta Arrabbiata", "Spicy", 10.0));
+        provider.learnFrom(new Dish("Pasta Arrabbiata", "Spicy", 10.0));
+
+        assertEquals(List.of("Pasta Arrabbiata", "Pasta Carbonara"), names(provider.getSuggestions("pasta")));
+
+        provider.learnFrom(new Dish("Pasta Pesto", "Basil", 10.0));
+        provider.learnFrom(new Dish("Pasta Pesto", "Basil", 10.0));
+
+        assertEquals(List.of("Pasta Pesto", "Pasta Arrabbiata"), names(provider.getSuggestions("pas")));
+        assertEquals(List.of("Pasta Pesto"), names(provider.getSuggestions("pas", 1)));
+        assertEquals(3, provider.size());
+    }
+
+    @Test
+    @DisplayName("Should suggest learned dishes from the hybrid service")
+    void shouldLearnFromHybridService() {
+        HybridSuggestionService service = new HybridSuggestionService();
+        service.learnFrom(new Dish("Burger Végétarien", "Veggie", 9.0));
+
+        List<String> suggestions = names(service.getSuggestions("burger vege"));
+        assertEquals(List.of("Burger Végétarien"), suggestions);
+        assertEquals(List.of("Burger Végétarien", "Burger"), names(service.getSuggestions("bur")));
+    }
+}
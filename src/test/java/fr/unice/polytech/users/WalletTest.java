@@ -0,0 +1,144 @@
+package fr.unice.polytech.users;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Wallet Tests")
+class WalletTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    @DisplayName("Should debit only when the balance is sufficient")
+    void shouldDebitOnlyWhenBalanceIsSufficient() {
+        Wallet wallet = new Wallet(3000);
+
+        assertTrue(wallet.debit(1, 2000));
+        assertFalse(wallet.debit(2, 1500));
+        assertEquals(1000, wallet.getBalanceCents());
+    }
+
+    @Test
+    @DisplayName("Should debit an order only once")
+    void shouldDebitAnOrderOnlyOnce() {
+        Wallet wallet = new Wallet(3000);
+
+        assertTrue(wallet.debit(7, 1000));
+        assertTrue(wallet.debit(7, 1000));
+
+        assertEquals(2000, wallet.getBalanceCents());
+        assertEquals(2, wallet.getLedger().size());
+    }
+
+    @Test
+    @DisplayName("Should refund a debited order once")
+    void shouldRefundOnce() {
+        Wallet wallet = new Wallet(3000);
+        wallet.debit(7, 1250);
+
+        assertTrue(wallet.refund(7));
+        assertFalse(wallet.refund(7));
+        assertFalse(wallet.refund(8));
+        assertEquals(3000, wallet.getBalanceCents());
+        assertEquals(WalletTransaction.Type.REFUND, wallet.getLedger().get(2).getType());
+    }
+
+    @Test
+    @DisplayName("Should not mark a refunded order as paid again")
+    void shouldRefuseToDebitARefundedOrder() {
+        Wallet wallet = new Wallet(3000);
+        wallet.debit(7, 1250);
+        wallet.refund(7);
+
+        assertFalse(wallet.debit(7, 1250));
+        assertEquals(3000, wallet.getBalanceCents());
+        assertEquals(3, wallet.getLedger().size());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the balance from the ledger")
+    void shouldRebuildBalanceFromLedger() {
+        Wallet wallet = new Wallet(3000);
+        wallet.debit(1, 1000);
+        wallet.deposit(500);
+        wallet.debit(2, 700);
+        wallet.refund(1);
+
+        assertEquals(2800, wallet.getBalanceCents());
+        assertEquals(wallet.getBalanceCents(), wallet.replayBalanceCents());
+    }
+
+    @Test
+    @DisplayName("Should never overspend under concurrent debits")
+    void shouldNeverOverspendUnderConcurrentDebits() throws Exception {
+        Wallet wallet = new Wallet(10_000);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger nextOrderId = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 100; i++) {
+                if (wallet.debit(nextOrderId.incrementAndGet(), 7)) {
+                    succeeded.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(10_000 / 7, succeeded.get());
+        assertEquals(10_000 % 7, wallet.getBalanceCents());
+        assertEquals(wallet.getBalanceCents(), wallet.replayBalanceCents());
+    }
+
+    @Test
+    @DisplayName("Should debit an order once under concurrent payments of that order")
+    void shouldDebitOnceUnderConcurrentPaymentsOfSameOrder() throws Exception {
+        Wallet wallet = new Wallet(10_000);
+
+        runConcurrently(() -> assertTrue(wallet.debit(42, 2500)));
+
+        assertEquals(7500, wallet.getBalanceCents());
+        assertEquals(wallet.getBalanceCents(), wallet.replayBalanceCents());
+    }
+
+    @Test
+    @DisplayName("Student account balance should be backed by its wallet")
+    void studentBalanceShouldBeBackedByWallet() {
+        StudentAccount student = new StudentAccount.Builder("Alice", "Smith").balance(30.10).build();
+
+        assertTrue(student.debit(3, 10.05));
+        assertTrue(student.debit(3, 10.05));
+
+        assertEquals(20.05, student.getBalance(), 1e-9);
+        assertEquals(2005, student.getWallet().getBalanceCents());
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}